@@ -8,8 +8,10 @@
 package com.salesforce.revoman.benchmark
 
 import com.salesforce.revoman.internal.json.MoshiReVoman.Companion.initMoshi
+import com.salesforce.revoman.internal.postman.PlaceholderTemplate
 import com.salesforce.revoman.internal.postman.PostmanSDK
 import com.salesforce.revoman.internal.postman.RegexReplacer
+import com.salesforce.revoman.output.postman.PersistentBackedMutableMap
 import java.util.concurrent.TimeUnit
 import org.openjdk.jmh.annotations.Benchmark
 import org.openjdk.jmh.annotations.BenchmarkMode
@@ -33,6 +35,7 @@ open class RegexVarBenchmark {
 
   private lateinit var regexReplacer: RegexReplacer
   private lateinit var pm: PostmanSDK
+  private lateinit var incrementalPm: PostmanSDK
 
   // ~90% of real strings carry no placeholder (headers, static URL segments, literal body fields)
   // -> C1's fast-path guard should dominate the win here.
@@ -42,16 +45,33 @@ open class RegexVarBenchmark {
       else """{ "field$i": "static-value-$i", "note": "no placeholders in this line" }"""
     }
 
+  // A ~9 KB JSON body with 96 placeholders (a realistic composite/bulk request payload): the shape
+  // where per-call regex scanning and MatchResult allocation dominated the replacement cost.
+  private val largeBody: String =
+    (0 until 48).joinToString(",\n", "{ \"records\": [\n", "\n] }") { i ->
+      """  { "attributes": { "type": "Account", "referenceId": "ref$i" }, """ +
+        """"Name": "{{accountName}}-$i", "OwnerId": "{{ownerId}}", """ +
+        """"Description": "static description text for record number $i of the payload" }"""
+    }
+  private val largeBodyValues = mapOf("accountName" to "Acme", "ownerId" to "005000000000001")
+  private val postmanVariableRegex = "\\{\\{([^{}]*?)}}".toRegex()
+
   @Setup
   fun setup() {
     regexReplacer = RegexReplacer()
     pm = PostmanSDK(initMoshi(), null, regexReplacer)
     pm.environment["policyId"] = "0Pol000000000001"
     // Large env: mostly static entries + a few placeholder entries (exercises C2 static skip).
+    largeBodyValues.forEach { (key, value) -> pm.environment[key] = value }
     (0 until 500).forEach { i ->
       if (i % 25 == 0) pm.environment["k$i"] = "prefix-{{policyId}}-suffix"
       else pm.environment["k$i"] = "static-value-$i"
     }
+    // The run's real backing: a journaling persistent map, with one unresolvable entry pending.
+    incrementalPm =
+      PostmanSDK(initMoshi(), null, RegexReplacer(), PersistentBackedMutableMap(pm.environment))
+    incrementalPm.environment["pending"] = "{{notYetSet}}"
+    incrementalPm.regexReplacer.reResolveEnv(incrementalPm)
   }
 
   @Benchmark
@@ -63,4 +83,30 @@ open class RegexVarBenchmark {
   fun replaceVariablesInEnvOverLargeEnv(bh: Blackhole) {
     bh.consume(regexReplacer.replaceVariablesInEnv(pm))
   }
+
+  /** The per-step pass the executor runs: one step's write, then the incremental re-resolution. */
+  @Benchmark
+  fun reResolveEnvAfterOneWriteOverLargeEnv() {
+    incrementalPm.environment["k1"] = "static-value-1"
+    incrementalPm.regexReplacer.reResolveEnv(incrementalPm)
+  }
+
+  @Benchmark
+  fun replaceVariablesRecursivelyOverLargeBody(bh: Blackhole) {
+    bh.consume(regexReplacer.replaceVariablesRecursively(largeBody, pm))
+  }
+
+  /** The pre-compilation baseline: a regex scan with a `MatchResult` per placeholder. */
+  @Benchmark
+  fun regexScanOverLargeBody(bh: Blackhole) {
+    bh.consume(
+      postmanVariableRegex.replace(largeBody) { largeBodyValues[it.groupValues[1]] ?: it.value }
+    )
+  }
+
+  /** Same lookups as [regexScanOverLargeBody], rendered from the cached compiled template. */
+  @Benchmark
+  fun compiledTemplateOverLargeBody(bh: Blackhole) {
+    bh.consume(PlaceholderTemplate.of(largeBody).render { largeBodyValues[it] })
+  }
 }
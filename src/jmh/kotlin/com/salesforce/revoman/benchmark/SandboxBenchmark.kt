@@ -30,6 +30,8 @@ import org.openjdk.jmh.annotations.Warmup
  * Captures A2 (interpreter->JIT once via truffle-runtime + shared-Engine bootcode reuse) and A3
  * (JSON.parse closure reuse via pm.response.json()). One booted sandbox per trial; each @Benchmark
  * invocation is one eval — the steady-state per-script latency after warm-up.
+ * [evalFiftyDistinctScripts] cycles through 50 distinct scripts, like a collection's worth of
+ * steps, to track that each one is compiled once rather than on every execution.
  */
 @BenchmarkMode(Mode.AverageTime)
 @OutputTimeUnit(TimeUnit.MICROSECONDS)
@@ -49,6 +51,9 @@ open class SandboxBenchmark {
     """
       .trimIndent()
 
+  private val distinctScripts = List(50) { "pm.environment.set('step', $it);\n$script" }
+  private var nextScript = 0
+
   private fun context() =
     PmExecutionContext(
       environment = PmScope("e", emptyMap()),
@@ -65,4 +70,10 @@ open class SandboxBenchmark {
   @Benchmark
   fun evalPostmanTestScript(): Any? =
     sandbox.execute(script, ScriptTarget.TEST, context()).environment["id"]
+
+  @Benchmark
+  fun evalFiftyDistinctScripts(): Any? =
+    sandbox
+      .execute(distinctScripts[nextScript++ % distinctScripts.size], ScriptTarget.TEST, context())
+      .environment["step"]
 }
@@ -11,32 +11,55 @@ import arrow.core.Either.Left
 import arrow.core.Either.Right
 import arrow.core.flatMap
 import arrow.core.merge
+import com.salesforce.revoman.input.IterationHook
 import com.salesforce.revoman.input.PostExeHook
 import com.salesforce.revoman.input.bufferFile
 import com.salesforce.revoman.input.bufferInputStream
+import com.salesforce.revoman.input.config.HookConfig.StepHook.PreStepHook
 import com.salesforce.revoman.input.config.Kick
+import com.salesforce.revoman.input.config.LoadConfig
 import com.salesforce.revoman.input.config.Runbook
 import com.salesforce.revoman.input.isV3Collection
+import com.salesforce.revoman.internal.exe.AsyncHttpTimingRecorder
+import com.salesforce.revoman.internal.exe.HttpTimingRecorder
+import com.salesforce.revoman.internal.exe.SERVER_TIMING
 import com.salesforce.revoman.internal.exe.StepDirective
+import com.salesforce.revoman.internal.exe.StepGraph
+import com.salesforce.revoman.internal.exe.StepPlan
+import com.salesforce.revoman.internal.exe.TRACEPARENT
+import com.salesforce.revoman.internal.exe.allHttpPoolStats
 import com.salesforce.revoman.internal.exe.deepFlattenItems
 import com.salesforce.revoman.internal.exe.directiveOf
+import com.salesforce.revoman.internal.exe.envDelta
 import com.salesforce.revoman.internal.exe.executePolling
 import com.salesforce.revoman.internal.exe.executePostResJS
 import com.salesforce.revoman.internal.exe.executePreReqJS
 import com.salesforce.revoman.internal.exe.executeRunbook
 import com.salesforce.revoman.internal.exe.fireHttpRequest
+import com.salesforce.revoman.internal.exe.fireHttpRequestAsync
+import com.salesforce.revoman.internal.exe.kickKeysOf
+import com.salesforce.revoman.internal.exe.kickWaves
+import com.salesforce.revoman.internal.exe.parseServerTiming
+import com.salesforce.revoman.internal.exe.pickedPreStepHooks
+import com.salesforce.revoman.internal.exe.planSteps
+import com.salesforce.revoman.internal.exe.pooledHttpClient
 import com.salesforce.revoman.internal.exe.ledgerSkipDecision
 import com.salesforce.revoman.internal.exe.postStepHookExe
 import com.salesforce.revoman.internal.exe.preStepHookExe
 import com.salesforce.revoman.internal.exe.renderHttpMsg
 import com.salesforce.revoman.internal.exe.requestCoordinates
 import com.salesforce.revoman.internal.exe.resolveTarget
+import com.salesforce.revoman.internal.exe.runIterationData
+import com.salesforce.revoman.internal.exe.runLoad
 import com.salesforce.revoman.internal.exe.shadowedProducerPaths
 import com.salesforce.revoman.internal.exe.shouldHaltExecution
 import com.salesforce.revoman.internal.exe.shouldStepBePicked
 import com.salesforce.revoman.internal.exe.timed
+import com.salesforce.revoman.internal.exe.traceparent
 import com.salesforce.revoman.internal.exe.unmarshallRequest
 import com.salesforce.revoman.internal.exe.unmarshallResponse
+import com.salesforce.revoman.internal.exe.warmUpConnections
+import com.salesforce.revoman.internal.exe.withTraceparent
 import com.salesforce.revoman.internal.json.MoshiReVoman
 import com.salesforce.revoman.internal.json.MoshiReVoman.Companion.initMoshi
 import com.salesforce.revoman.internal.log.Banner
@@ -47,6 +70,7 @@ import com.salesforce.revoman.internal.postman.PostmanSDK
 import com.salesforce.revoman.internal.postman.RegexReplacer
 import com.salesforce.revoman.internal.postman.dynamicVariableGenerator
 import com.salesforce.revoman.internal.postman.sandbox.PmSandbox
+import com.salesforce.revoman.internal.postman.sandbox.PmSandboxPool
 import com.salesforce.revoman.internal.postman.template.Environment.Companion.mergeEnvs
 import com.salesforce.revoman.internal.postman.template.Template
 import com.salesforce.revoman.internal.postman.template.v3.V3Loader.load
@@ -59,23 +83,37 @@ import com.salesforce.revoman.output.ExeType.PRE_REQ_JS
 import com.salesforce.revoman.output.ExeType.PRE_STEP_HOOK
 import com.salesforce.revoman.output.ExeType.UNMARSHALL_REQUEST
 import com.salesforce.revoman.output.ExeType.UNMARSHALL_RESPONSE
+import com.salesforce.revoman.output.IterationSummary
 import com.salesforce.revoman.output.RunbookRundown
 import com.salesforce.revoman.output.Rundown
+import com.salesforce.revoman.output.StepReportLog
 import com.salesforce.revoman.output.StopReason
 import com.salesforce.revoman.output.ledger.LedgerEntry
+import com.salesforce.revoman.output.load.LoadReport
 import com.salesforce.revoman.output.log.Outcome
 import com.salesforce.revoman.output.log.StepEvent
 import com.salesforce.revoman.output.postman.PersistentBackedMutableMap
+import com.salesforce.revoman.output.report.ConnectionWarmUp
+import com.salesforce.revoman.output.report.HttpPoolStats
 import com.salesforce.revoman.output.report.Step
 import com.salesforce.revoman.output.report.StepEnvVars
 import com.salesforce.revoman.output.report.StepReport
 import com.salesforce.revoman.output.report.StepReport.Companion.toVavr
 import com.salesforce.revoman.output.report.TxnInfo
+import com.salesforce.revoman.output.report.failure.RequestFailure.HttpRequestFailure
 import com.squareup.moshi.Moshi
 import com.squareup.moshi.adapter
 import io.vavr.control.Either.left
+import java.io.ByteArrayInputStream
 import java.time.Duration
+import java.util.concurrent.Callable
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
 import org.http4k.core.Request
+import org.http4k.core.Response
 
 object ReVoman {
   @JvmStatic
@@ -108,6 +146,128 @@ object ReVoman {
       }
       .second
 
+  /**
+   * Same contract as [revUp] over `List<Kick>`, but kicks with no upstream dependency run
+   * concurrently. Each kick's reads/writes of the threaded env come from its declared
+   * [Kick.consumedKeys]/[Kick.producedKeys], else its learned [Kick.ledger] (writes) and a scan of
+   * its steps' `{{key}}` placeholders and literal script reads (reads); kicks are grouped in
+   * declaration order into waves of mutually independent kicks. Every kick in a wave starts from
+   * the same env (all earlier waves merged), and after the wave each kick's env DELTA is merged in
+   * declaration order — so a dependent kick sees exactly the env the serial chain would hand it.
+   *
+   * [postExeHook] still sees rundowns in declaration order (each call's `rundowns` is the
+   * declaration-order prefix), but only once the whole wave has finished; a hook's env writes are
+   * part of its kick's delta. A kick with unknown keys is ordered against every kick it might
+   * touch, so with no declarations and no ledgers this degrades to the serial chain. The first
+   * failing kick (in declaration order) of a wave rethrows once the wave has finished.
+   */
+  @JvmStatic
+  @JvmOverloads
+  fun revUpConcurrently(
+    kicks: List<Kick>,
+    postExeHook: PostExeHook = PostExeHook { _, _ -> },
+    dynamicEnvironment: Map<String, Any?> = emptyMap(),
+  ): List<Rundown> {
+    val waves =
+      kickWaves(
+        kicks.map { kick ->
+          // Template streams can be read only once, and the kick's own run still needs them
+          kickKeysOf(kick) {
+            if (kick.templateInputStreams().isEmpty()) loadSteps(kick).map { it.step } else null
+          }
+        }
+      )
+    RevomanLog.info { "Running ${kicks.size} kicks in ${waves.size} waves" }
+    return waves
+      .fold(dynamicEnvironment to listOf<Rundown>()) { (accumulatedMutableEnv, rundowns), wave ->
+        val waveRundowns =
+          Executors.newVirtualThreadPerTaskExecutor()
+            .use { executor ->
+              wave
+                .map { kicks[it] }
+                .map { kick ->
+                  executor.submit(
+                    Callable {
+                      revUp(
+                        kick.overrideDynamicEnvironment(
+                          kick.dynamicEnvironment() + accumulatedMutableEnv
+                        )
+                      )
+                    }
+                  )
+                }
+            }
+            .map { future ->
+              try {
+                future.get()
+              } catch (e: ExecutionException) {
+                throw e.cause ?: e
+              }
+            }
+        val accumulatedRundowns =
+          waveRundowns.fold(rundowns) { accumulated, rundown ->
+            (accumulated + rundown).also { postExeHook.accept(rundown, it) }
+          }
+        val mergedEnv =
+          waveRundowns.fold(accumulatedMutableEnv) { env, rundown ->
+            val (changed, removed) =
+              envDelta(accumulatedMutableEnv, rundown.mutableEnv.immutableEnv)
+            env - removed + changed
+          }
+        mergedEnv to accumulatedRundowns
+      }
+      .second
+  }
+
+  /**
+   * Runs many INDEPENDENT [kicks] at once — e.g. seeding data for hundreds of isolated tenants in
+   * one JVM — and returns their rundowns in [kicks] order. Each kick is a plain [revUp] with its
+   * own sandbox, env, Moshi and run-log sink (the sink is installed on the running thread's
+   * [RunLogContext], so runs never see each other's logs); nothing is threaded between kicks — use
+   * [revUp] over `List<Kick>` or [revUpConcurrently] for chains.
+   *
+   * By default every kick gets its own virtual thread: blocking HTTP I/O, polling sleeps and pool
+   * waits park the virtual thread instead of holding a carrier. Pass an [executor] to bound or
+   * instrument the concurrency; it is NOT shut down here. Waits for every kick; if any failed, the
+   * first failure (in [kicks] order) is rethrown with the others attached as suppressed.
+   */
+  @JvmStatic
+  @JvmOverloads
+  fun revUpAll(kicks: List<Kick>, executor: Executor? = null): List<Rundown> {
+    val ownedExecutor = if (executor == null) Executors.newVirtualThreadPerTaskExecutor() else null
+    val runOn: Executor = executor ?: ownedExecutor!!
+    try {
+      val futures = kicks.map { kick -> CompletableFuture.supplyAsync({ revUp(kick) }, runOn) }
+      val outcomes =
+        futures.map { future ->
+          runCatching { future.join() }
+            .recoverCatching { throw (it as? CompletionException)?.cause ?: it }
+        }
+      outcomes
+        .mapNotNull { it.exceptionOrNull() }
+        .takeIf { it.isNotEmpty() }
+        ?.let { failures ->
+          throw failures.first().apply { failures.drop(1).forEach { addSuppressed(it) } }
+        }
+      return outcomes.map { it.getOrThrow() }
+    } finally {
+      ownedExecutor?.close()
+    }
+  }
+
+  /**
+   * Load-tests with an existing collection: runs [kick] as a closed loop of
+   * [LoadConfig.iterations] iterations at [LoadConfig.concurrency] (after
+   * [LoadConfig.warmUpIterations] discarded ones), each iteration a full [revUp] with its
+   * [LoadConfig.iterationEnv] overlaid on `dynamicEnvironment`. Returns latency histograms
+   * (p50/p90/p99/max) and throughput per iteration, per step and per [ExeType]; rundowns are
+   * aggregated as they finish and not retained. An iteration that throws is counted as failed, not
+   * rethrown.
+   */
+  @JvmStatic
+  fun loadTest(kick: Kick, loadConfig: LoadConfig): LoadReport =
+    runLoad(kick, loadConfig) { revUp(it) }
+
   /**
    * Execute a [Runbook] — the legible, narrated form of a multi-collection chain. Threads env
    * exactly like [revUp] over `List<Kick>`, adding per-step data-flow contract checks, per-step
@@ -119,8 +279,78 @@ object ReVoman {
     executeRunbook(runbook, dynamicEnvironment)
 
   @JvmStatic
-  @OptIn(ExperimentalStdlibApi::class)
-  fun revUp(kick: Kick): Rundown {
+  fun revUp(kick: Kick): Rundown =
+    withRunLog(kick) {
+      PmSandboxPool.use(kick.sandboxPoolSize()) { sandbox ->
+        val stepPlans = loadSteps(kick)
+        if (kick.prewarmSandbox() && stepPlans.any { it.needsSandbox }) sandbox.bootInBackground()
+        runSteps(kick, stepPlans, sandbox)
+      }
+    }
+
+  /**
+   * Boots [count] Postman sandboxes into the JVM-wide pool ahead of any run — e.g. from a test
+   * class's `@BeforeAll` — so the first pre-request or test script of the next runs doesn't wait on
+   * a sandbox boot. Blocks until they are booted. Sandboxes already idle in the pool count towards
+   * [count]; each run still keeps at most its [Kick.sandboxPoolSize] idle once done.
+   */
+  @JvmStatic
+  @JvmOverloads
+  fun prewarm(count: Int = 1) {
+    require(count >= 0) { "`count` must be >= 0, was $count" }
+    PmSandboxPool.prewarm(count)
+  }
+
+  /**
+   * Closes every idle sandbox in the JVM-wide pool ([Kick.sandboxPoolSize], [prewarm]) and frees
+   * its GraalJS context — e.g. from a test suite's teardown, or before unloading ReVoman from a
+   * long-lived JVM. Runs in flight keep their sandboxes; later runs boot and pool afresh. A JVM
+   * shutdown hook does the same on exit.
+   */
+  @JvmStatic fun shutdown() = PmSandboxPool.clear()
+
+  /**
+   * The blocking HTTP transport's connection pools right now, one entry per host per pool (pools
+   * are JVM-wide, one per TLS variant and [Kick.httpTransport]). Sample it while runs are in flight
+   * to export leased/pending/available connections as metrics; hosts with steady pending leases
+   * need a larger [com.salesforce.revoman.input.config.HttpTransportConfig.maxConnectionsPerRoute].
+   */
+  @JvmStatic fun httpPoolStats(): List<HttpPoolStats> = allHttpPoolStats()
+
+  /**
+   * Postman's iteration data: streams [Kick.iterationDataPath] (CSV or NDJSON) row by row and runs
+   * [kick] once per row with the row overlaid on its `dynamicEnvironment`. The collection is parsed
+   * once; rows run on [Kick.iterationConcurrency] workers, each reusing one warm sandbox across its
+   * rows. Each row's [Rundown] goes to [onRundown] (never concurrently) and is then dropped, so a
+   * file of any size runs in flat memory. A row that throws, or whose hook throws, is counted as
+   * failed and the rest still run; a malformed data file fails the whole call.
+   */
+  @JvmStatic
+  @JvmOverloads
+  fun revUpIterations(
+    kick: Kick,
+    onRundown: IterationHook = IterationHook { _, _, _ -> },
+  ): IterationSummary {
+    val dataPath =
+      requireNotNull(kick.iterationDataPath()) { "`iterationDataPath` is required to iterate" }
+    val steps = loadSteps(kick)
+    // Environment streams can be read only once; buffer them so every row re-reads the same bytes
+    val environments = kick.environmentInputStreams().map { it.readBytes() }
+    return runIterationData(
+      dataPath,
+      kick.iterationConcurrency(),
+      kick.sandboxPoolSize(),
+      onRundown,
+    ) { row, sandbox ->
+      val rowKick =
+        kick
+          .overrideEnvironmentInputStreams(environments.map { ByteArrayInputStream(it) })
+          .overrideDynamicEnvironment(kick.dynamicEnvironment() + row)
+      withRunLog(rowKick) { runSteps(rowKick, steps, sandbox) }
+    }
+  }
+
+  private fun withRunLog(kick: Kick, run: () -> Rundown): Rundown {
     Banner.onRunStart()
     // BORROW the sink for this run only: install on the ThreadLocal, restore in finally. Do NOT
     // close() it — the caller OWNS the sink's lifecycle. A single caller-supplied sink commonly
@@ -128,7 +358,7 @@ object ReVoman {
     // here would shut the writer after the first revUp and silently drop every later run's output.
     val previousSink = RunLogContext.install(kick.runLogSink())
     try {
-      val rundown = revUpInternal(kick)
+      val rundown = run()
       Banner.recordSteps(rundown.stepReports.size)
       return rundown
     } finally {
@@ -136,8 +366,12 @@ object ReVoman {
     }
   }
 
+  /**
+   * Parses and deep-flattens every template of [kick] into the steps a run executes, each compiled
+   * into its [StepPlan] once here rather than on every execution.
+   */
   @OptIn(ExperimentalStdlibApi::class)
-  private fun revUpInternal(kick: Kick): Rundown {
+  private fun loadSteps(kick: Kick): List<StepPlan> {
     val pmTemplateAdapter = Moshi.Builder().build().adapter<Template>()
     val itemsFromPaths: List<com.salesforce.revoman.internal.postman.template.Item> =
       kick.templatePaths().flatMap { path ->
@@ -164,6 +398,10 @@ object ReVoman {
       val templateCount = kick.templatePaths().size
       "Total Steps from ${if (templateCount > 1) "$templateCount Collections" else "the Collection"} provided: ${pmStepsDeepFlattened.size}"
     }
+    return planSteps(pmStepsDeepFlattened, kick)
+  }
+
+  private fun runSteps(kick: Kick, stepPlans: List<StepPlan>, sandbox: PmSandbox): Rundown {
     val regexReplacer =
       RegexReplacer(kick.customDynamicVariableGenerators(), ::dynamicVariableGenerator)
     val moshiReVoman =
@@ -183,6 +421,7 @@ object ReVoman {
     val mergedEnv =
       mergeEnvs(kick.environmentPaths(), kick.environmentInputStreams(), kick.dynamicEnvironment())
     val environment = ledgerValues + mergedEnv.values
+    val connectionWarmUp = warmUpConnectionsInBackground(kick, stepPlans, environment)
     // Persistent-backed so every per-step pmEnvSnapshot is an O(1) structural share (see E2). The
     // MutableMap contract is preserved, so PostmanSDK/RegexReplacer writes are unaffected.
     val pm =
@@ -193,11 +432,12 @@ object ReVoman {
         PersistentBackedMutableMap(environment),
       )
     pm.environmentName = mergedEnv.name
+    // Joined before the first step, so its request finds the connections ready; the sandbox boot
+    // (`prewarmSandbox`) carries on meanwhile
+    val warmUp = connectionWarmUp?.join()
     val sequenceResult =
-      PmSandbox().use { sandbox ->
-        executeStepsSerially(pmStepsDeepFlattened, kick, moshiReVoman, regexReplacer, pm, sandbox)
-      }
-    val stepNameToReport = sequenceResult.reports
+      executeStepsSerially(stepPlans, kick, moshiReVoman, regexReplacer, pm, sandbox)
+    val stepNameToReport = sequenceResult.reports.reports
     // --- LEDGER CAPTURE CONTRACT (what becomes a ledgered producer) ---
     // A step's `envVars` is snapshotted at the END of its fold iteration (below), AFTER its
     // post-step hooks run, so a var a step-qualified PostStepHook/PreStepHook `.set()`s IS captured
@@ -215,31 +455,56 @@ object ReVoman {
           it.step.path to LedgerEntry(it.envVars.produced, it.step.sourceHash, it.envVars.consumed)
         }
     return Rundown(
-      stepNameToReport,
-      pm.environment,
-      kick.haltOnFailureOfTypeExcept(),
-      pmStepsDeepFlattened.size,
-      learnedLedger,
-      pm.collectionVariables,
-      pm.globals,
-      sequenceResult.stopReason,
+        stepNameToReport,
+        pm.environment,
+        kick.haltOnFailureOfTypeExcept(),
+        stepPlans.size,
+        learnedLedger,
+        pm.collectionVariables,
+        pm.globals,
+        sequenceResult.stopReason,
+        warmUp,
+      )
+      .withStepReportLog(sequenceResult.reports)
+  }
+
+  /** Starts `prewarmConnections` for the hosts of [stepPlans]' picked steps; null when not set. */
+  private fun warmUpConnectionsInBackground(
+    kick: Kick,
+    stepPlans: List<StepPlan>,
+    environment: Map<String, Any?>,
+  ): CompletableFuture<ConnectionWarmUp>? {
+    if (!kick.prewarmConnections()) return null
+    if (kick.asyncHttp()) {
+      RevomanLog.info { "`prewarmConnections` skipped: it warms only the blocking transport" }
+      return null
+    }
+    val rawUris =
+      stepPlans
+        .filter { shouldStepBePicked(it.step, kick.runOnlySteps(), kick.skipSteps()) }
+        .map { it.step.rawUri }
+    val client = pooledHttpClient(kick.insecureHttp(), kick.httpTransport())
+    return CompletableFuture.supplyAsync(
+      { warmUpConnections(rawUris, environment, client) },
+      { Thread.ofVirtual().name("revoman-connection-warm-up").start(it) },
     )
   }
 
   /** The outcome of a full step sequence: the per-step reports and why the run terminated. */
-  internal data class SequenceResult(val reports: List<StepReport>, val stopReason: StopReason)
+  internal data class SequenceResult(val reports: StepReportLog, val stopReason: StopReason)
 
   private fun executeStepsSerially(
-    pmStepsFlattened: List<Step>,
+    stepPlans: List<StepPlan>,
     kick: Kick,
     moshiReVoman: MoshiReVoman,
     regexReplacer: RegexReplacer,
     pm: PostmanSDK,
     sandbox: PmSandbox,
   ): SequenceResult {
-    val pickedSteps = pmStepsFlattened.filter {
-      shouldStepBePicked(it, kick.runOnlySteps(), kick.skipSteps())
+    val pickedPlans = stepPlans.filter {
+      shouldStepBePicked(it.step, kick.runOnlySteps(), kick.skipSteps())
     }
+    val pickedSteps = pickedPlans.map { it.step }
     // Collision guard (computed once over the picked steps in execution order): a key produced by
     // >1 step is only safely ledger-skippable at its LAST producer. Earlier producers of a re-set
     // key must always run, else a skipped earlier step would be injected with the LATER value and
@@ -249,7 +514,7 @@ object ReVoman {
     // Backward-jump runaway guard: up to `pickedSteps × maxStepExecutionFactor` executions allowed.
     val budget = pickedSteps.size * kick.maxStepExecutionFactor()
 
-    val reports = mutableListOf<StepReport>()
+    var reports = StepReportLog.EMPTY
     val iterationByPath = mutableMapOf<String, Int>()
     var cursor = 0
     var executions = 0
@@ -258,79 +523,123 @@ object ReVoman {
     // linear prefix BEFORE the first divergence still runs with the ledger fully active.
     var bypassLedger = false
     var stopReason = StopReason.COMPLETED
+    // Opt-in wave scheduling (`stepConcurrency > 1`). Like the ledger it relies on, it assumes the
+    // linear order, so it is bypassed under the same one-way latch once control flow diverges.
+    val stepGraph =
+      if (kick.stepConcurrency() > 1)
+        StepGraph(
+          pickedSteps,
+          kick.ledger(),
+          kick.stepDependencies(),
+          kick.postStepHooks().isNotEmpty(),
+        )
+      else null
 
     while (cursor in pickedSteps.indices) {
-      val step = pickedSteps[cursor]
-      pm.environment.currentStep = step
-      val iteration = iterationByPath.getOrDefault(step.path, 0)
+      val wave =
+        stepGraph
+          ?.takeIf { !bypassLedger }
+          ?.waveFrom(cursor, kick.stepConcurrency())
+          ?.map { pickedPlans[it] to iterationByPath.getOrDefault(pickedSteps[it].path, 0) }
+      val waveReports =
+        when {
+          wave != null && wave.size > 1 ->
+            runWave(
+              wave,
+              reports,
+              stepPlans.size,
+              shadowedPaths,
+              kick,
+              moshiReVoman,
+              regexReplacer,
+              pm,
+              sandbox,
+            )
+          else -> {
+            val plan = pickedPlans[cursor]
+            pm.environment.currentStep = plan.step
+            listOf(
+              runStep(
+                plan,
+                iterationByPath.getOrDefault(plan.step.path, 0),
+                bypassLedger,
+                reports,
+                stepPlans.size,
+                shadowedPaths,
+                kick,
+                moshiReVoman,
+                regexReplacer,
+                pm,
+                sandbox,
+              )
+            )
+          }
+        }
+      // The cursor after this wave; the first halt/stop/jump in the wave decides it. A wave's later
+      // members already ran (their HTTP was in flight together), so they are still recorded, but
+      // control flow follows the first member that diverged — "finish the wave, then stop".
+      var nextCursor: Int? = null
+      waveReports.forEachIndexed { offset, report ->
+        val position = cursor + offset
+        val step = pickedSteps[position]
+        reports = reports.append(report)
+        iterationByPath[step.path] = iterationByPath.getOrDefault(step.path, 0) + 1
+        executions++
 
-      val report =
-        runStep(
-          step,
-          iteration,
-          bypassLedger,
-          reports,
-          pmStepsFlattened.size,
-          shadowedPaths,
-          kick,
-          moshiReVoman,
-          regexReplacer,
-          pm,
-          sandbox,
-        )
-      reports += report
-      iterationByPath[step.path] = iteration + 1
-      executions++
-
-      // A ledger-skip records only its LedgerSkipped event (no StepFinished) and never halts — it
-      // is always successful and its `pm.rundown` is left at the prior value (preserve the legacy
-      // fold's early-return). A request-skip likewise diverges control flow (see below).
-      if (!report.isLedgerSkipped) emitStepFinished(step, report)
-      // A pre-request skip diverges control flow → the ledger's linear-order assumption is broken
-      // for every step after it.
-      if (report.isRequestSkipped) bypassLedger = true
-
-      // Budget guard (catches runaway backward-jump loops).
-      if (executions > budget) {
-        RevomanLog.event(StepEvent.LoopBudgetExceeded(step.path, budget))
-        RevomanLog.warn { "🛑 Loop budget exceeded ($budget executions); stopping the run." }
-        stopReason = StopReason.LOOP_BUDGET_EXCEEDED
-        break
-      }
+        // A ledger-skip records only its LedgerSkipped event (no StepFinished) and never halts —
+        // it is always successful and its `pm.rundown` is left at the prior value (preserve the
+        // legacy fold's early-return). A request-skip likewise diverges control flow (see below).
+        if (!report.isLedgerSkipped) emitStepFinished(step, report)
+        // A pre-request skip diverges control flow → the ledger's linear-order assumption is
+        // broken for every step after it.
+        if (report.isRequestSkipped) bypassLedger = true
+        if (nextCursor != null) return@forEachIndexed
 
-      // Failure halt: a ledger-skip can't fail (skip the check, matching the legacy early-return
-      // that also avoided reading the possibly-uninitialized `pm.rundown`). For every other report
-      // the halt predicate consults `pm.rundown` exactly as the legacy fold did.
-      if (!report.isLedgerSkipped && shouldHaltExecution(report, kick, pm.rundown)) {
-        stopReason = StopReason.HALTED_ON_FAILURE
-        break
-      }
+        // Budget guard (catches runaway backward-jump loops).
+        if (executions > budget) {
+          RevomanLog.event(StepEvent.LoopBudgetExceeded(step.path, budget))
+          RevomanLog.warn { "🛑 Loop budget exceeded ($budget executions); stopping the run." }
+          stopReason = StopReason.LOOP_BUDGET_EXCEEDED
+          nextCursor = pickedSteps.size
+          return@forEachIndexed
+        }
 
-      cursor =
-        when (val directive = directiveOf(report)) {
-          StepDirective.None -> cursor + 1
-          StepDirective.Stop -> {
-            RevomanLog.event(StepEvent.RunStopped(step.path, "setNextRequest(null)"))
-            RevomanLog.info { "🛑 setNextRequest(null) at ${step.path} — stopping the run." }
-            stopReason = StopReason.STOPPED_BY_DIRECTIVE
-            pickedSteps.size // out of indices -> loop exits
-          }
-          is StepDirective.Jump -> {
-            val target = resolveTarget(directive.target, pickedSteps, cursor)
-            if (target == null) {
-              RevomanLog.warn {
-                "⚠️ setNextRequest('${directive.target}') at ${step.path} matched no " +
-                  "picked step; continuing linearly."
+        // Failure halt: a ledger-skip can't fail (skip the check, matching the legacy early-return
+        // that also avoided reading the possibly-uninitialized `pm.rundown`). For every other
+        // report the halt predicate consults `pm.rundown` exactly as the legacy fold did.
+        if (!report.isLedgerSkipped && shouldHaltExecution(report, kick, pm.rundown)) {
+          stopReason = StopReason.HALTED_ON_FAILURE
+          nextCursor = pickedSteps.size
+          return@forEachIndexed
+        }
+
+        nextCursor =
+          when (val directive = directiveOf(report)) {
+            StepDirective.None -> null
+            StepDirective.Stop -> {
+              RevomanLog.event(StepEvent.RunStopped(step.path, "setNextRequest(null)"))
+              RevomanLog.info { "🛑 setNextRequest(null) at ${step.path} — stopping the run." }
+              stopReason = StopReason.STOPPED_BY_DIRECTIVE
+              pickedSteps.size // out of indices -> loop exits
+            }
+            is StepDirective.Jump -> {
+              val target = resolveTarget(directive.target, pickedSteps, position)
+              if (target == null) {
+                RevomanLog.warn {
+                  "⚠️ setNextRequest('${directive.target}') at ${step.path} matched no " +
+                    "picked step; continuing linearly."
+                }
+                null
+              } else {
+                bypassLedger = true
+                RevomanLog.event(StepEvent.Jumped(step.path, pickedSteps[target].path))
+                RevomanLog.info { "↪️ Jump ${step.path} -> ${pickedSteps[target].path}" }
+                target
               }
-              cursor + 1
-            } else {
-              bypassLedger = true
-              RevomanLog.event(StepEvent.Jumped(step.path, pickedSteps[target].path))
-              RevomanLog.info { "↪️ Jump ${step.path} -> ${pickedSteps[target].path}" }
-              target
             }
           }
-        }
+      }
+      cursor = nextCursor ?: (cursor + waveReports.size)
     }
     return SequenceResult(reports, stopReason)
   }
@@ -345,12 +654,11 @@ object ReVoman {
    * [shadowedPaths]/warn-and-run consultation) is skipped entirely and the step always dispatches
    * fresh — used once control flow has diverged from the linear order the ledger assumes.
    */
-  @OptIn(ExperimentalStdlibApi::class)
   private fun runStep(
-    step: Step,
+    plan: StepPlan,
     iteration: Int,
     bypassLedger: Boolean,
-    stepReportsSoFar: List<StepReport>,
+    stepReportsSoFar: StepReportLog,
     pmStepsCount: Int,
     shadowedPaths: Set<String>,
     kick: Kick,
@@ -358,7 +666,114 @@ object ReVoman {
     regexReplacer: RegexReplacer,
     pm: PostmanSDK,
     sandbox: PmSandbox,
-  ): StepReport {
+  ): StepReport =
+    completePrepared(
+      prepareStep(
+        plan,
+        iteration,
+        bypassLedger,
+        stepReportsSoFar,
+        pmStepsCount,
+        shadowedPaths,
+        kick,
+        moshiReVoman,
+        regexReplacer,
+        pm,
+        sandbox,
+      ),
+      kick,
+      moshiReVoman,
+      regexReplacer,
+      pm,
+      sandbox,
+    )
+
+  /** Drives a [PreparedStep] from wherever it stands to its final [StepReport]. */
+  private fun completePrepared(
+    prepared: PreparedStep,
+    kick: Kick,
+    moshiReVoman: MoshiReVoman,
+    regexReplacer: RegexReplacer,
+    pm: PostmanSDK,
+    sandbox: PmSandbox,
+  ): StepReport =
+    when (prepared) {
+      is PreparedStep.Skipped -> prepared.report
+      is PreparedStep.Failed ->
+        finishStep(prepared.report, prepared.exeTimings, prepared.iteration, pm)
+      is PreparedStep.AwaitingHooks ->
+        completePrepared(
+          runPreStepHooks(prepared, kick, moshiReVoman, regexReplacer, pm),
+          kick,
+          moshiReVoman,
+          regexReplacer,
+          pm,
+          sandbox,
+        )
+      is PreparedStep.Ready -> {
+        // The next serial step reads what this one leaves in `pm`, so the run waits for the
+        // response either way; `asyncHttp` pays off only for a wave's calls in flight together
+        val httpResult =
+          if (kick.asyncHttp()) fireStepAsync(prepared, kick, moshiReVoman).join()
+          else fireStep(prepared, kick, moshiReVoman)
+        completeStep(prepared, httpResult, kick, moshiReVoman, pm, sandbox)
+      }
+    }
+
+  /** Where a step stands once [prepareStep], and then [runPreStepHooks], have run. */
+  private sealed interface PreparedStep {
+    /** Ledger-skipped or request-skipped: the report is final as-is. */
+    data class Skipped(val report: StepReport) : PreparedStep
+
+    /** Failed before reaching HTTP (pre-req JS, unmarshall, pre-hook). */
+    data class Failed(
+      val report: StepReport,
+      val iteration: Int,
+      val exeTimings: MutableMap<ExeType, Duration>,
+    ) : PreparedStep
+
+    /** Request unmarshalled; the [hooks] picking it are yet to run. */
+    data class AwaitingHooks(
+      val step: Step,
+      val iteration: Int,
+      val plan: StepPlan,
+      val stepReport: StepReport,
+      val requestInfo: TxnInfo<Request>,
+      val hooks: List<PreStepHook>,
+      val exeTimings: MutableMap<ExeType, Duration>,
+    ) : PreparedStep
+
+    /** Fully resolved and ready to dispatch [httpRequest]. */
+    data class Ready(
+      val step: Step,
+      val iteration: Int,
+      val plan: StepPlan,
+      val stepReport: StepReport,
+      val httpRequest: Request,
+      val exeTimings: MutableMap<ExeType, Duration>,
+    ) : PreparedStep
+  }
+
+  /**
+   * The first pre-HTTP part of [runStep]: ledger warm-path → pre-req JS → unmarshall → picking the
+   * PreStepHooks, which [runPreStepHooks] then runs. Touches the shared [pm]/[sandbox], so it only
+   * ever runs on the sequencer thread.
+   */
+  @OptIn(ExperimentalStdlibApi::class)
+  private fun prepareStep(
+    plan: StepPlan,
+    iteration: Int,
+    bypassLedger: Boolean,
+    stepReportsSoFar: StepReportLog,
+    pmStepsCount: Int,
+    shadowedPaths: Set<String>,
+    kick: Kick,
+    moshiReVoman: MoshiReVoman,
+    regexReplacer: RegexReplacer,
+    pm: PostmanSDK,
+    sandbox: PmSandbox,
+  ): PreparedStep {
+    val step = plan.step
     // Reset per-step capture each execution so a looped step doesn't inherit prior iteration's
     // state.
     // No-op on first run (the maps hold no entry for this step yet).
@@ -371,7 +786,8 @@ object ReVoman {
     if (
       !bypassLedger &&
         step.path !in shadowedPaths &&
-        ledgerSkipDecision(step, ledger, envKeys, kick.ledgerOptOutSteps())
+        !plan.optsOutOfLedger &&
+        ledgerSkipDecision(step, ledger, envKeys)
     ) {
       val skipEntry = entry!!
       RevomanLog.info { "***** Ledger-skip Step (reusing ${skipEntry.produces}): $step *****" }
@@ -391,7 +807,9 @@ object ReVoman {
           }
         }
       }
-      return StepReport.ledgerSkipped(step, skipEntry.produces, pm.environment, skipEntry.consumed)
+      return PreparedStep.Skipped(
+        StepReport.ledgerSkipped(step, skipEntry.produces, pm.environment, skipEntry.consumed)
+      )
     }
     if (
       !bypassLedger &&
@@ -417,7 +835,7 @@ object ReVoman {
         requestInfo =
           Right(
             TxnInfo(
-              httpMsg = itemWithRegex.request.toHttpRequest(null),
+              httpMsg = plan.rawHttpRequest,
               moshiReVoman = moshiReVoman,
             )
           ),
@@ -425,16 +843,8 @@ object ReVoman {
       )
     pm.info = Info(step.name)
     pm.currentStepReport = preStepReport
-    pm.rundown =
-      Rundown(
-        stepReportsSoFar + preStepReport,
-        pm.environment,
-        kick.haltOnFailureOfTypeExcept(),
-        pmStepsCount,
-        collectionVariables = pm.collectionVariables,
-        globals = pm.globals,
-      )
-    pm.environment.putAll(regexReplacer.replaceVariablesInEnv(pm))
+    pm.rundown = progressRundown(stepReportsSoFar, preStepReport, pmStepsCount, kick, pm)
+    regexReplacer.reResolveEnv(pm)
     // --------### PRE-REQ-JS ###--------
     // Run pre-req JS first, OUTSIDE the chain: it records `pm.execution.skipRequest()` onto the
     // SDK.
@@ -443,95 +853,347 @@ object ReVoman {
     // post-res/polling — emit a successful `requestSkipped` report (no request/response, no env).
     val preReqResult =
       timed(step, exeTimings, PRE_REQ_JS) {
-        executePreReqJS(step, itemWithRegex, preStepReport, pm, sandbox)
+        executePreReqJS(
+          step,
+          itemWithRegex,
+          preStepReport,
+          pm,
+          sandbox,
+          plan.preRequestScript,
+          kick.scriptTimeout(),
+          kick.insecureHttp(),
+        )
       }
     if (preReqResult.isRight() && pm.skipRequestFor(step)) {
       RevomanLog.event(StepEvent.RequestSkipped(step.path))
       RevomanLog.info { "⏭️ skipRequest() at ${step.path} — skipping HTTP dispatch." }
-      return StepReport.requestSkipped(step, pm.environment, iteration)
+      return PreparedStep.Skipped(StepReport.requestSkipped(step, pm.environment, iteration))
     }
     return preReqResult
       .mapLeft { preStepReport.copy(requestInfo = left(it)) }
       .flatMap { // --------### UNMARSHALL-REQUEST ###--------
         timed(step, exeTimings, UNMARSHALL_REQUEST) {
             val pmRequest =
-              regexReplacer.replaceVariablesInRequestRecursively(itemWithRegex.request, pm)
+              if (plan.hasPlaceholders) {
+                regexReplacer.replaceVariablesInRequestRecursively(itemWithRegex.request, pm)
+              } else {
+                itemWithRegex.request
+              }
             unmarshallRequest(step, pmRequest, kick, moshiReVoman, pm.rundown)
           }
           .mapLeft { preStepReport.copy(requestInfo = left(it)) }
       }
-      .flatMap { requestInfo: TxnInfo<Request> -> // --------### PRE-HOOKS ###--------
-        timed(step, exeTimings, PRE_STEP_HOOK) {
-            preStepHookExe(step, kick, requestInfo, pm.rundown)
-          }
-          ?.let {
-            Left(
-              preStepReport.copy(
-                requestInfo = Right(requestInfo).toVavr(),
-                preStepHookFailure = it,
-              )
-            )
-          } ?: Right(preStepReport.copy(requestInfo = Right(requestInfo).toVavr()))
+      .fold(
+        { PreparedStep.Failed(it, iteration, exeTimings) },
+        { requestInfo: TxnInfo<Request> ->
+          PreparedStep.AwaitingHooks(
+            step,
+            iteration,
+            plan,
+            preStepReport.copy(requestInfo = Right(requestInfo).toVavr()),
+            requestInfo,
+            pickedPreStepHooks(step, kick, requestInfo, pm.rundown),
+            exeTimings,
+          )
+        },
+      )
+  }
+
+  /**
+   * The rest of the pre-HTTP part of [runStep]: pre-hooks → final variable replacement. Like
+   * [prepareStep], it only ever runs on the sequencer thread.
+   */
+  private fun runPreStepHooks(
+    awaiting: PreparedStep.AwaitingHooks,
+    kick: Kick,
+    moshiReVoman: MoshiReVoman,
+    regexReplacer: RegexReplacer,
+    pm: PostmanSDK,
+  ): PreparedStep { // --------### PRE-HOOKS ###--------
+    val (step, iteration, plan, sr, requestInfo, hooks, exeTimings) = awaiting
+    val failure =
+      timed(step, exeTimings, PRE_STEP_HOOK) {
+        preStepHookExe(step, kick, requestInfo, pm.rundown, hooks)
       }
-      .flatMap { sr: StepReport -> // --------### HTTP-REQUEST ###--------
-        pm.syncProgress(sr)
-        // * NOTE 15 Mar 2025 gopala.akshintala: Replace again to accommodate variables set by
-        // PRE-REQ-JS
-        val item = regexReplacer.replaceVariablesInPmItem(itemWithRegex, pm)
-        val httpRequest = item.request.toHttpRequest(moshiReVoman)
-        timed(step, exeTimings, HTTP_REQUEST) {
-            fireHttpRequest(step, httpRequest, kick.insecureHttp(), moshiReVoman)
-          }
-          .mapLeft { sr.copy(requestInfo = Left(it).toVavr()) }
-          .map {
-            sr.copy(
-              requestInfo = sr.requestInfo?.map { txnInfo -> txnInfo.copy(httpMsg = httpRequest) },
-              responseInfo = Right(it).toVavr(),
-            )
-          }
+    if (failure != null) {
+      return PreparedStep.Failed(sr.copy(preStepHookFailure = failure), iteration, exeTimings)
+    }
+    pm.syncProgress(sr)
+    // * NOTE 15 Mar 2025 gopala.akshintala: Replace again to accommodate variables set by
+    // PRE-REQ-JS
+    val item =
+      if (plan.hasPlaceholders) regexReplacer.replaceVariablesInPmItem(step.rawPMStep, pm)
+      else step.rawPMStep
+    val httpRequest =
+      item.request.toHttpRequest(moshiReVoman).let {
+        if (kick.traceContext()) {
+          withTraceparent(it, traceparent(pm.traceId, step, iteration))
+        } else it
       }
-      .flatMap { sr: StepReport -> // --------### POST-RES-JS ###--------
-        pm.syncProgress(sr)
-        timed(step, exeTimings, POST_RES_JS) {
-            executePostResJS(step, itemWithRegex, sr, pm, sandbox)
-          }
-          .mapLeft { sr.copy(responseInfo = left(it)) }
-          .map { sr }
+    return PreparedStep.Ready(
+      step,
+      iteration,
+      plan,
+      sr.copy(traceparent = httpRequest.header(TRACEPARENT)),
+      httpRequest,
+      exeTimings,
+    )
+  }
+
+  /**
+   * The HTTP half of [runStep], over the blocking client. Touches neither `pm` nor the sandbox —
+   * only the step's own [PreparedStep.Ready.exeTimings] — so wave members may run it concurrently.
+   */
+  private fun fireStep(
+    ready: PreparedStep.Ready,
+    kick: Kick,
+    moshiReVoman: MoshiReVoman,
+  ): arrow.core.Either<StepReport, StepReport> { // --------### HTTP-REQUEST ###--------
+    val (step, _, _, _, httpRequest, exeTimings) = ready
+    val transport = kick.httpTransport()
+    val poolStats = pooledHttpClient(kick.insecureHttp(), transport).statsFor(httpRequest)
+    val timing = HttpTimingRecorder()
+    return timed(step, exeTimings, HTTP_REQUEST) {
+        fireHttpRequest(step, httpRequest, kick.insecureHttp(), moshiReVoman, transport, timing)
       }
-      .flatMap { sr: StepReport -> // ---### UNMARSHALL RESPONSE ###---
-        timed(step, exeTimings, UNMARSHALL_RESPONSE) {
-            unmarshallResponse(kick, moshiReVoman, sr, pm.rundown)
-          }
-          .mapLeft { sr.copy(responseInfo = Left(it).toVavr()) }
-          .map { sr.copy(responseInfo = Right(it).toVavr()) }
+      .let { withHttpResult(ready, it, kick) }
+      .map { it.copy(httpPoolStats = poolStats, httpTiming = timing.toTiming()) }
+      .mapLeft { it.copy(httpPoolStats = poolStats, httpTiming = timing.toTiming()) }
+  }
+
+  /**
+   * [fireStep] over the non-blocking client ([Kick.asyncHttp]): returns as soon as the request is
+   * sent. The step's `HTTP_REQUEST` timing and the phases the client exposes are recorded when
+   * the response arrives, before the future completes, so they're in place once anyone joins it.
+   */
+  private fun fireStepAsync(
+    ready: PreparedStep.Ready,
+    kick: Kick,
+    moshiReVoman: MoshiReVoman,
+  ): CompletableFuture<arrow.core.Either<StepReport, StepReport>> {
+    val (step, _, _, _, httpRequest, exeTimings) = ready
+    val started = System.nanoTime()
+    val http2 = kick.httpTransport().http2
+    val timing = AsyncHttpTimingRecorder()
+    return fireHttpRequestAsync(step, httpRequest, kick.insecureHttp(), moshiReVoman, http2, timing)
+      .thenApply { httpResult ->
+        exeTimings[HTTP_REQUEST] = Duration.ofNanos(System.nanoTime() - started)
+        withHttpResult(ready, httpResult, kick)
+          .map { it.copy(httpTiming = timing.toTiming()) }
+          .mapLeft { it.copy(httpTiming = timing.toTiming()) }
+      }
+  }
+
+  private fun withHttpResult(
+    ready: PreparedStep.Ready,
+    httpResult: arrow.core.Either<HttpRequestFailure, TxnInfo<Response>>,
+    kick: Kick,
+  ): arrow.core.Either<StepReport, StepReport> {
+    val sr = ready.stepReport
+    return httpResult
+      .mapLeft { sr.copy(requestInfo = Left(it).toVavr()) }
+      .map {
+        sr.copy(
+          requestInfo =
+            sr.requestInfo?.map { txnInfo -> txnInfo.copy(httpMsg = ready.httpRequest) },
+          responseInfo = Right(it).toVavr(),
+          serverTimings =
+            if (kick.traceContext()) parseServerTiming(it.httpMsg.headerValues(SERVER_TIMING))
+            else emptyList(),
+        )
+      }
+  }
+
+  /** The post-HTTP half of [runStep]: post-res JS → unmarshall response → post-hooks → polling. */
+  private fun completeStep(
+    ready: PreparedStep.Ready,
+    httpResult: arrow.core.Either<StepReport, StepReport>,
+    kick: Kick,
+    moshiReVoman: MoshiReVoman,
+    pm: PostmanSDK,
+    sandbox: PmSandbox,
+  ): StepReport {
+    val (step, iteration, plan, _, _, exeTimings) = ready
+    val report =
+      httpResult
+        .flatMap { sr: StepReport -> // --------### POST-RES-JS ###--------
+          pm.syncProgress(sr)
+          timed(step, exeTimings, POST_RES_JS) {
+              executePostResJS(
+                step,
+                step.rawPMStep,
+                sr,
+                pm,
+                sandbox,
+                plan.testScript,
+                plan.nativeTestScript,
+                kick.scriptTimeout(),
+                kick.insecureHttp(),
+              )
+            }
+            .mapLeft { sr.copy(responseInfo = left(it)) }
+            .map { sr }
+        }
+        .flatMap { sr: StepReport -> // ---### UNMARSHALL RESPONSE ###---
+          timed(step, exeTimings, UNMARSHALL_RESPONSE) {
+              unmarshallResponse(kick, moshiReVoman, sr, pm.rundown)
+            }
+            .mapLeft { sr.copy(responseInfo = Left(it).toVavr()) }
+            .map { sr.copy(responseInfo = Right(it).toVavr()) }
+        }
+        .map { sr: StepReport -> // --------### POST-HOOKS ###--------
+          pm.syncProgress(sr)
+          val postHookFailure =
+            timed(step, exeTimings, POST_STEP_HOOK) { postStepHookExe(kick, sr, pm.rundown) }
+          sr.copy(postStepHookFailure = postHookFailure)
+        }
+        .flatMap { sr: StepReport -> // --------### POLLING ###--------
+          timed(step, exeTimings, POLLING) {
+              executePolling(kick.pollingConfig(), sr, pm.rundown, pm, kick.insecureHttp())
+            }
+            .mapLeft { sr.copy(pollingFailure = it) }
+            .map { pollingReport -> pollingReport?.let { sr.copy(pollingReport = it) } ?: sr }
+        }
+        .merge()
+    return finishStep(report, exeTimings, iteration, pm)
+  }
+
+  /** Stamps the per-step capture (timings, env snapshot, produced/consumed, directives). */
+  private fun finishStep(
+    report: StepReport,
+    exeTimings: Map<ExeType, Duration>,
+    iteration: Int,
+    pm: PostmanSDK,
+  ): StepReport {
+    val step = report.step
+    return report.copy(
+      exeTimings = exeTimings,
+      pmEnvSnapshot = pm.environment.o1Snapshot(),
+      envVars =
+        StepEnvVars(
+          produced = pm.environment.producedKeysFor(step),
+          consumed = pm.environment.consumedKeysFor(step),
+        ),
+      pmTestAssertions = pm.pmTestAssertionsFor(step),
+      nextRequest = pm.nextRequestFor(step),
+      nextRequestSet = pm.nextRequestSetFor(step),
+      iteration = iteration,
+      sandboxProfiles = pm.sandboxProfilesFor(step),
+    )
+  }
+
+  private fun progressRundown(
+    stepReportsSoFar: StepReportLog,
+    current: StepReport,
+    pmStepsCount: Int,
+    kick: Kick,
+    pm: PostmanSDK,
+  ): Rundown =
+    Rundown(
+        mutableEnv = pm.environment,
+        haltOnFailureOfTypeExcept = kick.haltOnFailureOfTypeExcept(),
+        providedStepsToExecuteCount = pmStepsCount,
+        collectionVariables = pm.collectionVariables,
+        globals = pm.globals,
+      )
+      .withStepReportLog(stepReportsSoFar.append(current))
+
+  /**
+   * Runs a wave of mutually independent steps (see [StepGraph]): prepares them serially in
+   * declaration order, puts their HTTP calls in flight together, then completes them serially in
+   * declaration order. Before each completion the shared SDK state (`currentStep`, `info`,
+   * `rundown`) is re-seeded to that step, so post-res scripts, hooks and the produced/consumed
+   * capture see exactly what they would in a serial run — minus the not-yet-completed wave peers,
+   * which by construction they don't depend on.
+   *
+   * PreStepHooks are host code that may read any earlier step's outcome, so they never run ahead of
+   * one: the wave ends at the first later member a PreStepHook picks. That member's hooks run once
+   * every earlier member has completed and passed the halt check, and its HTTP call goes out alone.
+   */
+  private fun runWave(
+    wave: List<Pair<StepPlan, Int>>, // (plan, iteration)
+    stepReportsSoFar: StepReportLog,
+    pmStepsCount: Int,
+    shadowedPaths: Set<String>,
+    kick: Kick,
+    moshiReVoman: MoshiReVoman,
+    regexReplacer: RegexReplacer,
+    pm: PostmanSDK,
+    sandbox: PmSandbox,
+  ): List<StepReport> {
+    val prepared = mutableListOf<PreparedStep>()
+    var awaitingEarlierMembers: PreparedStep.AwaitingHooks? = null
+    for ((plan, iteration) in wave) {
+      pm.environment.currentStep = plan.step
+      val preparedStep =
+        prepareStep(
+          plan,
+          iteration,
+          false,
+          stepReportsSoFar,
+          pmStepsCount,
+          shadowedPaths,
+          kick,
+          moshiReVoman,
+          regexReplacer,
+          pm,
+          sandbox,
+        )
+      if (preparedStep !is PreparedStep.AwaitingHooks) {
+        prepared += preparedStep
+      } else if (prepared.isEmpty() || preparedStep.hooks.isEmpty()) {
+        prepared += runPreStepHooks(preparedStep, kick, moshiReVoman, regexReplacer, pm)
+      } else {
+        awaitingEarlierMembers = preparedStep
+        break
       }
-      .map { sr: StepReport -> // --------### POST-HOOKS ###--------
-        pm.syncProgress(sr)
-        val postHookFailure =
-          timed(step, exeTimings, POST_STEP_HOOK) { postStepHookExe(kick, sr, pm.rundown) }
-        sr.copy(postStepHookFailure = postHookFailure)
+    }
+    val readies = prepared.filterIsInstance<PreparedStep.Ready>()
+    RevomanLog.debug { "⇉ Wave of ${wave.size} steps, ${readies.size} HTTP calls in flight" }
+    // Wave width is already bounded by `stepConcurrency`, so a thread per in-flight call is the
+    // bound; the executor is closed (joined) before any completion touches the shared SDK. The
+    // non-blocking client needs no threads: every call is sent from here, then all are joined.
+    val httpResults =
+      if (kick.asyncHttp()) {
+        readies.map { fireStepAsync(it, kick, moshiReVoman) }.map { it.join() }.iterator()
+      } else {
+        Executors.newVirtualThreadPerTaskExecutor()
+          .use { executor ->
+            readies
+              .map { ready -> executor.submit(Callable { fireStep(ready, kick, moshiReVoman) }) }
+              .map { it.get() }
+          }
+          .iterator()
       }
-      .flatMap { sr: StepReport -> // --------### POLLING ###--------
-        timed(step, exeTimings, POLLING) {
-            executePolling(kick.pollingConfig(), sr, pm.rundown, pm, kick.insecureHttp())
+    var soFar = stepReportsSoFar
+    val completed =
+      prepared.map { preparedStep ->
+        when (preparedStep) {
+          is PreparedStep.Skipped -> preparedStep.report
+          is PreparedStep.Failed -> {
+            pm.environment.currentStep = preparedStep.report.step
+            finishStep(preparedStep.report, preparedStep.exeTimings, preparedStep.iteration, pm)
+          }
+          is PreparedStep.Ready -> {
+            pm.environment.currentStep = preparedStep.step
+            pm.info = Info(preparedStep.step.name)
+            pm.currentStepReport = preparedStep.stepReport
+            pm.rundown = progressRundown(soFar, preparedStep.stepReport, pmStepsCount, kick, pm)
+            completeStep(preparedStep, httpResults.next(), kick, moshiReVoman, pm, sandbox)
           }
-          .mapLeft { sr.copy(pollingFailure = it) }
-          .map { pollingReport -> pollingReport?.let { sr.copy(pollingReport = it) } ?: sr }
+          is PreparedStep.AwaitingHooks -> error("${preparedStep.step} fired before its hooks ran")
+        }.also { soFar = soFar.append(it) }
       }
-      .merge()
-      .copy(
-        exeTimings = exeTimings,
-        pmEnvSnapshot = pm.environment.o1Snapshot(),
-        envVars =
-          StepEnvVars(
-            produced = pm.environment.producedKeysFor(step),
-            consumed = pm.environment.consumedKeysFor(step),
-          ),
-        pmTestAssertions = pm.pmTestAssertionsFor(step),
-        nextRequest = pm.nextRequestFor(step),
-        nextRequestSet = pm.nextRequestSetFor(step),
-        iteration = iteration,
-      )
+    val awaiting = awaitingEarlierMembers ?: return completed
+    // The sequencer stops at a halting member anyway; a member it would never reach runs no hooks.
+    if (completed.any { !it.isSuccessful && shouldHaltExecution(it, kick, pm.rundown) }) {
+      return completed
+    }
+    pm.environment.currentStep = awaiting.step
+    pm.info = Info(awaiting.step.name)
+    pm.currentStepReport = awaiting.stepReport
+    pm.rundown = progressRundown(soFar, awaiting.stepReport, pmStepsCount, kick, pm)
+    return completed + completePrepared(awaiting, kick, moshiReVoman, regexReplacer, pm, sandbox)
   }
 
   /** Emits the [StepEvent.StepFinished] boundary event for a finished step's [report]. */
@@ -568,6 +1230,11 @@ object ReVoman {
         method = coordinates?.first,
         host = coordinates?.second,
         requestPath = coordinates?.third,
+        sandboxProfiles = report.sandboxProfiles,
+        httpPoolStats = report.httpPoolStats,
+        httpTiming = report.httpTiming,
+        httpMs = report.exeTimings[HTTP_REQUEST]?.toMillis(),
+        serverTimings = report.serverTimings,
       )
     )
   }
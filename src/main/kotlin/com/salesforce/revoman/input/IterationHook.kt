@@ -0,0 +1,19 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.input
+
+import com.salesforce.revoman.output.Rundown
+
+/**
+ * Receives each row's [Rundown] from `ReVoman.revUpIterations`. [iteration] is the 0-based row
+ * number in the data file; rows finish out of order when more than one worker runs them.
+ */
+fun interface IterationHook {
+  @Throws(Throwable::class)
+  fun accept(iteration: Long, row: Map<String, Any?>, rundown: Rundown)
+}
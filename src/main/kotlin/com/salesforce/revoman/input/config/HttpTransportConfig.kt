@@ -0,0 +1,102 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.input.config
+
+import java.time.Duration
+
+/**
+ * How `Kick.httpTransport` connects to servers. Runs with equal configs share one pooled client per
+ * TLS variant, JVM-wide, so concurrent kicks against one host lease from one pool.
+ * - [maxConnectionsPerRoute]/[maxConnectionsTotal]: the pool's caps. A request over them waits for
+ *   a lease; `HttpPoolStats.pending` shows how many do.
+ * - [connectionTimeToLive]: how long a pooled connection may be reused at all; null for no limit.
+ * - [keepAlive]: how long an idle connection is kept; null to follow the server's `Keep-Alive`.
+ * - [http2]: negotiate HTTP/2 and multiplex requests to a host over one connection. Only the
+ *   non-blocking transport (`Kick.asyncHttp`) speaks HTTP/2.
+ * - [socketSendBufferBytes]/[socketReceiveBufferBytes]: socket buffer sizes; 0 keeps the OS's.
+ *
+ * Pool caps, lifetimes and buffers apply to the blocking transport; the JDK client behind
+ * `asyncHttp` sizes its own pool.
+ */
+@ExposedCopyVisibility
+data class HttpTransportConfig
+internal constructor(
+  @JvmField val maxConnectionsPerRoute: Int = DEFAULT_MAX_CONNECTIONS_PER_ROUTE,
+  @JvmField val maxConnectionsTotal: Int = DEFAULT_MAX_CONNECTIONS_TOTAL,
+  @JvmField val connectionTimeToLive: Duration? = null,
+  @JvmField val keepAlive: Duration? = null,
+  @JvmField val http2: Boolean = false,
+  @JvmField val socketSendBufferBytes: Int = 0,
+  @JvmField val socketReceiveBufferBytes: Int = 0,
+) {
+  companion object {
+    // Sized for CONCURRENT runs: Apache's default of 5 per route would quietly serialize them
+    const val DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 256
+    const val DEFAULT_MAX_CONNECTIONS_TOTAL = 1024
+
+    @JvmField val DEFAULT: HttpTransportConfig = HttpTransportConfig()
+
+    @JvmStatic fun transport(): HttpTransportConfigBuilder = HttpTransportConfigBuilder()
+  }
+}
+
+class HttpTransportConfigBuilder internal constructor() {
+  private var maxConnectionsPerRoute = HttpTransportConfig.DEFAULT_MAX_CONNECTIONS_PER_ROUTE
+  private var maxConnectionsTotal = HttpTransportConfig.DEFAULT_MAX_CONNECTIONS_TOTAL
+  private var connectionTimeToLive: Duration? = null
+  private var keepAlive: Duration? = null
+  private var http2 = false
+  private var socketSendBufferBytes = 0
+  private var socketReceiveBufferBytes = 0
+
+  fun maxConnectionsPerRoute(max: Int): HttpTransportConfigBuilder = apply {
+    require(max >= 1) { "Max connections per route must be >= 1, got: $max" }
+    maxConnectionsPerRoute = max
+  }
+
+  fun maxConnectionsTotal(max: Int): HttpTransportConfigBuilder = apply {
+    require(max >= 1) { "Max connections in total must be >= 1, got: $max" }
+    maxConnectionsTotal = max
+  }
+
+  fun connectionTimeToLive(ttl: Duration): HttpTransportConfigBuilder = apply {
+    require(!ttl.isNegative && !ttl.isZero) { "Connection time-to-live must be positive: $ttl" }
+    connectionTimeToLive = ttl
+  }
+
+  fun keepAlive(keepAlive: Duration): HttpTransportConfigBuilder = apply {
+    require(!keepAlive.isNegative && !keepAlive.isZero) { "Keep-alive must be positive: $keepAlive" }
+    this.keepAlive = keepAlive
+  }
+
+  fun http2(http2: Boolean): HttpTransportConfigBuilder = apply { this.http2 = http2 }
+
+  fun socketBuffers(sendBytes: Int, receiveBytes: Int): HttpTransportConfigBuilder = apply {
+    require(sendBytes >= 0 && receiveBytes >= 0) {
+      "Socket buffer sizes must be >= 0, got: $sendBytes/$receiveBytes"
+    }
+    socketSendBufferBytes = sendBytes
+    socketReceiveBufferBytes = receiveBytes
+  }
+
+  /** Terminal operation — builds the [HttpTransportConfig] */
+  fun off(): HttpTransportConfig {
+    require(maxConnectionsPerRoute <= maxConnectionsTotal) {
+      "Max connections per route ($maxConnectionsPerRoute) exceeds the total ($maxConnectionsTotal)"
+    }
+    return HttpTransportConfig(
+      maxConnectionsPerRoute,
+      maxConnectionsTotal,
+      connectionTimeToLive,
+      keepAlive,
+      http2,
+      socketSendBufferBytes,
+      socketReceiveBufferBytes,
+    )
+  }
+}
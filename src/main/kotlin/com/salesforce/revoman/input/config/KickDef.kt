@@ -20,6 +20,7 @@ import com.squareup.moshi.JsonAdapter.Factory
 import io.vavr.control.Either
 import java.io.InputStream
 import java.lang.reflect.Type
+import java.time.Duration
 import java.util.AbstractMap.SimpleEntry
 import java.util.Collections.disjoint
 import org.immutables.value.Value
@@ -54,6 +55,83 @@ internal interface KickDef {
    */
   @Value.Default fun maxStepExecutionFactor(): Int = 10
 
+  /**
+   * Opt-in bounded parallelism for independent steps. At the default 1 the run is strictly
+   * serial (zero behavior change). Above 1, adjacent steps that don't depend on each other — per
+   * the [ledger] learned by a previous run, static `{{key}}`/script-key scans and
+   * [stepDependencies] — form a wave: their pre-request phases run serially in order, their HTTP
+   * calls are in flight together (at most `stepConcurrency` at once), and their post-response
+   * phases again run serially in declaration order. Steps touched by `setNextRequest`/
+   * `skipRequest` always run alone through the serial cursor. A wave ends at the first later step
+   * a PreStepHook picks: its hooks run only after the earlier members completed and passed the
+   * halt check, and its HTTP call goes out alone. Picks are evaluated as the step is prepared.
+   * With PostStepHooks, whose writes no scan can see, a step the [ledger] hasn't learned yet ends
+   * its wave.
+   */
+  @Value.Default fun stepConcurrency(): Int = 1
+
+  /**
+   * Declared dependencies for [stepConcurrency]: a step (matched like a `setNextRequest` target —
+   * name, display name or `folder<|||name` path) to the steps it must run after. Declaring a step
+   * also vouches for its scripts, so dynamic-key scope access no longer makes it run alone.
+   */
+  fun stepDependencies(): Map<String, Set<String>>
+
+  /**
+   * Env keys this kick READS from what earlier kicks threaded into the env — not keys satisfied by
+   * its own environment files or `dynamicEnvironment`. Used by `ReVoman.revUpConcurrently` to find
+   * kicks that can run side by side. `null` (the default) scans the kick's steps for `{{key}}`
+   * placeholders and literal-key script reads, plus what [ledger] saw them read; a kick fed by
+   * template streams, with Pre/PostStepHooks (whose reads no scan can see), or whose scripts read
+   * scopes by non-literal keys, is assumed to depend on every earlier kick.
+   */
+  fun consumedKeys(): Set<String>?
+
+  /**
+   * Env keys this kick WRITES for later kicks. `null` (the default) learns them from [ledger]; a
+   * kick with neither is assumed to be read by every later kick.
+   */
+  fun producedKeys(): Set<String>?
+
+  /**
+   * Postman-style iteration data for `ReVoman.revUpIterations`: a CSV file (header row, then one
+   * row per iteration, values as strings) or NDJSON file (`.ndjson`/`.jsonl`, one JSON object per
+   * line). Streamed row by row, each row overlaid on [dynamicEnvironment]. Ignored by `revUp`.
+   */
+  fun iterationDataPath(): String?
+
+  /** Workers `ReVoman.revUpIterations` runs rows on, each reusing its own warm sandbox. */
+  @Value.Default fun iterationConcurrency(): Int = 1
+
+  /**
+   * How many booted Postman sandboxes may be left idle JVM-wide once this run is done, for later
+   * runs to reuse instead of booting their own. `0` closes the run's sandbox (no pooling). Each
+   * idle sandbox keeps a GraalJS context alive until `ReVoman.shutdown()` or JVM exit.
+   */
+  @Value.Default fun sandboxPoolSize(): Int = DEFAULT_SANDBOX_POOL_SIZE
+
+  /**
+   * When any of the run's scripts needs the sandbox and no warm sandbox is at hand, boot one on a
+   * background thread as soon as the steps are loaded, so the boot overlaps env setup and
+   * script-less steps instead of stalling the first script. See also `ReVoman.prewarm`.
+   */
+  @Value.Default fun prewarmSandbox(): Boolean = false
+
+  /**
+   * Before the first step, connect to every host the run's step URLs resolve to from the starting
+   * environment, in parallel and alongside the sandbox boot, so no step's `HTTP_REQUEST` timing
+   * pays for DNS, TCP or TLS setup. Applies to the blocking transport, not [asyncHttp]. The time
+   * saved is on `Rundown.connectionWarmUp`.
+   */
+  @Value.Default fun prewarmConnections(): Boolean = false
+
+  /**
+   * Wall-clock budget for each pre-request and test script. A script still running when it runs
+   * out is stopped, and its step fails with a `ScriptLimitExceeded`. Each script also has a fixed
+   * budget of its own statements, which bounds its CPU time even when the clock can't help.
+   */
+  @Value.Default fun scriptTimeout(): Duration = DEFAULT_SCRIPT_TIMEOUT
+
   fun haltOnFailureOfTypeExcept(): Map<ExeType, PostTxnStepPick?>
 
   fun runOnlySteps(): List<ExeStepPick>
@@ -115,6 +193,30 @@ internal interface KickDef {
 
   @Value.Default fun insecureHttp(): Boolean = false
 
+  /**
+   * Send each step's request with the JDK's non-blocking HTTP client instead of the blocking Apache
+   * one. No thread waits on a call in flight, so a wave of concurrent steps ([stepConcurrency])
+   * needs no thread per call; a serial step still waits for its response before the next one runs.
+   * Like the Apache client, it follows no redirects and keeps no cookies, unless [insecureHttp] is
+   * set, in which case both do. The JDK client hides its pool and connection setup, so
+   * `StepReport.httpPoolStats` is null, `httpTiming` has only `timeToFirstByte` and `download`, and
+   * [prewarmConnections] does nothing.
+   */
+  @Value.Default fun asyncHttp(): Boolean = false
+
+  /**
+   * Pool caps, connection lifetimes, HTTP/2 and socket buffers for step requests. Kicks with equal
+   * configs share one pool JVM-wide; see [HttpTransportConfig] and `ReVoman.httpPoolStats`.
+   */
+  @Value.Default fun httpTransport(): HttpTransportConfig = HttpTransportConfig.DEFAULT
+
+  /**
+   * Add a W3C `traceparent` to each step's request — one trace per run, one span per step — unless
+   * the collection sets its own, and parse each response's `Server-Timing` into the StepReport, so
+   * a slow step can be split into the server's time and the network's or client's.
+   */
+  @Value.Default fun traceContext(): Boolean = false
+
   @Value.Check
   fun validateConfig() {
     require(!haltOnAnyFailure() || (haltOnAnyFailure() && haltOnFailureOfTypeExcept().isEmpty())) {
@@ -126,9 +228,24 @@ internal interface KickDef {
     require(maxStepExecutionFactor() >= 1) {
       "`maxStepExecutionFactor` must be >= 1, was ${maxStepExecutionFactor()}"
     }
+    require(stepConcurrency() >= 1) { "`stepConcurrency` must be >= 1, was ${stepConcurrency()}" }
+    require(iterationConcurrency() >= 1) {
+      "`iterationConcurrency` must be >= 1, was ${iterationConcurrency()}"
+    }
+    require(sandboxPoolSize() >= 0) { "`sandboxPoolSize` must be >= 0, was ${sandboxPoolSize()}" }
+    require(!scriptTimeout().isNegative && !scriptTimeout().isZero) {
+      "`scriptTimeout` must be strictly positive, was ${scriptTimeout()}"
+    }
+    require(!httpTransport().http2 || asyncHttp()) {
+      "`httpTransport` with HTTP/2 needs `asyncHttp`: the blocking client speaks only HTTP/1.1"
+    }
   }
 
   companion object {
+    const val DEFAULT_SANDBOX_POOL_SIZE = 4
+
+    val DEFAULT_SCRIPT_TIMEOUT: Duration = Duration.ofMinutes(1)
+
     @Suppress("UNCHECKED_CAST")
     @JvmStatic
     @SafeVarargs
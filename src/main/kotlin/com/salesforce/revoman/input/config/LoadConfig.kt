@@ -0,0 +1,97 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.input.config
+
+/**
+ * A load profile for `ReVoman.loadTest`. By default it is closed-loop: [concurrency] workers each
+ * run the whole collection back to back until [iterations] measured iterations are done, after
+ * [warmUpIterations] unmeasured ones (JIT, sandbox, connection pool and server caches warm up
+ * there, not in the numbers). [iterationEnv] overlays each iteration's `dynamicEnvironment`, e.g.
+ * unique names per iteration for create-heavy collections.
+ *
+ * With [arrivalRatePerSecond] set it is open-model: iterations START at that constant rate whether
+ * or not earlier ones have finished, so a slowing server builds a queue instead of silently
+ * throttling the load. Up to [concurrency] iterations may then be in flight; an iteration due when
+ * that many already are is dropped and counted.
+ */
+@ExposedCopyVisibility
+data class LoadConfig
+internal constructor(
+  @JvmField val iterations: Int,
+  @JvmField val concurrency: Int = 1,
+  @JvmField val warmUpIterations: Int = 0,
+  @JvmField val iterationEnv: IterationEnv = IterationEnv { emptyMap() },
+  @JvmField val arrivalRatePerSecond: Double? = null,
+) {
+  @get:JvmName("isOpenModel")
+  val isOpenModel: Boolean
+    get() = arrivalRatePerSecond != null
+
+  companion object {
+    /** Default in-flight cap of an open-model run, unless [LoadConfigBuilder.concurrency] is set */
+    const val DEFAULT_OPEN_MODEL_MAX_IN_FLIGHT = 1_000
+
+    @JvmStatic fun iterations(iterations: Int): LoadConfigBuilder = LoadConfigBuilder(iterations)
+  }
+}
+
+/**
+ * Per-iteration env overlay. [iteration] is 0-based and counts warm-up iterations first, so every
+ * iteration of a load run — measured or not — gets a distinct value.
+ */
+fun interface IterationEnv {
+  fun forIteration(iteration: Int): Map<String, Any?>
+}
+
+class LoadConfigBuilder internal constructor(private val iterations: Int) {
+  private var concurrency: Int? = null
+  private var warmUpIterations: Int = 0
+  private var iterationEnv: IterationEnv = IterationEnv { emptyMap() }
+  private var arrivalRatePerSecond: Double? = null
+
+  init {
+    require(iterations >= 1) { "Load iterations must be >= 1, got: $iterations" }
+  }
+
+  /** Closed-loop: the number of workers. Open-model: the max iterations in flight. */
+  fun concurrency(concurrency: Int): LoadConfigBuilder = apply {
+    require(concurrency >= 1) { "Load concurrency must be >= 1, got: $concurrency" }
+    this.concurrency = concurrency
+  }
+
+  fun warmUp(warmUpIterations: Int): LoadConfigBuilder = apply {
+    require(warmUpIterations >= 0) { "Warm-up iterations must be >= 0, got: $warmUpIterations" }
+    this.warmUpIterations = warmUpIterations
+  }
+
+  fun seedEachIteration(iterationEnv: IterationEnv): LoadConfigBuilder = apply {
+    this.iterationEnv = iterationEnv
+  }
+
+  /**
+   * Switches to the open model: starts a new iteration every `1/perSecond` seconds, independent of
+   * completion. Warm-up iterations run on the same schedule, ahead of the measured ones.
+   */
+  fun arrivalRate(perSecond: Double): LoadConfigBuilder = apply {
+    require(perSecond > 0.0 && perSecond.isFinite()) {
+      "Arrival rate must be a positive number of iterations per second, got: $perSecond"
+    }
+    this.arrivalRatePerSecond = perSecond
+  }
+
+  /** Terminal operation — builds the [LoadConfig] */
+  fun off(): LoadConfig =
+    LoadConfig(
+      iterations,
+      concurrency
+        ?: if (arrivalRatePerSecond == null) 1 else LoadConfig.DEFAULT_OPEN_MODEL_MAX_IN_FLIGHT,
+      warmUpIterations,
+      iterationEnv,
+      arrivalRatePerSecond,
+    )
+}
@@ -0,0 +1,252 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.exe
+
+import arrow.core.Either
+import arrow.core.left
+import arrow.core.right
+import com.salesforce.revoman.internal.json.MoshiReVoman
+import com.salesforce.revoman.output.ExeType.HTTP_REQUEST
+import com.salesforce.revoman.output.report.HttpTiming
+import com.salesforce.revoman.output.report.Step
+import com.salesforce.revoman.output.report.TxnInfo
+import com.salesforce.revoman.output.report.failure.RequestFailure.HttpRequestFailure
+import io.github.oshai.kotlinlogging.KotlinLogging
+import java.net.CookieManager
+import java.net.Socket
+import java.net.URI
+import java.net.http.HttpClient
+import java.net.http.HttpRequest
+import java.net.http.HttpRequest.BodyPublishers
+import java.net.http.HttpResponse
+import java.net.http.HttpResponse.BodyHandler
+import java.net.http.HttpResponse.BodySubscribers
+import java.nio.ByteBuffer
+import java.security.SecureRandom
+import java.security.cert.X509Certificate
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import javax.net.ssl.SSLContext
+import javax.net.ssl.SSLEngine
+import javax.net.ssl.TrustManager
+import javax.net.ssl.X509ExtendedTrustManager
+import org.http4k.core.Body
+import org.http4k.core.Request
+import org.http4k.core.Response
+import org.http4k.core.Status
+
+/**
+ * The non-blocking counterpart of [fireHttpRequest]: sends [httpRequest] with the JDK's
+ * [HttpClient] and returns at once. No thread waits on the exchange — the client's selector thread
+ * drives every connection, so thousands of requests can be in flight from a few threads. The
+ * future never completes exceptionally; a failed exchange completes it with a Left, exactly as
+ * [fireHttpRequest] would return it. [timing], when given, receives the exchange's timestamps.
+ */
+@JvmSynthetic
+internal fun fireHttpRequestAsync(
+  currentStep: Step,
+  httpRequest: Request,
+  insecureHttp: Boolean,
+  moshiReVoman: MoshiReVoman,
+  http2: Boolean = false,
+  timing: AsyncHttpTimingRecorder? = null,
+): CompletableFuture<Either<HttpRequestFailure, TxnInfo<Response>>> {
+  logger.info { "$currentStep Executing $HTTP_REQUEST asynchronously" }
+  val client = prepareAsyncHttpClient(insecureHttp, http2)
+  return client.send(httpRequest, timing).handle { response, error ->
+    timing?.finished()
+    if (error == null) {
+      TxnInfo(httpMsg = response, moshiReVoman = moshiReVoman).right()
+    } else {
+      val cause = (error as? CompletionException)?.cause ?: error
+      logger.error(cause) { "‼️☠️ $currentStep Exception while executing $HTTP_REQUEST" }
+      HttpRequestFailure(cause, TxnInfo(httpMsg = httpRequest, moshiReVoman = moshiReVoman)).left()
+    }
+  }
+}
+
+/**
+ * An http4k-shaped front for a JDK [HttpClient]: takes a [Request] and completes with a
+ * [Response]. Like the Apache clients, it follows no redirects and keeps no cookies, except under
+ * `insecureHttp`, where both follow redirects and keep cookies. Headers the JDK client sets itself
+ * are accepted only with the values it would send (`Expect: 100-continue` turns on its own
+ * expect-continue); any other value fails the request rather than being dropped.
+ */
+internal class AsyncHttpClient(private val client: HttpClient) {
+  fun send(request: Request, timing: AsyncHttpTimingRecorder? = null): CompletableFuture<Response> =
+    try {
+      val bodyHandler =
+        BodyHandler<ByteArray> {
+          timing?.responseHead()
+          BodySubscribers.ofByteArray()
+        }
+      client.sendAsync(toJdk(request), bodyHandler).thenApply(::toHttp4k)
+    } catch (e: IllegalArgumentException) { // a request the JDK client refuses to build
+      CompletableFuture.failedFuture(e)
+    }
+
+  private fun toJdk(request: Request): HttpRequest {
+    // A duplicate, so reading it leaves the request's own buffer unread for the run log
+    val payload = request.body.payload.duplicate()
+    val body = ByteArray(payload.remaining()).also { payload.get(it) }
+    val uri = URI.create(request.uri.toString())
+    val builder =
+      HttpRequest.newBuilder(uri)
+        .method(
+          request.method.name,
+          if (body.isEmpty()) BodyPublishers.noBody() else BodyPublishers.ofByteArray(body),
+        )
+    request.headers.forEach { (name, value) ->
+      val header = name.lowercase()
+      val v = value.orEmpty().trim()
+      when {
+        header !in RESTRICTED_HEADERS -> builder.header(name, value.orEmpty())
+        header == "expect" && v.equals("100-continue", ignoreCase = true) ->
+          builder.expectContinue(true)
+        // The client sends these itself, with the same values
+        header == "host" && v.equals(uri.authority, ignoreCase = true) -> Unit
+        header == "content-length" && v == body.size.toString() -> Unit
+        header == "connection" && v.equals("keep-alive", ignoreCase = true) -> Unit
+        else ->
+          throw IllegalArgumentException(
+            "Header `$name: $value` can't be sent by `asyncHttp`'s client, which sets it itself"
+          )
+      }
+    }
+    return builder.build()
+  }
+
+  // The JDK client exposes no reason phrase (HTTP/2 has none), so use the standard one
+  private fun toHttp4k(response: HttpResponse<ByteArray>): Response =
+    Response(Status.fromCode(response.statusCode()) ?: Status(response.statusCode(), ""))
+      .headers(response.headers().map().flatMap { (name, values) -> values.map { name to it } })
+      .body(Body(ByteBuffer.wrap(response.body())))
+
+  private companion object {
+    // The JDK client sets these itself and rejects requests that carry them
+    val RESTRICTED_HEADERS = setOf("connection", "content-length", "expect", "host", "upgrade")
+  }
+}
+
+/**
+ * Timestamps one non-blocking exchange. The JDK client doesn't expose its connection setup or
+ * request write, so only when the response head and the end of the body arrived are observable:
+ * everything before the head counts as [HttpTiming.timeToFirstByte].
+ */
+internal class AsyncHttpTimingRecorder {
+  private val started = System.nanoTime()
+  @Volatile private var responseHead = NOT_YET
+  @Volatile private var finished = NOT_YET
+
+  fun responseHead() {
+    responseHead = System.nanoTime()
+  }
+
+  fun finished() {
+    finished = System.nanoTime()
+  }
+
+  /** The phases observed, or null when no response head arrived. */
+  fun toTiming(): HttpTiming? {
+    if (responseHead == NOT_YET) return null
+    return HttpTiming(
+      dnsLookup = Duration.ZERO,
+      connect = Duration.ZERO,
+      tlsHandshake = Duration.ZERO,
+      requestWrite = Duration.ZERO,
+      timeToFirstByte = Duration.ofNanos(responseHead - started),
+      download = Duration.ofNanos(finished.coerceAtLeast(responseHead) - responseHead),
+      connectionReused = false,
+    )
+  }
+
+  private companion object {
+    const val NOT_YET = -1L
+  }
+}
+
+// One JDK client per TLS variant and HTTP version, memoized for the life of the JVM like the
+// blocking ones. The client's own executor only runs completions; virtual threads keep a slow
+// callback from pinning a pooled platform thread.
+private val asyncHttpClients = ConcurrentHashMap<Pair<Boolean, Boolean>, AsyncHttpClient>()
+
+/**
+ * With [http2], the client offers HTTP/2 (ALPN over TLS, an upgrade over cleartext) and multiplexes
+ * a host's requests over one connection; servers that decline get HTTP/1.1.
+ */
+internal fun prepareAsyncHttpClient(
+  insecureHttp: Boolean,
+  http2: Boolean = false,
+): AsyncHttpClient =
+  asyncHttpClients.computeIfAbsent(insecureHttp to http2) { (insecure, h2) ->
+    AsyncHttpClient(
+      asyncClientBuilder(h2)
+        .apply {
+          // Mirror the insecure blocking client, which keeps Apache's defaults: it follows
+          // redirects and keeps cookies
+          if (insecure) {
+            sslContext(trustAllSslContext())
+            followRedirects(HttpClient.Redirect.NORMAL)
+            cookieHandler(CookieManager())
+          }
+        }
+        .build()
+    )
+  }
+
+private fun asyncClientBuilder(http2: Boolean): HttpClient.Builder =
+  HttpClient.newBuilder()
+    .version(if (http2) HttpClient.Version.HTTP_2 else HttpClient.Version.HTTP_1_1)
+    .followRedirects(HttpClient.Redirect.NEVER)
+    .executor(Executors.newVirtualThreadPerTaskExecutor())
+
+/**
+ * WARNING: Only for Testing. DO NOT USE IN PROD. Trusts every certificate and, like the blocking
+ * clients, skips host name verification: JSSE leaves that check to an extended trust manager.
+ */
+private fun trustAllSslContext(): SSLContext =
+  SSLContext.getInstance("TLS").apply {
+    val trustAll =
+      object : X509ExtendedTrustManager() {
+        override fun checkClientTrusted(chain: Array<out X509Certificate>?, authType: String?) {}
+
+        override fun checkServerTrusted(chain: Array<out X509Certificate>?, authType: String?) {}
+
+        override fun checkClientTrusted(
+          chain: Array<out X509Certificate>?,
+          authType: String?,
+          socket: Socket?,
+        ) {}
+
+        override fun checkServerTrusted(
+          chain: Array<out X509Certificate>?,
+          authType: String?,
+          socket: Socket?,
+        ) {}
+
+        override fun checkClientTrusted(
+          chain: Array<out X509Certificate>?,
+          authType: String?,
+          engine: SSLEngine?,
+        ) {}
+
+        override fun checkServerTrusted(
+          chain: Array<out X509Certificate>?,
+          authType: String?,
+          engine: SSLEngine?,
+        ) {}
+
+        override fun getAcceptedIssuers(): Array<X509Certificate> = emptyArray()
+      }
+    init(null, arrayOf<TrustManager>(trustAll), SecureRandom())
+  }
+
+private val logger = KotlinLogging.logger {}
@@ -0,0 +1,84 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.exe
+
+import com.salesforce.revoman.internal.log.RevomanLog
+import com.salesforce.revoman.internal.postman.PlaceholderTemplate
+import com.salesforce.revoman.output.report.ConnectionWarmUp
+import java.net.URI
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executors
+import org.apache.hc.core5.util.Timeout
+
+/**
+ * Connects [client]'s pool to every host the run's [rawUris] point at, all at once on virtual
+ * threads, so each host's first step finds a connection ready instead of paying for DNS, TCP and
+ * TLS itself. URIs are resolved against [environment] only — no dynamic variables, no ledger
+ * reads — and those still holding a placeholder (a host a script sets later) are left alone.
+ */
+@JvmSynthetic
+internal fun warmUpConnections(
+  rawUris: Collection<String>,
+  environment: Map<String, Any?>,
+  client: PooledHttpClient,
+  timeout: Timeout = WARM_UP_TIMEOUT,
+): ConnectionWarmUp {
+  val started = System.nanoTime()
+  val hosts = rawUris.mapNotNull { hostOf(it, environment) }.associateBy { it.authority }
+  val results =
+    Executors.newVirtualThreadPerTaskExecutor().use { executor ->
+      hosts.mapValues { (_, uri) ->
+        CompletableFuture.supplyAsync({ runCatching { client.warm(uri, timeout) } }, executor)
+      }
+    }
+  val outcomes = results.mapValues { (_, outcome) -> outcome.join() }
+  val warmUp =
+    ConnectionWarmUp(
+      warmed =
+        outcomes.entries
+          .mapNotNull { (host, outcome) -> outcome.getOrNull()?.let { host to it } }
+          .toMap(),
+      failed =
+        outcomes.entries
+          .mapNotNull { (host, outcome) ->
+            outcome.exceptionOrNull()?.let { host to (it.message ?: it.javaClass.simpleName) }
+          }
+          .toMap(),
+      elapsed = Duration.ofNanos(System.nanoTime() - started),
+    )
+  RevomanLog.info {
+    "Warmed ${warmUp.warmed.size} of ${hosts.size} hosts in ${warmUp.elapsed.toMillis()}ms, " +
+      "saving ${warmUp.handshakeTimeSaved.toMillis()}ms of connection setup" +
+      if (warmUp.failed.isEmpty()) "" else "; unreachable: ${warmUp.failed.keys}"
+  }
+  return warmUp
+}
+
+/**
+ * The scheme and `host:port` of [rawUri] once resolved against [environment], or null when it
+ * doesn't resolve to an http(s) URL.
+ */
+internal fun hostOf(rawUri: String, environment: Map<String, Any?>): URI? {
+  var resolved = rawUri
+  // An env value may itself hold placeholders (`baseUrl` = `https://{{host}}`)
+  repeat(MAX_RESOLUTION_DEPTH) {
+    if (!resolved.contains("{{")) return@repeat
+    resolved = PlaceholderTemplate.of(resolved).render { environment[it]?.toString() }
+  }
+  if (resolved.contains("{{")) return null
+  val uri = runCatching { URI.create(resolved.trim()) }.getOrNull() ?: return null
+  val scheme = uri.scheme?.lowercase()
+  if ((scheme != "http" && scheme != "https") || uri.host.isNullOrBlank()) return null
+  val port = if (uri.port != -1) uri.port else if (scheme == "https") 443 else 80
+  return URI(scheme, null, uri.host, port, null, null, null)
+}
+
+private const val MAX_RESOLUTION_DEPTH = 4
+
+private val WARM_UP_TIMEOUT: Timeout = Timeout.ofSeconds(10)
@@ -8,18 +8,34 @@
 package com.salesforce.revoman.internal.exe
 
 import arrow.core.Either
+import com.salesforce.revoman.input.config.HttpTransportConfig
 import com.salesforce.revoman.internal.json.MoshiReVoman
 import com.salesforce.revoman.output.ExeType.HTTP_REQUEST
 import com.salesforce.revoman.output.json.JsonPretty
+import com.salesforce.revoman.output.report.HttpPoolStats
 import com.salesforce.revoman.output.report.Step
 import com.salesforce.revoman.output.report.TxnInfo
 import com.salesforce.revoman.output.report.failure.RequestFailure.HttpRequestFailure
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient
+import java.net.URI
+import java.time.Duration
+import java.util.concurrent.ConcurrentHashMap
+import org.apache.hc.client5.http.HttpRoute
+import org.apache.hc.client5.http.config.ConnectionConfig
+import org.apache.hc.client5.http.config.RequestConfig
+import org.apache.hc.client5.http.cookie.StandardCookieSpec
 import org.apache.hc.client5.http.impl.classic.HttpClientBuilder
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder
+import org.apache.hc.client5.http.protocol.HttpClientContext
 import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder
+import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy
 import org.apache.hc.client5.http.ssl.NoopHostnameVerifier
+import org.apache.hc.client5.http.ssl.TlsSocketStrategy
+import org.apache.hc.core5.http.HttpHost
+import org.apache.hc.core5.http.io.SocketConfig
 import org.apache.hc.core5.ssl.SSLContextBuilder
+import org.apache.hc.core5.util.TimeValue
+import org.apache.hc.core5.util.Timeout
 import org.http4k.client.ApacheClient
 import org.http4k.core.HttpHandler
 import org.http4k.core.HttpMessage
@@ -32,11 +48,15 @@ internal fun fireHttpRequest(
   httpRequest: Request,
   insecureHttp: Boolean,
   moshiReVoman: MoshiReVoman,
+  transport: HttpTransportConfig = HttpTransportConfig.DEFAULT,
+  timing: HttpTimingRecorder = HttpTimingRecorder(),
 ): Either<HttpRequestFailure, TxnInfo<Response>> =
   runCatching(currentStep, HTTP_REQUEST) {
       // * NOTE gopala.akshintala 06/08/22: Shared client per TLS variant; auth is carried
       // per-Request
-      prepareHttpClient(insecureHttp)(httpRequest)
+      HttpTimingRecorder.recording(timing) {
+        pooledHttpClient(insecureHttp, transport).handler(httpRequest)
+      }
     }
     .mapLeft { HttpRequestFailure(it, TxnInfo(httpMsg = httpRequest, moshiReVoman = moshiReVoman)) }
     .map { TxnInfo(httpMsg = it, moshiReVoman = moshiReVoman) }
@@ -68,35 +88,142 @@ internal fun renderHttpMsg(httpMsg: HttpMessage): String {
 internal fun requestCoordinates(request: Request): Triple<String, String, String> =
   Triple(request.method.name, request.uri.authority, request.uri.path)
 
-// One http4k/Apache client per TLS variant, memoized for the life of the JVM. Auth is carried
-// per-Request (each Request builds its own Authorization header), so a single shared, pooled
-// client is safe across steps/runs — and avoids building + discarding a pooled client (and its
-// connection manager) on every request, which also fixes the per-run client leak.
-private val secureHttpClient: HttpHandler by lazy { ApacheClient() }
+// One http4k/Apache client per TLS variant and transport config, memoized for the life of the JVM.
+// Auth is carried per-Request (each Request builds its own Authorization header), so a single
+// shared, pooled client is safe across steps/runs — and avoids building + discarding a pooled
+// client (and its connection manager) on every request, which also fixes the per-run client leak.
+// Runs rarely use more than a couple of distinct configs, so the memo stays small.
+private val pooledHttpClients =
+  ConcurrentHashMap<Pair<Boolean, HttpTransportConfig>, PooledHttpClient>()
 
-private val insecureHttpClient: HttpHandler by lazy {
-  ApacheClient(client = insecureApacheHttpClient())
+/**
+ * A shared http4k [handler] with the Apache connection [pool] behind it, for its stats and warm-up.
+ * [idleKeepAlive] is how long a connection opened by [warm] is kept idle for a request to use.
+ */
+internal class PooledHttpClient(
+  val handler: HttpHandler,
+  private val pool: PoolingHttpClientConnectionManager,
+  private val idleKeepAlive: TimeValue,
+) {
+  /** The pool's state for every host it has connected to. */
+  fun stats(): List<HttpPoolStats> = pool.routes.map { route -> statsOf(route) }
+
+  /** The pool's state for [request]'s host, before it's sent; null for a host not yet connected. */
+  fun statsFor(request: Request): HttpPoolStats? {
+    val uri = request.uri
+    return pool.routes
+      .firstOrNull { route ->
+        route.targetHost.hostName.equals(uri.host, ignoreCase = true) &&
+          (uri.port == null || route.targetHost.port == uri.port)
+      }
+      ?.let(::statsOf)
+  }
+
+  /**
+   * Opens a connection to [uri]'s host — DNS, TCP and, for https, the TLS handshake — and hands it
+   * back to the pool idle, where the host's first request picks it up as if an earlier request had
+   * left it. Returns how long the setup took, or null if the pool already had a connection there.
+   */
+  fun warm(uri: URI, timeout: Timeout): Duration? {
+    val secure = uri.scheme.equals("https", ignoreCase = true)
+    val port = if (uri.port != -1) uri.port else if (secure) 443 else 80
+    // The route the client's own planner derives for a request to this host, so a request finds it
+    val route = HttpRoute(HttpHost(uri.scheme.lowercase(), uri.host, port), null, secure)
+    val started = System.nanoTime()
+    val endpoint = pool.lease(WARM_UP_LEASE_ID, route, timeout, null).get(timeout)
+    var keepAlive = TimeValue.ZERO_MILLISECONDS
+    try {
+      if (endpoint.isConnected) return null
+      pool.connect(endpoint, timeout, HttpClientContext.create())
+      keepAlive = idleKeepAlive
+      return Duration.ofNanos(System.nanoTime() - started)
+    } finally {
+      pool.release(endpoint, null, keepAlive)
+    }
+  }
+
+  private fun statsOf(route: HttpRoute): HttpPoolStats =
+    pool.getStats(route).let {
+      HttpPoolStats(route.targetHost.toHostString(), it.leased, it.pending, it.available, it.max)
+    }
 }
 
+internal fun pooledHttpClient(
+  insecureHttp: Boolean,
+  transport: HttpTransportConfig = HttpTransportConfig.DEFAULT,
+): PooledHttpClient =
+  pooledHttpClients.computeIfAbsent(insecureHttp to transport) { (insecure, config) ->
+    buildPooledHttpClient(insecure, config)
+  }
+
+/** Every memoized client's pool stats, JVM-wide. */
+internal fun allHttpPoolStats(): List<HttpPoolStats> =
+  pooledHttpClients.values.flatMap(PooledHttpClient::stats)
+
 internal fun prepareHttpClient(insecureHttp: Boolean): HttpHandler =
-  if (insecureHttp) insecureHttpClient else secureHttpClient
+  pooledHttpClient(insecureHttp).handler
 
-/** WARNING: Only for Testing. DO NOT USE IN PROD */
-private fun insecureApacheHttpClient(): CloseableHttpClient =
-  SSLContextBuilder()
-    .loadTrustMaterial(null) { _, _ -> true }
-    .build()
-    .let { sslContext ->
-      HttpClientBuilder.create()
-        .setConnectionManager(
-          PoolingHttpClientConnectionManagerBuilder.create()
-            .setTlsSocketStrategy(
-              ClientTlsStrategyBuilder.create()
-                .setSslContext(sslContext)
-                .setHostnameVerifier(NoopHostnameVerifier.INSTANCE)
-                .buildClassic()
-            )
-            .build()
+private fun buildPooledHttpClient(
+  insecureHttp: Boolean,
+  transport: HttpTransportConfig,
+): PooledHttpClient {
+  val pool =
+    PoolingHttpClientConnectionManagerBuilder.create()
+      .setMaxConnPerRoute(transport.maxConnectionsPerRoute)
+      .setMaxConnTotal(transport.maxConnectionsTotal)
+      .setDefaultConnectionConfig(
+        ConnectionConfig.custom()
+          .apply { transport.connectionTimeToLive?.let { setTimeToLive(it.toTimeValue()) } }
+          .build()
+      )
+      .setDefaultSocketConfig(
+        SocketConfig.custom()
+          .setSndBufSize(transport.socketSendBufferBytes)
+          .setRcvBufSize(transport.socketReceiveBufferBytes)
+          .build()
+      )
+      .setDnsResolver(HttpTimingRecorder.dnsResolver)
+      .setTlsSocketStrategy(
+        HttpTimingRecorder.tlsStrategy(
+          if (insecureHttp) trustAllTlsStrategy() else DefaultClientTlsStrategy.createDefault()
         )
-        .build()
-    }
+      )
+      .build()
+  val client =
+    HttpTimingRecorder.install(HttpClientBuilder.create())
+      .setConnectionManager(pool)
+      .apply {
+        // Mirror http4k's default ApacheClient: no redirect following, no cookie handling.
+        if (!insecureHttp) {
+          setDefaultRequestConfig(
+            RequestConfig.custom()
+              .setRedirectsEnabled(false)
+              .setCookieSpec(StandardCookieSpec.IGNORE)
+              .build()
+          )
+        }
+        transport.keepAlive?.let { keepAlive ->
+          setKeepAliveStrategy { _, _ -> keepAlive.toTimeValue() }
+        }
+      }
+      .build()
+  return PooledHttpClient(
+    ApacheClient(client = client),
+    pool,
+    transport.keepAlive?.toTimeValue() ?: DEFAULT_IDLE_KEEP_ALIVE,
+  )
+}
+
+private const val WARM_UP_LEASE_ID = "revoman-warm-up"
+
+// Apache's own keep-alive for a response that names none
+private val DEFAULT_IDLE_KEEP_ALIVE: TimeValue = TimeValue.ofMinutes(3)
+
+private fun Duration.toTimeValue(): TimeValue = TimeValue.ofMilliseconds(toMillis())
+
+/** WARNING: Only for Testing. DO NOT USE IN PROD */
+private fun trustAllTlsStrategy(): TlsSocketStrategy =
+  ClientTlsStrategyBuilder.create()
+    .setSslContext(SSLContextBuilder().loadTrustMaterial(null) { _, _ -> true }.build())
+    .setHostnameVerifier(NoopHostnameVerifier.INSTANCE)
+    .buildClassic()
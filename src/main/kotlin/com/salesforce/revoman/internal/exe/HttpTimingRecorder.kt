@@ -0,0 +1,165 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.exe
+
+import com.salesforce.revoman.output.report.HttpTiming
+import java.io.OutputStream
+import java.net.InetAddress
+import java.time.Duration
+import org.apache.hc.client5.http.DnsResolver
+import org.apache.hc.client5.http.SystemDefaultDnsResolver
+import org.apache.hc.client5.http.classic.ExecChainHandler
+import org.apache.hc.client5.http.impl.ChainElement
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder
+import org.apache.hc.client5.http.ssl.TlsSocketStrategy
+import org.apache.hc.core5.http.HttpConnection
+import org.apache.hc.core5.http.HttpRequest
+import org.apache.hc.core5.http.HttpResponse
+import org.apache.hc.core5.http.impl.DefaultConnectionReuseStrategy
+import org.apache.hc.core5.http.impl.Http1StreamListener
+import org.apache.hc.core5.http.impl.io.HttpRequestExecutor
+import org.apache.hc.core5.http.io.entity.HttpEntityWrapper
+
+/**
+ * Timestamps one blocking exchange phase by phase. The classic Apache client runs an exchange —
+ * DNS, connect, TLS, write, read — on the calling thread, so the hooks below find the exchange's
+ * recorder in a thread-local set around the call by [recording]. Calls made without one, like
+ * polling's or `pm.sendRequest`'s, aren't recorded.
+ */
+internal class HttpTimingRecorder {
+  private var dnsNanos = 0L
+  private var tlsNanos = 0L
+  private var connectStarted = NOT_YET
+  private var connected = NOT_YET
+  private var connectionReused = false
+  private var requestWritten = NOT_YET
+  private var responseHead = NOT_YET
+  private var finished = NOT_YET
+
+  /** The phases recorded, or null when the exchange never got as far as a connection. */
+  fun toTiming(): HttpTiming? {
+    if (connected == NOT_YET) return null
+    val setupNanos = connected - connectStarted
+    val written = requestWritten.orElse(finished)
+    val head = responseHead.orElse(finished)
+    return HttpTiming(
+      dnsLookup = Duration.ofNanos(dnsNanos),
+      connect = Duration.ofNanos((setupNanos - dnsNanos - tlsNanos).coerceAtLeast(0)),
+      tlsHandshake = Duration.ofNanos(tlsNanos),
+      requestWrite = Duration.ofNanos(written - connected),
+      timeToFirstByte = Duration.ofNanos(head - written),
+      download = Duration.ofNanos(finished - head),
+      connectionReused = connectionReused,
+    )
+  }
+
+  private fun Long.orElse(fallback: Long): Long = if (this == NOT_YET) fallback else this
+
+  companion object {
+    private const val NOT_YET = -1L
+
+    private val current = ThreadLocal<HttpTimingRecorder>()
+
+    /** Runs [exchange] with [recorder] receiving the hooks' timestamps. */
+    fun <T> recording(recorder: HttpTimingRecorder, exchange: () -> T): T {
+      current.set(recorder)
+      try {
+        return exchange()
+      } finally {
+        current.remove()
+        recorder.finished = System.nanoTime()
+      }
+    }
+
+    private inline fun <T> timed(record: HttpTimingRecorder.(Long) -> Unit, block: () -> T): T {
+      val recorder = current.get() ?: return block()
+      val started = System.nanoTime()
+      try {
+        return block()
+      } finally {
+        recorder.record(System.nanoTime() - started)
+      }
+    }
+
+    private fun stamp(record: HttpTimingRecorder.(Long) -> Unit) {
+      current.get()?.record(System.nanoTime())
+    }
+
+    /** Times host name lookups, resolving them as the client would on its own. */
+    val dnsResolver: DnsResolver =
+      object : DnsResolver {
+        override fun resolve(host: String): Array<InetAddress> =
+          timed({ dnsNanos += it }) { SystemDefaultDnsResolver.INSTANCE.resolve(host) }
+
+        override fun resolveCanonicalHostname(host: String): String =
+          SystemDefaultDnsResolver.INSTANCE.resolveCanonicalHostname(host)
+      }
+
+    /** Times [delegate]'s TLS handshakes. */
+    fun tlsStrategy(delegate: TlsSocketStrategy): TlsSocketStrategy =
+      TlsSocketStrategy { socket, target, port, attachment, context ->
+        timed({ tlsNanos += it }) { delegate.upgrade(socket, target, port, attachment, context) }
+      }
+
+    /**
+     * Marks when the client starts getting a connection and when it has one, and wraps the request
+     * body to mark when it's sent; and marks the response head through the request executor.
+     */
+    fun install(builder: HttpClientBuilder): HttpClientBuilder =
+      builder
+        .addExecInterceptorBefore(
+          ChainElement.CONNECT.name,
+          "revoman-timing-connect",
+          ExecChainHandler { request, scope, chain ->
+            current.get()?.apply {
+              connectStarted = System.nanoTime()
+              connectionReused = scope.execRuntime.isEndpointConnected
+            }
+            chain.proceed(request, scope)
+          },
+        )
+        .addExecInterceptorAfter(
+          ChainElement.CONNECT.name,
+          "revoman-timing-exchange",
+          ExecChainHandler { request, scope, chain ->
+            stamp { connected = it }
+            request.entity?.let { entity ->
+              request.entity =
+                object : HttpEntityWrapper(entity) {
+                  override fun writeTo(outStream: OutputStream) {
+                    super.writeTo(outStream)
+                    stamp { requestWritten = it }
+                  }
+                }
+            }
+            chain.proceed(request, scope)
+          },
+        )
+        .setRequestExecutor(
+          HttpRequestExecutor(
+            HttpRequestExecutor.DEFAULT_WAIT_FOR_CONTINUE,
+            DefaultConnectionReuseStrategy.INSTANCE,
+            object : Http1StreamListener {
+              override fun onRequestHead(connection: HttpConnection, request: HttpRequest) {
+                // A request without a body is sent once its head is
+                current.get()?.apply {
+                  if (requestWritten == NOT_YET) requestWritten = System.nanoTime()
+                }
+              }
+
+              override fun onResponseHead(connection: HttpConnection, response: HttpResponse) {
+                // Skip `100 Continue` and other interim heads
+                if (response.code >= 200) stamp { responseHead = it }
+              }
+
+              override fun onExchangeComplete(connection: HttpConnection, keepAlive: Boolean) {}
+            },
+          )
+        )
+  }
+}
@@ -0,0 +1,208 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.exe
+
+import com.salesforce.revoman.input.IterationHook
+import com.salesforce.revoman.input.bufferFile
+import com.salesforce.revoman.internal.log.RevomanLog
+import com.salesforce.revoman.internal.postman.sandbox.PmSandbox
+import com.salesforce.revoman.internal.postman.sandbox.PmSandboxPool
+import com.salesforce.revoman.output.IterationSummary
+import com.salesforce.revoman.output.Rundown
+import com.squareup.moshi.JsonDataException
+import com.squareup.moshi.Moshi
+import com.squareup.moshi.adapter
+import java.io.IOException
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicReference
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+import okio.BufferedSource
+
+/**
+ * Drives [run] once per row of [dataPath] on [concurrency] virtual-thread workers. Rows are read
+ * lazily under a lock, so only the rows in flight are ever in memory; each worker takes ONE
+ * [PmSandbox] from the [PmSandboxPool] and reuses it for all its rows, sweeping guest globals a
+ * row's scripts leaked before the next one and swapping it only after a script error faults it.
+ * [hook] calls are serialized (by a lock, not `synchronized`, which would pin the virtual thread's
+ * carrier).
+ */
+internal fun runIterationData(
+  dataPath: String,
+  concurrency: Int,
+  sandboxPoolSize: Int,
+  hook: IterationHook,
+  run: (Map<String, Any?>, PmSandbox) -> Rundown,
+): IterationSummary {
+  val iterations = AtomicLong()
+  val failedIterations = AtomicLong()
+  val firstFailure = AtomicReference<Throwable?>()
+  val rowLock = ReentrantLock()
+  val hookLock = ReentrantLock()
+  val dataFailed = AtomicBoolean()
+  bufferFile(dataPath).use { source ->
+    val rows = iterationRows(dataPath, source).withIndex().iterator()
+    RevomanLog.info { "📄 Iterating rows of '$dataPath' on $concurrency workers" }
+    val workers =
+      Executors.newVirtualThreadPerTaskExecutor().use { executor ->
+        List(concurrency) {
+          executor.submit(
+            Callable {
+              var sandbox = PmSandboxPool.acquire()
+              try {
+                while (!dataFailed.get()) {
+                  val next =
+                    rowLock.withLock {
+                      try {
+                        if (rows.hasNext()) rows.next() else null
+                      } catch (e: Exception) {
+                        dataFailed.set(true)
+                        throw e
+                      }
+                    } ?: break
+                  iterations.incrementAndGet()
+                  runCatching {
+                      val rundown = run(next.value, sandbox)
+                      hookLock.withLock { hook.accept(next.index.toLong(), next.value, rundown) }
+                      rundown
+                    }
+                    .onSuccess {
+                      if (!it.areAllStepsSuccessful) failedIterations.incrementAndGet()
+                    }
+                    .onFailure {
+                      failedIterations.incrementAndGet()
+                      firstFailure.compareAndSet(null, it)
+                      RevomanLog.warn { "Iteration ${next.index} failed: $it" }
+                    }
+                  if (sandbox.isFaulted) {
+                    PmSandboxPool.release(sandbox, sandboxPoolSize)
+                    sandbox = PmSandboxPool.acquire()
+                  } else {
+                    sandbox.sweepLeakedGlobals()
+                  }
+                }
+              } finally {
+                PmSandboxPool.release(sandbox, sandboxPoolSize)
+              }
+            }
+          )
+        }
+      }
+    workers.forEach {
+      try {
+        it.get()
+      } catch (e: ExecutionException) {
+        throw e.cause ?: e
+      }
+    }
+  }
+  return IterationSummary(iterations.get(), failedIterations.get(), firstFailure.get())
+}
+
+/**
+ * Lazily parses [source] into one env overlay per row: NDJSON (`.ndjson`/`.jsonl`) objects as is
+ * (integral numbers narrowed to Int/Long, as the sandbox bridge does), anything else as CSV with a
+ * header row. Blank lines are skipped; a malformed row throws [IllegalArgumentException] naming
+ * its line.
+ */
+internal fun iterationRows(dataPath: String, source: BufferedSource): Sequence<Map<String, Any?>> =
+  if (dataPath.endsWith(".ndjson") || dataPath.endsWith(".jsonl")) ndjsonRows(source)
+  else csvRows(source)
+
+@OptIn(ExperimentalStdlibApi::class)
+private fun ndjsonRows(source: BufferedSource): Sequence<Map<String, Any?>> {
+  val rowAdapter = Moshi.Builder().build().adapter<Map<String, Any?>>()
+  var lineNumber = 0
+  return generateSequence { source.readUtf8Line() }
+    .onEach { lineNumber++ }
+    .filter { it.isNotBlank() }
+    .map { line ->
+      val row =
+        try {
+          rowAdapter.fromJson(line)
+        } catch (e: IOException) {
+          throw IllegalArgumentException("Iteration data line $lineNumber: ${e.message}", e)
+        } catch (e: JsonDataException) {
+          throw IllegalArgumentException("Iteration data line $lineNumber: ${e.message}", e)
+        }
+      requireNotNull(row) { "Iteration data line $lineNumber: expected a JSON object" }
+      row.mapValues { (_, value) -> narrowIntegral(value) }
+    }
+}
+
+private fun narrowIntegral(value: Any?): Any? =
+  if (value is Double && value % 1.0 == 0.0 && !value.isInfinite()) {
+    if (value in Int.MIN_VALUE.toDouble()..Int.MAX_VALUE.toDouble()) value.toInt()
+    else value.toLong()
+  } else value
+
+/** RFC 4180 CSV: quoted fields may hold commas, `""` escapes and line breaks. */
+private fun csvRows(source: BufferedSource): Sequence<Map<String, Any?>> {
+  var lineNumber = 0
+  val records =
+    generateSequence {
+        var record = source.readUtf8Line() ?: return@generateSequence null
+        lineNumber++
+        val startLine = lineNumber
+        // An odd count of quotes means a quoted field runs on into the next line
+        while (record.count { it == '"' } % 2 == 1) {
+          val continuation =
+            source.readUtf8Line()
+              ?: throw IllegalArgumentException(
+                "Iteration data line $startLine: unterminated quoted field"
+              )
+          lineNumber++
+          record += "\n" + continuation
+        }
+        startLine to record
+      }
+      .filter { (_, record) -> record.isNotBlank() }
+  var header: List<String>? = null
+  return records.mapNotNull { (line, record) ->
+    val fields = parseCsvRecord(record)
+    val columns = header
+    if (columns == null) {
+      header = listOf(fields.first().removePrefix("\uFEFF")) + fields.drop(1)
+      null
+    } else {
+      require(fields.size <= columns.size) {
+        "Iteration data line $line: ${fields.size} fields, but the header has ${columns.size}"
+      }
+      columns.zip(fields).toMap()
+    }
+  }
+}
+
+internal fun parseCsvRecord(record: String): List<String> {
+  val fields = mutableListOf<String>()
+  val field = StringBuilder()
+  var inQuotes = false
+  var index = 0
+  while (index < record.length) {
+    val char = record[index]
+    when {
+      inQuotes && char == '"' && record.getOrNull(index + 1) == '"' -> {
+        field.append('"')
+        index++
+      }
+      char == '"' -> inQuotes = !inQuotes
+      !inQuotes && char == ',' -> {
+        fields += field.toString()
+        field.setLength(0)
+      }
+      else -> field.append(char)
+    }
+    index++
+  }
+  fields += field.toString()
+  return fields
+}
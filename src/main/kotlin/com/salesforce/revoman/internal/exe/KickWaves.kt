@@ -0,0 +1,91 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.exe
+
+import com.salesforce.revoman.input.config.Kick
+import com.salesforce.revoman.output.report.Step
+
+/**
+ * The env keys a kick reads from ([consumes]) and writes into ([produces]) the env threaded between
+ * kicks. `null` means unknown: a kick with an unknown side never runs alongside a kick it might
+ * touch, so an undeclared, never-ledgered kick degrades to the serial chain.
+ */
+internal data class KickKeys(val produces: Set<String>?, val consumes: Set<String>?)
+
+/**
+ * Declared keys ([Kick.producedKeys]/[Kick.consumedKeys]) win. Otherwise produces are learned from
+ * the kick's ledger, and consumes from [steps] — the kick's own steps, loaded only when needed:
+ * their ledgered reads plus the static `{{key}}` and literal script-key scans of [StepGraph], minus
+ * what an earlier step of the kick produced. A ledger alone misses a read-only step reading an
+ * upstream key, since it only holds steps that produced something. Consumes stay unknown when
+ * [steps] can't be loaded up front (`null`), a script reads scopes by non-literal keys, or the kick
+ * has Pre/PostStepHooks, whose reads (say `rundown.mutableEnv["token"]`) no scan can see.
+ */
+internal fun kickKeysOf(kick: Kick, steps: () -> List<Step>?): KickKeys {
+  val learnedProduces =
+    kick.ledger().steps.values.flatMapTo(mutableSetOf()) { it.produces }.ifEmpty { null }
+  val produces = kick.producedKeys() ?: learnedProduces
+  val hasStepHooks = kick.preStepHooks().isNotEmpty() || kick.postStepHooks().isNotEmpty()
+  val scanned = if (hasStepHooks) null else steps()?.let { scannedConsumes(it, kick) }
+  return KickKeys(produces, kick.consumedKeys() ?: scanned)
+}
+
+private fun scannedConsumes(steps: List<Step>, kick: Kick): Set<String>? {
+  val graph = StepGraph(steps, kick.ledger(), emptyMap())
+  val producedSoFar = mutableSetOf<String>()
+  val consumes = mutableSetOf<String>()
+  for (index in steps.indices) {
+    val keys = graph.keysOf(index)
+    if (keys.hasOpaqueScopeAccess) return null
+    keys.consumes.filterNotTo(consumes) { it in producedSoFar }
+    producedSoFar += keys.produces
+  }
+  return consumes
+}
+
+/**
+ * True when [later] reads a key [earlier] may write. Only read-after-write orders kicks: each kick
+ * runs on its own COPY of the wave's input env and deltas merge in declaration order, so a
+ * write-write clash resolves exactly as in the serial chain (the later kick wins).
+ */
+internal fun kickDependsOn(later: KickKeys, earlier: KickKeys): Boolean {
+  val earlierProduces = earlier.produces ?: return true
+  val laterConsumes = later.consumes ?: return true
+  return earlierProduces.any { it in laterConsumes }
+}
+
+/**
+ * Splits kicks (in declaration order) into contiguous waves of mutually independent kicks: a kick
+ * joins the current wave unless it depends on one of its members, in which case it starts the
+ * next wave — so every dependent kick starts only after its upstream wave has merged.
+ */
+internal fun kickWaves(keys: List<KickKeys>): List<IntRange> {
+  val waves = mutableListOf<IntRange>()
+  var start = 0
+  for (index in keys.indices) {
+    if (index > start && (start until index).any { kickDependsOn(keys[index], keys[it]) }) {
+      waves += start until index
+      start = index
+    }
+  }
+  if (keys.isNotEmpty()) waves += start until keys.size
+  return waves
+}
+
+/**
+ * What a kick changed relative to the env it started from: new or re-valued keys, and keys it
+ * removed. Merging DELTAS (not whole envs) in declaration order keeps the result independent of
+ * completion order, and stops a sibling's untouched copy of a key from clobbering another
+ * sibling's write.
+ */
+internal fun envDelta(
+  input: Map<String, Any?>,
+  output: Map<String, Any?>,
+): Pair<Map<String, Any?>, Set<String>> =
+  output.filter { (key, value) -> !input.containsKey(key) || input[key] != value } to
+    (input.keys - output.keys)
@@ -0,0 +1,225 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.exe
+
+import com.salesforce.revoman.input.config.Kick
+import com.salesforce.revoman.input.config.LoadConfig
+import com.salesforce.revoman.internal.log.RevomanLog
+import com.salesforce.revoman.output.ExeType
+import com.salesforce.revoman.output.Rundown
+import com.salesforce.revoman.output.load.LatencyHistogram
+import com.salesforce.revoman.output.load.LoadReport
+import com.salesforce.revoman.output.load.OpenModelStats
+import com.salesforce.revoman.output.load.StepLoadStats
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.Semaphore
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicReference
+import java.util.concurrent.locks.LockSupport
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.nanoseconds
+import kotlin.time.TimeSource
+import kotlin.time.TimeSource.Monotonic.ValueTimeMark
+import kotlin.time.toJavaDuration
+import java.time.Duration as JDuration
+
+/**
+ * Load runner. Closed-loop: [LoadConfig.concurrency] virtual-thread workers pull iteration numbers
+ * from a shared counter and each run [revUp] back to back, so at most `concurrency` iterations are
+ * ever in flight. Open-model ([LoadConfig.arrivalRatePerSecond]): the calling thread releases one
+ * iteration per arrival interval onto its own virtual thread, whether or not earlier ones finished.
+ * Warm-up iterations run the same way first and are discarded. Every measured [Rundown] is folded
+ * into [LoadAggregator] as soon as it returns and then dropped.
+ */
+internal fun runLoad(kick: Kick, config: LoadConfig, revUp: (Kick) -> Rundown): LoadReport {
+  val iterationKick = { iteration: Int ->
+    kick.overrideDynamicEnvironment(
+      kick.dynamicEnvironment() + config.iterationEnv.forIteration(iteration)
+    )
+  }
+  val model =
+    config.arrivalRatePerSecond?.let { "at %.1f iterations/s".format(it) }
+      ?: "at concurrency ${config.concurrency}"
+  if (config.warmUpIterations > 0) {
+    RevomanLog.info { "🔥 Load warm-up: ${config.warmUpIterations} iterations $model" }
+    runIterations(config, 0, config.warmUpIterations) { iteration, _ ->
+      runCatching { revUp(iterationKick(iteration)) }
+        .onFailure { RevomanLog.warn { "Load warm-up iteration $iteration failed: $it" } }
+    }
+  }
+  RevomanLog.info { "🏋️ Load: ${config.iterations} iterations $model" }
+  val aggregator = LoadAggregator(config.arrivalRatePerSecond)
+  val start = TimeSource.Monotonic.markNow()
+  val dropped =
+    runIterations(config, config.warmUpIterations, config.iterations) { iteration, intendedStart ->
+      val actualStart = TimeSource.Monotonic.markNow()
+      runCatching { revUp(iterationKick(iteration)) }
+        .onSuccess { aggregator.record(it, actualStart, intendedStart) }
+        .onFailure { aggregator.recordFailure(it, actualStart, intendedStart) }
+    }
+  return aggregator.report(config.iterations, dropped, start.elapsedNow().toJavaDuration())
+}
+
+/**
+ * Runs [count] iterations numbered from [offset] in the model [config] picks. [iteration] receives
+ * the iteration's intended start: the arrival slot in the open model, the moment a worker claimed
+ * it in the closed loop (where the two coincide). Returns the number of iterations dropped.
+ */
+private fun runIterations(
+  config: LoadConfig,
+  offset: Int,
+  count: Int,
+  iteration: (Int, ValueTimeMark) -> Unit,
+): Int =
+  config.arrivalRatePerSecond?.let { runOpenLoop(offset, count, it, config.concurrency, iteration) }
+    ?: run {
+      runClosedLoop(offset, count, config.concurrency, iteration)
+      0
+    }
+
+private fun runClosedLoop(
+  offset: Int,
+  count: Int,
+  concurrency: Int,
+  iteration: (Int, ValueTimeMark) -> Unit,
+) {
+  val next = AtomicInteger()
+  Executors.newVirtualThreadPerTaskExecutor().use { workers ->
+    repeat(minOf(concurrency, count)) {
+      workers.execute {
+        while (true) {
+          val claimed = next.getAndIncrement()
+          if (claimed >= count) break
+          iteration(offset + claimed, TimeSource.Monotonic.markNow())
+        }
+      }
+    }
+  }
+}
+
+/**
+ * Releases iteration `i` at `start + i × interval` — slots are computed from the run start, not
+ * from the previous release, so scheduler hiccups don't drift the rate. An iteration due while
+ * [maxInFlight] are running is dropped rather than queued behind them.
+ */
+private fun runOpenLoop(
+  offset: Int,
+  count: Int,
+  ratePerSecond: Double,
+  maxInFlight: Int,
+  iteration: (Int, ValueTimeMark) -> Unit,
+): Int {
+  val intervalNanos = 1_000_000_000.0 / ratePerSecond
+  val inFlight = Semaphore(maxInFlight)
+  var dropped = 0
+  val start = TimeSource.Monotonic.markNow()
+  Executors.newVirtualThreadPerTaskExecutor().use { workers ->
+    for (index in 0 until count) {
+      val intendedStart = start + (index * intervalNanos).toLong().nanoseconds
+      while (intendedStart.hasNotPassedNow()) {
+        LockSupport.parkNanos((-intendedStart.elapsedNow()).inWholeNanoseconds)
+      }
+      if (!inFlight.tryAcquire()) {
+        dropped++
+        continue
+      }
+      workers.execute {
+        try {
+          iteration(offset + index, intendedStart)
+        } finally {
+          inFlight.release()
+        }
+      }
+    }
+  }
+  if (dropped > 0) RevomanLog.warn { "Load: dropped $dropped iterations, $maxInFlight in flight" }
+  return dropped
+}
+
+/**
+ * Thread-safe fold of iteration outcomes into histograms; cheap enough for every worker. With an
+ * [arrivalRatePerSecond] the iteration latency is taken from the intended start and the start lag
+ * and uncorrected service latency are tracked alongside.
+ */
+internal class LoadAggregator(private val arrivalRatePerSecond: Double? = null) {
+  private val iterationLatency = LatencyHistogram()
+  private val serviceLatency = LatencyHistogram()
+  private val startLag = LatencyHistogram()
+  private val lateIterations = AtomicInteger()
+  private val lateAfter =
+    arrivalRatePerSecond?.let { (1_000_000_000.0 / it).toLong().nanoseconds } ?: Duration.INFINITE
+  private val failedIterations = AtomicInteger()
+  private val firstFailure = AtomicReference<Throwable?>()
+  private val steps = ConcurrentHashMap<String, StepAccumulator>()
+  private val firstSeen = AtomicLong()
+
+  private class StepAccumulator(val order: Long) {
+    val latency = LatencyHistogram()
+    val byExeType = ConcurrentHashMap<ExeType, LatencyHistogram>()
+    val failures = AtomicLong()
+  }
+
+  private fun recordTimes(actualStart: ValueTimeMark, intendedStart: ValueTimeMark) {
+    val service = actualStart.elapsedNow()
+    iterationLatency.record(intendedStart.elapsedNow().toJavaDuration())
+    if (arrivalRatePerSecond != null) {
+      val lag = actualStart - intendedStart
+      serviceLatency.record(service.toJavaDuration())
+      startLag.record(lag.toJavaDuration())
+      if (lag > lateAfter) lateIterations.incrementAndGet()
+    }
+  }
+
+  fun record(rundown: Rundown, actualStart: ValueTimeMark, intendedStart: ValueTimeMark) {
+    recordTimes(actualStart, intendedStart)
+    if (!rundown.areAllStepsSuccessful) failedIterations.incrementAndGet()
+    rundown.stepReports
+      .filterNot { it.isLedgerSkipped }
+      .forEach { report ->
+        val step =
+          steps.computeIfAbsent(report.step.path) { StepAccumulator(firstSeen.getAndIncrement()) }
+        step.latency.record(report.exeTimings.values.fold(JDuration.ZERO, JDuration::plus))
+        report.exeTimings.forEach { (exeType, timing) ->
+          step.byExeType.computeIfAbsent(exeType) { LatencyHistogram() }.record(timing)
+        }
+        if (!report.isSuccessful) step.failures.incrementAndGet()
+      }
+  }
+
+  fun recordFailure(
+    failure: Throwable,
+    actualStart: ValueTimeMark,
+    intendedStart: ValueTimeMark,
+  ) {
+    recordTimes(actualStart, intendedStart)
+    failedIterations.incrementAndGet()
+    firstFailure.compareAndSet(null, failure)
+    RevomanLog.warn { "Load iteration failed: $failure" }
+  }
+
+  fun report(iterations: Int, droppedIterations: Int, wallClock: JDuration): LoadReport =
+    LoadReport(
+      iterations = iterations,
+      failedIterations = failedIterations.get(),
+      wallClock = wallClock,
+      iterationLatency = iterationLatency,
+      steps =
+        steps.entries
+          .sortedBy { it.value.order }
+          .map { (path, step) ->
+            StepLoadStats(path, step.latency, step.byExeType.toMap(), step.failures.get())
+          },
+      firstFailure = firstFailure.get(),
+      openModel =
+        arrivalRatePerSecond?.let {
+          OpenModelStats(it, droppedIterations, lateIterations.get(), startLag, serviceLatency)
+        },
+    )
+}
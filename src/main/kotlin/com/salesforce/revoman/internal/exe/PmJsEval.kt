@@ -9,21 +9,28 @@ package com.salesforce.revoman.internal.exe
 
 import arrow.core.Either
 import arrow.core.Either.Right
+import com.salesforce.revoman.input.config.KickDef.Companion.DEFAULT_SCRIPT_TIMEOUT
+import com.salesforce.revoman.internal.postman.NativeScript
 import com.salesforce.revoman.internal.postman.PostmanSDK
 import com.salesforce.revoman.internal.postman.sandbox.PmExecutionContext
 import com.salesforce.revoman.internal.postman.sandbox.PmSandbox
 import com.salesforce.revoman.internal.postman.sandbox.PmScope
+import com.salesforce.revoman.internal.postman.sandbox.ScopeDelta
 import com.salesforce.revoman.internal.postman.sandbox.ScriptTarget
-import com.salesforce.revoman.internal.postman.sandbox.diffScopes
 import com.salesforce.revoman.internal.postman.template.Item
 import com.salesforce.revoman.internal.postman.template.Request
 import com.salesforce.revoman.output.ExeType.POST_RES_JS
 import com.salesforce.revoman.output.ExeType.PRE_REQ_JS
+import com.salesforce.revoman.output.postman.PostmanEnvironment
 import com.salesforce.revoman.output.report.PmTestAssertion
 import com.salesforce.revoman.output.report.Step
 import com.salesforce.revoman.output.report.StepReport
 import com.salesforce.revoman.output.report.failure.RequestFailure.PreReqJSFailure
 import com.salesforce.revoman.output.report.failure.ResponseFailure.PostResJSFailure
+import com.salesforce.revoman.output.report.failure.ScriptLimitExceeded
+import java.time.Duration
+import kotlin.time.measureTime
+import kotlin.time.toJavaDuration
 
 @JvmSynthetic
 internal fun executePreReqJS(
@@ -32,10 +39,11 @@ internal fun executePreReqJS(
   currentStepReport: StepReport,
   pm: PostmanSDK,
   sandbox: PmSandbox,
-): Either<PreReqJSFailure, Unit> {
-  val preReqJS =
-    itemWithRegex.event?.find { it.listen == "prerequest" }?.script?.exec?.joinToString("\n")
-  return if (!preReqJS.isNullOrBlank()) {
+  preReqJS: String? = itemWithRegex.script("prerequest"),
+  scriptTimeout: Duration = DEFAULT_SCRIPT_TIMEOUT,
+  insecureHttp: Boolean = false,
+): Either<PreReqJSFailure, Unit> =
+  if (!preReqJS.isNullOrBlank()) {
     runCatching(currentStep, PRE_REQ_JS) {
         pm.request = pm.from(itemWithRegex.request)
         runSandboxScript(
@@ -45,13 +53,14 @@ internal fun executePreReqJS(
           pm,
           sandbox,
           currentStep,
+          scriptTimeout,
+          insecureHttp,
         )
       }
       .mapLeft { PreReqJSFailure(it, currentStepReport.requestInfo!!.get()) }
   } else {
     Right(Unit)
   }
-}
 
 @JvmSynthetic
 internal fun executePostResJS(
@@ -60,13 +69,28 @@ internal fun executePostResJS(
   currentStepReport: StepReport,
   pm: PostmanSDK,
   sandbox: PmSandbox,
-): Either<PostResJSFailure, Unit> {
-  val postResJs = item.event?.find { it.listen == "test" }?.script?.exec?.joinToString("\n")
-  return if (!postResJs.isNullOrBlank()) {
+  postResJs: String? = item.script("test"),
+  nativeScript: NativeScript? = null,
+  scriptTimeout: Duration = DEFAULT_SCRIPT_TIMEOUT,
+  insecureHttp: Boolean = false,
+): Either<PostResJSFailure, Unit> =
+  if (!postResJs.isNullOrBlank()) {
     runCatching(currentStep, POST_RES_JS) {
         val httpResponse = currentStepReport.responseInfo!!.get().httpMsg
         pm.setRequestAndResponse(pm.from(item.request), httpResponse)
-        runSandboxScript(postResJs, ScriptTarget.TEST, item.request, pm, sandbox, currentStep)
+        // The native form runs only when it can mirror the sandbox exactly; otherwise, the sandbox
+        if (nativeScript?.runOn(pm, currentStep) != true) {
+          runSandboxScript(
+            postResJs,
+            ScriptTarget.TEST,
+            item.request,
+            pm,
+            sandbox,
+            currentStep,
+            scriptTimeout,
+            insecureHttp,
+          )
+        }
       }
       .mapLeft {
         PostResJSFailure(
@@ -78,23 +102,25 @@ internal fun executePostResJS(
   } else {
     Right(Unit)
   }
-}
 
 /**
- * Runs a pm script in the real Postman sandbox, then applies the returned scopes back onto the
- * [PostmanSDK] so the rest of ReVoman observes script effects:
- * - environment: diffed back via [PostmanSDK.environment] set/unset (the ledger path — unchanged).
- * - collectionVariables: diffed back via [PostmanSDK.collectionVariables] set/unset.
- * - globals: diffed back via [PostmanSDK.globals] set/unset (separate store, no ledger
- *   involvement).
+ * Runs a pm script in the real Postman sandbox, then applies the script's scope changes back onto
+ * the [PostmanSDK] so the rest of ReVoman observes script effects:
+ * - environment: applied via [PostmanSDK.environment] set/unset (the ledger path — unchanged).
+ * - collectionVariables: applied via [PostmanSDK.collectionVariables] set/unset.
+ * - globals: applied via [PostmanSDK.globals] set/unset (separate store, no ledger involvement).
  * - pm.test assertions + setNextRequest: stashed per [step] for the executor to read onto
  *   StepReport.
  *
- * Throws on a script error so the surrounding [runCatching] maps it to the right failure type.
+ * Throws on a script error, or on a script stopped past [scriptTimeout] or its statement budget
+ * ([ScriptLimitExceeded]), so the surrounding [runCatching] maps it to the right failure type.
  *
+ * The scopes go in [PmScope.live], so the sandbox exchanges only changed keys with the guest.
  * Only sandbox-safe values (String/Number/Boolean/null — real Postman variable semantics) are sent
  * into and read back from the sandbox. Typed POJOs ReVoman stores in the env (hooks, cross-step
  * reuse) are NOT pm-script variables and are intentionally left untouched in the Kotlin env.
+ *
+ * `pm.sendRequest` goes out through the same shared client as the steps, per [insecureHttp].
  */
 private fun runSandboxScript(
   script: String,
@@ -103,41 +129,40 @@ private fun runSandboxScript(
   pm: PostmanSDK,
   sandbox: PmSandbox,
   step: Step,
+  scriptTimeout: Duration,
+  insecureHttp: Boolean,
 ) {
-  val beforeEnv: Map<String, Any?> = sandboxSafeEnv(pm.environment.mutableEnv)
-  val beforeCVars: Map<String, Any?> = sandboxSafeEnv(pm.collectionVariables.mutableEnv)
-  val beforeGlobals: Map<String, Any?> = sandboxSafeEnv(pm.globals.mutableEnv)
   val context =
     PmExecutionContext(
-      environment = PmScope("environment", beforeEnv, name = pm.environmentName),
-      globals = PmScope("globals", beforeGlobals),
-      collectionVariables = PmScope("collectionVariables", beforeCVars),
+      environment =
+        PmScope("environment", pm.environment.mutableEnv, name = pm.environmentName, live = true),
+      globals = PmScope("globals", pm.globals.mutableEnv, live = true),
+      collectionVariables =
+        PmScope("collectionVariables", pm.collectionVariables.mutableEnv, live = true),
       request = requestAsContextMap(pmRequest),
       response = if (target == ScriptTarget.TEST) responseAsContextMap(pm) else null,
+      httpClient = prepareHttpClient(insecureHttp),
     )
-  val result = sandbox.execute(script, target, context)
-  result.error?.let { throw it }
-
-  // Apply env mutations back through the same set()/unset() paths the ledger reads.
-  val envDiff = diffScopes(beforeEnv, result.environment)
-  envDiff.produced.forEach { key -> pm.environment.set(key, result.environment[key]) }
-  envDiff.unset.forEach { key -> pm.environment.unset(key) }
-
-  // Apply collection-variable mutations back (no ledger involvement — separate store).
-  val cVarDiff = diffScopes(beforeCVars, result.collectionVariables)
-  cVarDiff.produced.forEach { key ->
-    pm.collectionVariables.set(key, result.collectionVariables[key])
+  val result = sandbox.execute(script, target, context, scriptTimeout.toMillis())
+  val phaseExeType = if (target == ScriptTarget.PRE_REQUEST) PRE_REQ_JS else POST_RES_JS
+  if (result.error != null) {
+    result.profile?.let { pm.recordSandboxProfile(step, phaseExeType, it) }
+    throw result.error
   }
-  cVarDiff.unset.forEach { key -> pm.collectionVariables.unset(key) }
 
-  // Apply global mutations back (no ledger involvement — separate store, like collectionVariables).
-  val gVarDiff = diffScopes(beforeGlobals, result.globals)
-  gVarDiff.produced.forEach { key -> pm.globals.set(key, result.globals[key]) }
-  gVarDiff.unset.forEach { key -> pm.globals.unset(key) }
+  val applied = measureTime {
+    // Apply env mutations back through the same set()/unset() paths the ledger reads.
+    result.deltas["environment"]?.applyTo(pm.environment)
+    // Collection variables and globals are separate stores, with no ledger involvement.
+    result.deltas["collectionVariables"]?.applyTo(pm.collectionVariables)
+    result.deltas["globals"]?.applyTo(pm.globals)
+  }
+  result.profile?.let {
+    pm.recordSandboxProfile(step, phaseExeType, it.copy(scopeApply = applied.toJavaDuration()))
+  }
 
   // Surface pm.test results + setNextRequest onto the StepReport (read by the executor fold).
   // Each assertion is stamped with the phase that produced it (pre-request vs test script).
-  val phaseExeType = if (target == ScriptTarget.PRE_REQUEST) PRE_REQ_JS else POST_RES_JS
   pm.recordPmTestAssertions(
     step,
     result.assertions.map {
@@ -152,9 +177,9 @@ private fun runSandboxScript(
   }
 }
 
-/** Filters a scope map to sandbox-safe values (real Postman variable values). */
-private fun sandboxSafeEnv(scope: Map<String, Any?>): Map<String, Any?> = scope.filterValues {
-  it == null || it is String || it is Number || it is Boolean
+private fun ScopeDelta.applyTo(scope: PostmanEnvironment<Any?>) {
+  set.forEach { (key, value) -> scope.set(key, value) }
+  unset.forEach(scope::unset)
 }
 
 private fun requestAsContextMap(request: Request): Map<String, Any?> =
@@ -169,5 +194,6 @@ private fun responseAsContextMap(pm: PostmanSDK): Map<String, Any?> =
   linkedMapOf(
     "code" to pm.response.code,
     "status" to pm.response.status,
+    "header" to pm.response.headers.map { linkedMapOf("key" to it.key, "value" to it.value) },
     "body" to pm.response.body,
   )
@@ -25,11 +25,12 @@ internal fun preStepHookExe(
   kick: Kick,
   requestInfo: TxnInfo<Request>,
   rundown: Rundown,
+  picked: List<PreStepHook> = pickedPreStepHooks(currentStep, kick, requestInfo, rundown),
 ): PreStepHookFailure? =
   // asSequence keeps hook execution LAZY + short-circuiting: if a picked hook fails, later hooks'
   // accept() (with their side effects) do NOT run — the pre-D2 Sequence behavior. D2 materialized
   // only the PICK (so the pick predicate runs once); execution order/short-circuit is preserved.
-  pickPreStepHooks(kick.preStepHooks(), currentStep, requestInfo, rundown)
+  picked
     .asSequence()
     .map { preStepHook ->
       runCatching(currentStep, PRE_STEP_HOOK) {
@@ -40,6 +41,18 @@ internal fun preStepHookExe(
     .firstOrNull { it.isLeft() }
     ?.leftOrNull()
 
+/**
+ * The [kick]'s PreStepHooks that pick [currentStep], for a caller that must know them before it
+ * runs them through [preStepHookExe].
+ */
+@JvmSynthetic
+internal fun pickedPreStepHooks(
+  currentStep: Step,
+  kick: Kick,
+  requestInfo: TxnInfo<Request>,
+  rundown: Rundown,
+): List<PreStepHook> = pickPreStepHooks(kick.preStepHooks(), currentStep, requestInfo, rundown)
+
 @JvmSynthetic
 private fun pickPreStepHooks(
   preStepHooks: List<HookConfig>,
@@ -0,0 +1,157 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.exe
+
+import com.salesforce.revoman.output.ledger.LedgerSnapshot
+import com.salesforce.revoman.output.report.Step
+
+/**
+ * The env keys a step is known to read ([consumes]) and write ([produces]) BEFORE it runs, or a
+ * barrier when they can't be known. A barrier never shares a wave with another step — it runs
+ * alone through the serial cursor, exactly as it would without `stepConcurrency`.
+ */
+internal data class StepKeys(
+  val produces: Set<String>,
+  val consumes: Set<String>,
+  val isBarrier: Boolean = false,
+  /** Its scripts touch scopes with keys no static scan can see, declared or not. */
+  val hasOpaqueScopeAccess: Boolean = false,
+  /** A PostStepHook may write env keys the ledger hasn't seen yet, so [produces] may fall short. */
+  val mayProduceUnseen: Boolean = false,
+)
+
+/**
+ * Step dependency graph over the picked steps of a run, used by the opt-in `stepConcurrency` mode
+ * to find WAVES of mutually independent, ADJACENT steps whose HTTP calls can be in flight together.
+ *
+ * Key sets come from three sources, unioned: the previous run's learned [LedgerSnapshot] (the
+ * `produces`/`consumed` captured by `PostmanEnvironment`), a static scan of the raw request's
+ * `{{key}}` placeholders (bearer auth included), and a static scan of the step's scripts for
+ * literal-key scope reads and writes (`pm.environment.get('k')`, `.set('k', ...)`). The ledger
+ * alone is not enough: its `consumed` only covers placeholder reads, so a script's
+ * `pm.environment.get` is invisible to it.
+ *
+ * `j` depends on an earlier `i` when `i` writes what `j` reads or writes, or `j` writes what `i`
+ * reads — or when [declared] lists `i` for `j` (matched with [Step.stepNameMatches], like
+ * `setNextRequest` targets). It also depends on `i` when the run [hasPostStepHooks] and `i` has no
+ * ledger entry yet: a hook's writes are invisible to the scan, so nothing joins `i`'s wave after
+ * it. A step is a barrier when it (or a jump into it) can divert control flow —
+ * `setNextRequest`/`skipRequest` keep the existing serial cursor semantics — or when its scripts
+ * touch scopes with non-literal keys that no static scan can see, unless [declared] covers it.
+ *
+ * Waves are CONTIGUOUS runs in declaration order, never reordered: reports, events and the ledger
+ * stay in the same order a serial run produces them.
+ */
+internal class StepGraph(
+  private val steps: List<Step>,
+  ledger: LedgerSnapshot,
+  private val declared: Map<String, Set<String>>,
+  private val hasPostStepHooks: Boolean = false,
+) {
+  private val jumpTargets: Set<String> =
+    steps.flatMapTo(mutableSetOf()) { step ->
+      scriptsOf(step).flatMap { script ->
+        SET_NEXT_REQUEST_TARGET.findAll(script).map { it.groupValues[1] }
+      }
+    }
+
+  private val keys: List<StepKeys> = steps.map { stepKeysOf(it, ledger) }
+
+  private val declaredUpstream: List<Set<String>?> =
+    steps.map { step ->
+      declared.entries
+        .filter { step.stepNameMatches(it.key) }
+        .takeIf { it.isNotEmpty() }
+        ?.flatMapTo(mutableSetOf()) { it.value }
+    }
+
+  fun keysOf(index: Int): StepKeys = keys[index]
+
+  /** True when the step at [index] must run alone (see [StepKeys.isBarrier]). */
+  fun isBarrier(index: Int): Boolean = keys[index].isBarrier
+
+  /** True when the step at [later] must observe the effects of the step at [earlier]. */
+  fun dependsOn(later: Int, earlier: Int): Boolean {
+    if (declaredUpstream[later]?.any { steps[earlier].stepNameMatches(it) } == true) return true
+    if (keys[earlier].mayProduceUnseen) return true
+    val (laterProduces, laterConsumes) = keys[later]
+    val (earlierProduces, earlierConsumes) = keys[earlier]
+    return earlierProduces.any { it in laterConsumes || it in laterProduces } ||
+      earlierConsumes.any { it in laterProduces }
+  }
+
+  /**
+   * The largest wave starting at [start]: up to [maxWidth] adjacent steps, none a barrier and none
+   * depending on an earlier member. Always contains at least [start] itself.
+   */
+  fun waveFrom(start: Int, maxWidth: Int): IntRange {
+    if (maxWidth <= 1 || isBarrier(start)) return start..start
+    var end = start
+    while (
+      end + 1 < steps.size &&
+        end + 1 - start < maxWidth &&
+        !isBarrier(end + 1) &&
+        (start..end).none { dependsOn(end + 1, it) }
+    ) {
+      end++
+    }
+    return start..end
+  }
+
+  private fun stepKeysOf(step: Step, ledger: LedgerSnapshot): StepKeys {
+    val scripts = scriptsOf(step)
+    val divertsControlFlow =
+      step.name in jumpTargets ||
+        step.path in jumpTargets ||
+        scripts.any { CONTROL_FLOW_CALL.containsMatchIn(it) }
+    val isDeclared = declared.keys.any { step.stepNameMatches(it) }
+    val opaqueScopeAccess = scripts.any { script ->
+      DYNAMIC_SCOPE_ACCESS.containsMatchIn(script.replace(LITERAL_SCOPE_ACCESS, ""))
+    }
+    val entry = ledger.steps[step.path]
+    val request = step.rawPMStep.request
+    val rawRequestParts =
+      sequenceOf(request.url.raw, request.body?.raw.orEmpty()) +
+        request.header.asSequence().flatMap { sequenceOf(it.key, it.value) } +
+        request.auth?.bearer.orEmpty().asSequence().map { it.value }
+    val placeholderReads =
+      rawRequestParts
+        .flatMap { PLACEHOLDER.findAll(it).map { match -> match.groupValues[1].trim() } }
+        .filterNot { it.startsWith("$") }
+    val scriptReads =
+      scripts.flatMap { LITERAL_SCOPE_READ.findAll(it).map { match -> match.groupValues[2] } }
+    val scriptWrites =
+      scripts.flatMap { LITERAL_SCOPE_WRITE.findAll(it).map { match -> match.groupValues[2] } }
+    return StepKeys(
+      produces = entry?.produces.orEmpty() + scriptWrites,
+      consumes = entry?.consumed.orEmpty() + placeholderReads + scriptReads,
+      isBarrier = divertsControlFlow || (opaqueScopeAccess && !isDeclared),
+      hasOpaqueScopeAccess = opaqueScopeAccess,
+      mayProduceUnseen = hasPostStepHooks && entry == null,
+    )
+  }
+
+  private fun scriptsOf(step: Step): List<String> =
+    step.rawPMStep.event.orEmpty().map { it.script.exec.joinToString("\n") }
+
+  companion object {
+    private val PLACEHOLDER = Regex("\\{\\{([^{}]*?)}}")
+    private val CONTROL_FLOW_CALL = Regex("\\b(setNextRequest|skipRequest)\\s*\\(")
+    private val SET_NEXT_REQUEST_TARGET = Regex("setNextRequest\\s*\\(\\s*['\"`]([^'\"`]+)['\"`]")
+    private const val SCOPE = "pm\\s*\\.\\s*(?:environment|variables|collectionVariables|globals)"
+    private val LITERAL_SCOPE_READ =
+      Regex("$SCOPE\\s*\\.\\s*(get|has)\\s*\\(\\s*['\"`]([^'\"`]+)['\"`]\\s*\\)")
+    private val LITERAL_SCOPE_WRITE =
+      Regex("$SCOPE\\s*\\.\\s*(set|unset)\\s*\\(\\s*['\"`]([^'\"`]+)['\"`]")
+    private val LITERAL_SCOPE_ACCESS =
+      Regex("$SCOPE\\s*\\.\\s*(get|has|set|unset)\\s*\\(\\s*['\"`]([^'\"`]+)['\"`]")
+
+    /** Any scope access left after stripping literal-key calls: key not statically knowable. */
+    private val DYNAMIC_SCOPE_ACCESS = Regex("$SCOPE\\b|\\bpostman\\s*\\.\\s*(get|set|clear)")
+  }
+}
@@ -0,0 +1,74 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.exe
+
+import com.salesforce.revoman.input.config.Kick
+import com.salesforce.revoman.internal.postman.NativeScript
+import com.salesforce.revoman.internal.postman.template.Item
+import com.salesforce.revoman.internal.postman.template.Request
+import com.salesforce.revoman.output.report.Step
+import org.http4k.core.Request as HttpRequest
+
+/**
+ * Everything about a [step] that depends only on the step and its [Kick], resolved once after
+ * `deepFlattenItems` instead of on every execution: the joined pre-request and test scripts,
+ * their native form when the test script fits [NativeScript], whether the request carries any
+ * `{{placeholder}}` at all, and whether the step opts out of the ledger. A plan is immutable and
+ * holds no run state, so one list serves every run of the same steps — looped executions,
+ * `revUpIterations` rows and concurrent load workers alike.
+ *
+ * Hook and request/response config picks are NOT folded in here: their `pick` takes the live
+ * `TxnInfo`/`Rundown`, so they can only be decided at execution time.
+ */
+internal class StepPlan(@JvmField val step: Step, kick: Kick) {
+  @JvmField val preRequestScript: String? = step.rawPMStep.script("prerequest")
+
+  @JvmField val testScript: String? = step.rawPMStep.script("test")
+
+  /** The test script as host operations, `null` when it needs the sandbox. */
+  @JvmField val nativeTestScript: NativeScript? = testScript?.let(NativeScript::compile)
+
+  /** Whether executing this step may run a script in the sandbox at all. */
+  @JvmField
+  val needsSandbox: Boolean =
+    preRequestScript != null || (testScript != null && nativeTestScript == null)
+
+  /**
+   * `false` when no part of the request that variable replacement touches contains `{{`, in which
+   * case both replacement passes are a guaranteed no-op and are skipped.
+   */
+  @JvmField val hasPlaceholders: Boolean = step.rawPMStep.request.hasPlaceholders()
+
+  @JvmField
+  val optsOutOfLedger: Boolean =
+    step.optsOutOfLedger || kick.ledgerOptOutSteps().any { it.pick(step) }
+
+  /** The unresolved request as reported before the step runs; built once, on first use. */
+  val rawHttpRequest: HttpRequest by lazy { step.rawPMStep.request.toHttpRequest(null) }
+
+  override fun toString(): String = "StepPlan(${step.path})"
+}
+
+@JvmSynthetic
+internal fun planSteps(steps: List<Step>, kick: Kick): List<StepPlan> =
+  steps.map { StepPlan(it, kick) }
+
+/** The [listen] (`prerequest`/`test`) script of this item, lines joined; `null` when blank. */
+internal fun Item.script(listen: String): String? =
+  event
+    ?.find { it.listen == listen }
+    ?.script
+    ?.exec
+    ?.joinToString("\n")
+    ?.takeUnless { it.isBlank() }
+
+private fun Request.hasPlaceholders(): Boolean =
+  url.raw.contains("{{") ||
+    header.any { it.key.contains("{{") || it.value.contains("{{") } ||
+    body?.raw?.contains("{{") == true ||
+    auth?.bearer?.firstOrNull()?.value?.contains("{{") == true
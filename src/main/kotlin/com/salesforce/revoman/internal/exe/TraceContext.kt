@@ -0,0 +1,88 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.exe
+
+import com.salesforce.revoman.output.report.ServerTiming
+import com.salesforce.revoman.output.report.Step
+import java.time.Duration
+import java.util.UUID
+import org.http4k.core.Request
+
+internal const val TRACEPARENT = "traceparent"
+
+internal const val SERVER_TIMING = "Server-Timing"
+
+/** A fresh W3C trace id for one run: 32 lowercase hex digits, never all zeros. */
+@JvmSynthetic internal fun newTraceId(): String = UUID.randomUUID().toString().replace("-", "")
+
+/**
+ * The W3C `traceparent` for [iteration] of [step] in the run traced by [traceId]. The parent id is
+ * derived from the run and the step's index, so a step's span is the same wherever it's logged and
+ * a rerun of one step in a loop still gets a span of its own.
+ */
+@JvmSynthetic
+internal fun traceparent(traceId: String, step: Step, iteration: Int): String {
+  var hash = FNV_OFFSET_BASIS
+  for (char in "$traceId/${step.index}/$iteration") {
+    hash = (hash xor char.code.toLong()) * FNV_PRIME
+  }
+  val parentId = if (hash == 0L) 1L else hash
+  return "00-$traceId-${"%016x".format(parentId)}-01"
+}
+
+/** [request] with [traceparent] added, unless the collection already sends one of its own. */
+@JvmSynthetic
+internal fun withTraceparent(request: Request, traceparent: String): Request =
+  if (request.header(TRACEPARENT) != null) request else request.header(TRACEPARENT, traceparent)
+
+/**
+ * Parses `Server-Timing` [headerValues] (the header may repeat, each holding comma-separated
+ * metrics) per the W3C Server Timing spec, skipping metrics it can't read rather than failing.
+ */
+@JvmSynthetic
+internal fun parseServerTiming(headerValues: List<String?>): List<ServerTiming> =
+  headerValues
+    .filterNotNull()
+    .flatMap { splitOutsideQuotes(it, ',') }
+    .mapNotNull { metric ->
+      val parts = splitOutsideQuotes(metric, ';').map { it.trim() }
+      val name = parts.firstOrNull()?.takeIf { it.isNotEmpty() } ?: return@mapNotNull null
+      val params =
+        parts.drop(1).associate { param ->
+          param.substringBefore('=').trim().lowercase() to
+            param.substringAfter('=', "").trim().removeSurrounding("\"")
+        }
+      ServerTiming(
+        name,
+        params["dur"]?.toDoubleOrNull()?.let { Duration.ofNanos((it * NANOS_PER_MILLI).toLong()) },
+        params["desc"]?.takeIf { it.isNotEmpty() },
+      )
+    }
+
+private fun splitOutsideQuotes(value: String, delimiter: Char): List<String> {
+  val parts = mutableListOf<String>()
+  var quoted = false
+  var start = 0
+  value.forEachIndexed { index, char ->
+    when {
+      char == '"' -> quoted = !quoted
+      char == delimiter && !quoted -> {
+        parts += value.substring(start, index)
+        start = index + 1
+      }
+    }
+  }
+  parts += value.substring(start)
+  return parts.filter { it.isNotBlank() }
+}
+
+private const val FNV_OFFSET_BASIS = -0x340d631b7bdddcdbL // 0xcbf29ce484222325
+
+private const val FNV_PRIME = 0x100000001b3L
+
+private const val NANOS_PER_MILLI = 1_000_000
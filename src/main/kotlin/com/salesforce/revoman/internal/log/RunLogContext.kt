@@ -14,11 +14,14 @@ import io.github.oshai.kotlinlogging.KotlinLogging
 
 /**
  * Holds the [RunLogSink] active for the current [com.salesforce.revoman.ReVoman.revUp] run. A
- * ThreadLocal because a run executes its steps serially on one thread. [install] the sink at the
- * start of a run and [restore] the returned previous sink in its `finally`; this install/restore
- * pair STACKS, so a nested `revUp` (e.g. a runbook driving per-step kicks) does not wipe the outer
- * run's sink. [current] is `null` outside any run (the default, NoOp-equivalent path), so
- * non-instrumented callers pay nothing. [remove] remains for callers that unconditionally clear.
+ * ThreadLocal because a run drives its steps from one thread; concurrent runs
+ * ([com.salesforce.revoman.ReVoman.revUpAll]) each run on their own (virtual) thread, so each sees
+ * only its own sink. Step-wave HTTP workers log through the module logger only, never the sink.
+ * [install] the sink at the start of a run and [restore] the returned previous sink in its
+ * `finally`; this install/restore pair STACKS, so a nested `revUp` (e.g. a runbook driving
+ * per-step kicks) does not wipe the outer run's sink. [current] is `null` outside any run (the
+ * default, NoOp-equivalent path), so non-instrumented callers pay nothing. [remove] remains for
+ * callers that unconditionally clear.
  *
  * **Callers MUST guarantee [restore] (or [remove]) runs (e.g. in a `finally`)** — a skipped restore
  * leaks the sink across thread-pool reuse, mis-routing a later unrelated run's logs into a stale
@@ -0,0 +1,86 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.postman
+
+import com.salesforce.revoman.output.postman.PersistentBackedMutableMap
+
+/**
+ * Which env entries still need `{{…}}` resolution, so [RegexReplacer.reResolveEnv] touches only
+ * those instead of re-walking the whole env before every step.
+ *
+ * A resolved entry is written back without its placeholders, so after a pass the only entries left
+ * with any are those referencing a variable that could not be resolved yet (or a placeholder KEY,
+ * which stays in the env as-is). Those are kept in [pending] with the variables they reference,
+ * and [dependents] maps each such variable back to them. On the next pass the candidates are:
+ * - every env key written since the last pass (new placeholder values, e.g. set by a script),
+ * - the [dependents] of those keys, now possibly resolvable,
+ * - the [dependents] of variables that are dynamic (`$…`/custom generators, never cacheable) or
+ *   have since appeared in `collectionVariables`/`globals`, whose writes aren't journaled.
+ *
+ * The write journal comes from [PersistentBackedMutableMap.drainChangedKeys]. Any other backing,
+ * a cleared env or a different env instance falls back to scanning every entry once.
+ */
+internal class EnvResolutionIndex {
+  private var indexedEnv: MutableMap<String, Any?>? = null
+  private val pending = HashMap<String, Set<String>>()
+  private val dependents = HashMap<String, MutableSet<String>>()
+
+  val pendingKeys: Set<String>
+    get() = pending.keys
+
+  /** Env keys to (re-)resolve this pass, in env order for a full scan. */
+  fun candidates(
+    env: MutableMap<String, Any?>,
+    isDynamic: (String) -> Boolean,
+    inOuterScopes: (String) -> Boolean,
+  ): Collection<String> {
+    val changed = (env as? PersistentBackedMutableMap<Any?>)?.drainChangedKeys()
+    if (env !== indexedEnv || changed == null) {
+      indexedEnv = env
+      pending.clear()
+      dependents.clear()
+      return env.entries.filter { (key, value) -> hasPlaceholder(key, value) }.map { it.key }
+    }
+    val candidates = LinkedHashSet<String>()
+    changed.forEach { key ->
+      candidates += key
+      dependents[key]?.let(candidates::addAll)
+    }
+    dependents.forEach { (variable, entries) ->
+      if (isDynamic(variable) || inOuterScopes(variable)) candidates += entries
+    }
+    return candidates
+  }
+
+  /** Records what [key] references after this pass; unresolved variables make it pending. */
+  fun track(key: String, variables: Set<String>) {
+    forget(key)
+    if (variables.isEmpty()) return
+    pending[key] = variables
+    variables.forEach { dependents.getOrPut(it) { HashSet() } += key }
+  }
+
+  fun forget(key: String) {
+    pending.remove(key)?.forEach { variable ->
+      dependents[variable]?.let {
+        it -= key
+        if (it.isEmpty()) dependents -= variable
+      }
+    }
+  }
+
+  companion object {
+    fun hasPlaceholder(key: String, value: Any?): Boolean =
+      key.contains("{{") || (value is String && value.contains("{{"))
+
+    /** Variables [text] still references, empty when it has no placeholder. */
+    fun variablesIn(text: String?): List<String> =
+      if (text == null || !text.contains("{{")) emptyList()
+      else PlaceholderTemplate.of(text).variables
+  }
+}
@@ -0,0 +1,320 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.postman
+
+import com.salesforce.revoman.internal.postman.sandbox.normalizeNumber
+import com.salesforce.revoman.output.ExeType.POST_RES_JS
+import com.salesforce.revoman.output.postman.PostmanEnvironment
+import com.salesforce.revoman.output.report.PmTestAssertion
+import com.salesforce.revoman.output.report.Step
+
+/**
+ * A test script made only of the declarative shapes most collections use, run as host operations
+ * on [PostmanSDK] instead of through the GraalJS sandbox. [compile] accepts this strict grammar and
+ * returns `null` for anything else, in which case the script runs in the sandbox unchanged:
+ * ```
+ * script    := (statement ';'?)*
+ * statement := 'pm.test(' STRING ',' callback ')' | scope '.set(' STRING ',' value ')'
+ * callback  := '() =>' assertion | ('() => {' | 'function () {') assertion ';'? '}'
+ * assertion := 'pm.expect(pm.response.code).to.' ('eql' | 'equal') '(' INT ')'
+ *            | 'pm.response.to.have.status(' INT ')'
+ * scope     := 'pm.environment' | 'pm.collectionVariables' | 'pm.globals'
+ * value     := 'pm.response.code' | 'pm.response.headers.get(' STRING ')'
+ *            | 'pm.response.json()' ('.' IDENT | '[' INT ']' | '[' STRING ']')*
+ * ```
+ *
+ * Strings are single- or double-quoted without escapes, and `//` line comments are skipped.
+ *
+ * Running mirrors the sandbox exactly or not at all. A value the sandbox would hand back as
+ * anything but a string, number or boolean (an object, `null`, `undefined` for a missing path or
+ * header, a body that isn't strict JSON) makes [runOn] return `false` before any effect, and the
+ * caller falls back to the sandbox. Failed assertions carry chai's own messages.
+ */
+internal class NativeScript private constructor(private val statements: List<Statement>) {
+  /**
+   * Runs this script against [pm]'s current response for [step]: scope writes go through the same
+   * set paths (and ledger) as the sandbox's diffed-back writes, and `pm.test` results are recorded
+   * as [POST_RES_JS] assertions. `false` when the sandbox must run it instead.
+   */
+  fun runOn(pm: PostmanSDK, step: Step): Boolean {
+    val response = pm.response
+    val json by lazy { runCatching { response.strictJson() }.getOrNull() }
+    // Keyed by Scope, not the PostmanEnvironment: a data class, it hashes (and equals) by content
+    val writes = LinkedHashMap<Pair<Scope, String>, Any>()
+    val assertions = ArrayList<PmTestAssertion>()
+    for (statement in statements) {
+      when (statement) {
+        is Statement.Test ->
+          assertions +=
+            statement.assertion.failureFor(response.code).let {
+              PmTestAssertion(statement.name, it == null, false, it, POST_RES_JS)
+            }
+        is Statement.Write -> {
+          val value =
+            when (val source = statement.value) {
+              ValueSource.ResponseCode -> response.code
+              is ValueSource.Header -> response.singleHeader(source.name)
+              is ValueSource.JsonPath -> source.resolveIn(json)
+            } ?: return false
+          writes[statement.scope to statement.key] = value
+        }
+      }
+    }
+    // Like the sandbox's scope diff: only the final value of each key, and only when it changed
+    writes.forEach { (target, value) ->
+      val (scope, key) = target
+      val env = scope.of(pm)
+      if (!env.containsKey(key) || env[key] != value) env.set(key, value)
+    }
+    pm.recordPmTestAssertions(step, assertions)
+    return true
+  }
+
+  private sealed interface Statement {
+    class Test(val name: String, val assertion: StatusAssertion) : Statement
+
+    class Write(val scope: Scope, val key: String, val value: ValueSource) : Statement
+  }
+
+  private class StatusAssertion(private val expected: Int, private val style: String) {
+    /** chai's failure message, `null` when it passes. */
+    fun failureFor(code: Int): String? =
+      when {
+        code == expected -> null
+        style == "status" -> "expected response to have status code $expected but got $code"
+        style == "eql" -> "expected $code to deeply equal $expected"
+        else -> "expected $code to equal $expected"
+      }
+  }
+
+  private enum class Scope {
+    ENVIRONMENT,
+    COLLECTION_VARIABLES,
+    GLOBALS;
+
+    fun of(pm: PostmanSDK): PostmanEnvironment<Any?> =
+      when (this) {
+        ENVIRONMENT -> pm.environment
+        COLLECTION_VARIABLES -> pm.collectionVariables
+        GLOBALS -> pm.globals
+      }
+  }
+
+  private sealed interface ValueSource {
+    data object ResponseCode : ValueSource
+
+    class Header(val name: String) : ValueSource
+
+    /** Segments are object keys (`String`) or array indices (`Int`). */
+    class JsonPath(private val segments: List<Any>) : ValueSource {
+      fun resolveIn(root: Any?): Any? {
+        var node = root
+        for (segment in segments) {
+          node =
+            when {
+              node is Map<*, *> && node.containsKey(segment.toString()) -> node[segment.toString()]
+              node is List<*> && segment is Int && segment < node.size -> node[segment]
+              else -> return null
+            }
+        }
+        return when (node) {
+          is String,
+          is Boolean -> node
+          is Double -> normalizeNumber(node)
+          else -> null
+        }
+      }
+    }
+  }
+
+  private class Token(val kind: Kind, val text: String) {
+    enum class Kind {
+      IDENT,
+      STRING,
+      INT,
+      PUNCT,
+    }
+  }
+
+  /** Thrown (and caught in [compile]) at the first token outside the grammar. */
+  private class NotNative : RuntimeException(null, null, false, false)
+
+  private class Parser(private val tokens: List<Token>) {
+    private var pos = 0
+
+    fun script(): List<Statement> {
+      val statements = ArrayList<Statement>()
+      while (pos < tokens.size) {
+        if (!accept(";")) statements += statement()
+      }
+      return statements.ifEmpty { throw NotNative() }
+    }
+
+    private fun statement(): Statement {
+      expect("pm", ".")
+      return when (val name = next(Token.Kind.IDENT)) {
+        "test" -> {
+          expect("(")
+          val testName = next(Token.Kind.STRING)
+          expect(",")
+          val assertion = callback()
+          expect(")")
+          Statement.Test(testName, assertion)
+        }
+        else -> {
+          val scope =
+            when (name) {
+              "environment" -> Scope.ENVIRONMENT
+              "collectionVariables" -> Scope.COLLECTION_VARIABLES
+              "globals" -> Scope.GLOBALS
+              else -> throw NotNative()
+            }
+          expect(".", "set", "(")
+          val key = next(Token.Kind.STRING)
+          expect(",")
+          val value = value()
+          expect(")")
+          Statement.Write(scope, key, value)
+        }
+      }
+    }
+
+    private fun callback(): StatusAssertion {
+      val braced =
+        if (accept("function")) {
+          expect("(", ")", "{")
+          true
+        } else {
+          expect("(", ")", "=>")
+          accept("{")
+        }
+      val assertion = assertion()
+      if (braced) {
+        accept(";")
+        expect("}")
+      }
+      return assertion
+    }
+
+    private fun assertion(): StatusAssertion {
+      expect("pm", ".")
+      return when (next(Token.Kind.IDENT)) {
+        "expect" -> {
+          expect("(", "pm", ".", "response", ".", "code", ")", ".", "to", ".")
+          val style = next(Token.Kind.IDENT).takeIf { it == "eql" || it == "equal" }
+          expect("(")
+          StatusAssertion(int(), style ?: throw NotNative()).also { expect(")") }
+        }
+        "response" -> {
+          expect(".", "to", ".", "have", ".", "status", "(")
+          StatusAssertion(int(), "status").also { expect(")") }
+        }
+        else -> throw NotNative()
+      }
+    }
+
+    private fun value(): ValueSource {
+      expect("pm", ".", "response", ".")
+      return when (next(Token.Kind.IDENT)) {
+        "code" -> ValueSource.ResponseCode
+        "headers" -> {
+          expect(".", "get", "(")
+          ValueSource.Header(next(Token.Kind.STRING)).also { expect(")") }
+        }
+        "json" -> {
+          expect("(", ")")
+          val segments = ArrayList<Any>()
+          while (true) {
+            when {
+              accept(".") -> segments += next(Token.Kind.IDENT)
+              accept("[") -> {
+                segments += if (peek()?.kind == Token.Kind.INT) int() else next(Token.Kind.STRING)
+                expect("]")
+              }
+              else -> break
+            }
+          }
+          ValueSource.JsonPath(segments)
+        }
+        else -> throw NotNative()
+      }
+    }
+
+    private fun peek(): Token? = tokens.getOrNull(pos)
+
+    private fun accept(text: String): Boolean =
+      (peek()?.takeIf { it.kind != Token.Kind.STRING && it.text == text } != null).also {
+        if (it) pos++
+      }
+
+    private fun expect(vararg texts: String) = texts.forEach { if (!accept(it)) throw NotNative() }
+
+    private fun next(kind: Token.Kind): String =
+      peek()?.takeIf { it.kind == kind }?.also { pos++ }?.text ?: throw NotNative()
+
+    private fun int(): Int = next(Token.Kind.INT).toInt()
+  }
+
+  companion object {
+    /** The native form of [script], or `null` when any part of it is outside the grammar. */
+    fun compile(script: String): NativeScript? =
+      try {
+        NativeScript(Parser(tokenize(script)).script())
+      } catch (_: NotNative) {
+        null
+      }
+
+    private fun tokenize(script: String): List<Token> {
+      val tokens = ArrayList<Token>()
+      var index = 0
+      while (index < script.length) {
+        val char = script[index]
+        when {
+          char.isWhitespace() -> index++
+          script.startsWith("//", index) ->
+            index = script.indexOf('\n', index).takeIf { it >= 0 } ?: script.length
+          script.startsWith("=>", index) -> {
+            tokens += Token(Token.Kind.PUNCT, "=>")
+            index += 2
+          }
+          char in ".()[],;{}" -> {
+            tokens += Token(Token.Kind.PUNCT, char.toString())
+            index++
+          }
+          char == '\'' || char == '"' -> {
+            val end = script.indexOf(char, index + 1)
+            if (end < 0) throw NotNative()
+            val text = script.substring(index + 1, end)
+            if ('\\' in text || '\n' in text) throw NotNative()
+            tokens += Token(Token.Kind.STRING, text)
+            index = end + 1
+          }
+          char.isDigit() -> {
+            val end = script.firstIndexFrom(index) { !it.isDigit() }
+            if (end - index > 9) throw NotNative()
+            tokens += Token(Token.Kind.INT, script.substring(index, end))
+            index = end
+          }
+          char.isLetter() || char == '_' || char == '$' -> {
+            val end =
+              script.firstIndexFrom(index) { !it.isLetterOrDigit() && it != '_' && it != '$' }
+            tokens += Token(Token.Kind.IDENT, script.substring(index, end))
+            index = end
+          }
+          else -> throw NotNative()
+        }
+      }
+      return tokens
+    }
+
+    private inline fun String.firstIndexFrom(from: Int, predicate: (Char) -> Boolean): Int {
+      for (index in from until length) if (predicate(this[index])) return index
+      return length
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.postman
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * A string parsed once into alternating literal and `{{variable}}` segments, so resolving it is a
+ * single [StringBuilder] pass — no regex, no `MatchResult` per placeholder. Parsing follows the
+ * `\{\{([^{}]*?)}}` Postman grammar exactly: a placeholder opens at the leftmost `{{` whose body
+ * (no `{` or `}`) is closed by `}}`; anything else, stray braces included, stays literal.
+ *
+ * Segments are stored flat: [parts] alternates literal, variable, literal, …, always starting and
+ * ending with a (possibly empty) literal, so `parts.size == 2 × variableCount + 1`.
+ */
+internal class PlaceholderTemplate private constructor(private val parts: Array<String>) {
+  private val estimatedLength: Int = parts.sumOf { it.length + 4 }
+
+  val variableCount: Int
+    get() = parts.size / 2
+
+  /** Each placeholder's key, in order of appearance (duplicates kept). */
+  val variables: List<String>
+    get() = (1 until parts.size step 2).map { parts[it] }
+
+  /**
+   * Renders the template, writing [resolve]'s value for each variable or, when it returns `null`,
+   * the placeholder back verbatim.
+   */
+  fun render(resolve: (String) -> String?): String {
+    val rendered = StringBuilder(estimatedLength)
+    for (index in parts.indices) {
+      val part = parts[index]
+      if (index % 2 == 0) {
+        rendered.append(part)
+      } else {
+        resolve(part)?.let { rendered.append(it) }
+          ?: rendered.append("{{").append(part).append("}}")
+      }
+    }
+    return rendered.toString()
+  }
+
+  companion object {
+    /**
+     * Beyond this many distinct strings the cache stops growing and further strings are compiled
+     * per call: step templates are a bounded set, but resolved values a script keeps generating
+     * are not.
+     */
+    private const val MAX_CACHED = 10_000
+
+    private val cache = ConcurrentHashMap<String, PlaceholderTemplate>()
+
+    /** The compiled template of [raw], shared by every run in the JVM. */
+    fun of(raw: String): PlaceholderTemplate =
+      cache[raw] ?: compile(raw).also { if (cache.size < MAX_CACHED) cache.putIfAbsent(raw, it) }
+
+    fun compile(raw: String): PlaceholderTemplate {
+      val parts = ArrayList<String>()
+      var literalStart = 0
+      var cursor = raw.indexOf("{{")
+      while (cursor >= 0) {
+        var end = cursor + 2
+        while (end < raw.length && raw[end] != '{' && raw[end] != '}') end++
+        if (end + 1 < raw.length && raw[end] == '}' && raw[end + 1] == '}') {
+          parts += raw.substring(literalStart, cursor)
+          parts += raw.substring(cursor + 2, end)
+          literalStart = end + 2
+          cursor = raw.indexOf("{{", literalStart)
+        } else {
+          cursor = raw.indexOf("{{", cursor + 1)
+        }
+      }
+      parts += raw.substring(literalStart)
+      return PlaceholderTemplate(parts.toTypedArray())
+    }
+  }
+}
@@ -8,15 +8,19 @@
 package com.salesforce.revoman.internal.postman
 
 import com.github.underscore.U
+import com.salesforce.revoman.internal.exe.newTraceId
 import com.salesforce.revoman.internal.json.MoshiReVoman
 import com.salesforce.revoman.internal.postman.sandbox.sharedGraalEngine
 import com.salesforce.revoman.internal.postman.template.Body
 import com.salesforce.revoman.internal.postman.template.Event
 import com.salesforce.revoman.internal.postman.template.Header
 import com.salesforce.revoman.internal.postman.template.Url
+import com.salesforce.revoman.output.ExeType
 import com.salesforce.revoman.output.Rundown
+import com.salesforce.revoman.output.StepReportLog
 import com.salesforce.revoman.output.postman.PostmanEnvironment
 import com.salesforce.revoman.output.report.PmTestAssertion
+import com.salesforce.revoman.output.report.SandboxProfile
 import com.salesforce.revoman.output.report.Step
 import com.salesforce.revoman.output.report.StepReport
 import io.exoquery.pprint
@@ -64,6 +68,9 @@ class PostmanSDK(
   /** The active environment's display name, exposed to scripts via `pm.environment.name`. */
   @JvmField var environmentName: String? = null
 
+  /** This run's W3C trace id, shared by every step's `traceparent` under `Kick.traceContext`. */
+  internal val traceId: String = newTraceId()
+
   /**
    * Postman variable-scope precedence (narrowest wins): `environment` ▸ `collectionVariables` ▸
    * `globals`. Returns the value from the first scope that *contains* [key], or `null` when no
@@ -98,6 +105,8 @@ class PostmanSDK(
   private val nextRequestByStep: MutableMap<Step, String?> = mutableMapOf()
   private val nextRequestSetByStep: MutableMap<Step, Boolean> = mutableMapOf()
   private val skipRequestByStep: MutableMap<Step, Boolean> = mutableMapOf()
+  private val sandboxProfilesByStep: MutableMap<Step, Map<ExeType, SandboxProfile>> =
+    mutableMapOf()
 
   lateinit var info: Info
   lateinit var request: Request
@@ -107,7 +116,14 @@ class PostmanSDK(
   lateinit var rundown: Rundown
   @JvmField val xml2Json = Xml2Json { xml -> moshiReVoman.fromJson(U.xmlToJson(xml)) }
   // * NOTE 28 Apr 2024 gopala.akshintala: This has to be initialized at last
-  private val jsEvaluator: JSEvaluator = JSEvaluator(nodeModulesPath)
+  // Scripts run in the pooled sandbox; this second Context only backs [evaluateJS] and
+  // [jsonStrToObj], so it's created on first use. A run that never calls them creates no Context.
+  private val jsEvaluatorDelegate = lazy { JSEvaluator(nodeModulesPath) }
+  private val jsEvaluator: JSEvaluator by jsEvaluatorDelegate
+
+  /** Whether this instance has created its [JSEvaluator] Context yet. */
+  internal val hasJsContext: Boolean
+    get() = jsEvaluatorDelegate.isInitialized()
 
   @SuppressWarnings("kotlin:S6517")
   @FunctionalInterface // DON'T REMOVE THIS. Polyglot won't work without this
@@ -168,15 +184,13 @@ class PostmanSDK(
    * the current step's entry (matched as the last report for the same [Step]) rather than
    * appending, so the current execution appears ONCE mid-run (not the old 3-4x) — earlier steps and
    * prior loop iterations (which sit before it, and for a looped step legitimately repeat the same
-   * [Step]) are untouched. Keeps [Rundown] immutable via [Rundown.copy].
+   * [Step]) are untouched. Keeps [Rundown] immutable: the replace is an O(1) update of the run's
+   * persistent [StepReportLog], not a copy of every report so far.
    */
   internal fun syncProgress(stepReport: StepReport) {
     currentStepReport = stepReport
-    val reports = rundown.stepReports
-    val updated =
-      if (reports.lastOrNull()?.step == stepReport.step) reports.dropLast(1) + stepReport
-      else reports + stepReport
-    rundown = rundown.copy(stepReports = updated)
+    val log = rundown.stepReportLog ?: StepReportLog.of(rundown.stepReports)
+    rundown = rundown.withStepReportLog(log.replaceLastOrAppend(stepReport))
   }
 
   /** Accumulates assertions across a step's pre-req + post-res scripts. */
@@ -209,6 +223,14 @@ class PostmanSDK(
 
   internal fun skipRequestFor(step: Step): Boolean = skipRequestByStep[step] ?: false
 
+  /** Records where [step]'s [exeType] script spent its time in the sandbox. */
+  internal fun recordSandboxProfile(step: Step, exeType: ExeType, profile: SandboxProfile) {
+    sandboxProfilesByStep[step] = (sandboxProfilesByStep[step] ?: emptyMap()) + (exeType to profile)
+  }
+
+  internal fun sandboxProfilesFor(step: Step): Map<ExeType, SandboxProfile> =
+    sandboxProfilesByStep[step] ?: emptyMap()
+
   /**
    * Clears this step's per-execution control-flow + assertion capture. Called at the start of each
    * execution so a step that runs more than once (a setNextRequest loop) does not inherit the prior
@@ -220,12 +242,12 @@ class PostmanSDK(
     nextRequestSetByStep.remove(step)
     skipRequestByStep.remove(step)
     pmTestAssertionsByStep.remove(step)
+    sandboxProfilesByStep.remove(step)
   }
 
   internal fun setRequestAndResponse(pmRequest: Request, httpResponse: org.http4k.core.Response) {
     request = pmRequest
-    response =
-      Response(httpResponse.status.code, httpResponse.status.toString(), httpResponse.bodyString())
+    setResponse(httpResponse)
   }
 
   internal fun setRequest(pmRequest: Request) {
@@ -234,7 +256,12 @@ class PostmanSDK(
 
   internal fun setResponse(httpResponse: org.http4k.core.Response) {
     response =
-      Response(httpResponse.status.code, httpResponse.status.toString(), httpResponse.bodyString())
+      Response(
+        httpResponse.status.code,
+        httpResponse.status.toString(),
+        httpResponse.bodyString(),
+        httpResponse.headers.map { (key, value) -> Header(key, value ?: "") },
+      )
   }
 
   internal fun setResponse(code: Int, status: String, body: String) {
@@ -247,7 +274,7 @@ class PostmanSDK(
   // Memoized JSON.parse closure: a stateless guest function bound to this instance's jsContext.
   // Parsing the function literal once (not per call) skips a Source parse + compile on every
   // json()/jsonStrToObj call. Reuse is safe — the closure holds no per-call state; only its
-  // argument varies. `by lazy` defers forcing until the first parse (jsEvaluator is init'd last).
+  // argument varies. `by lazy` defers forcing, and the Context with it, until the first parse.
   private val jsonParseFn: Value by lazy {
     @Language("JavaScript")
     val jsonParseArrow = "jsonStr => JSON.parse(jsonStr, {allowComments: true})"
@@ -307,6 +334,7 @@ class PostmanSDK(
     @JvmField val code: Int,
     @JvmField val status: String,
     @JvmField val body: String,
+    @JvmField val headers: List<Header> = emptyList(),
   ) {
     /**
      * This is implemented using
@@ -315,6 +343,13 @@ class PostmanSDK(
     fun json(): Value = jsonStrToObj(body)
 
     fun text(): String = body
+
+    /** The body parsed without the JS engine; throws unless it is strict JSON. */
+    internal fun strictJson(): Any? = moshiReVoman.adapter<Any>(Any::class.java).fromJson(body)
+
+    /** The value of the only header named [name] (case-insensitive), `null` for none or several. */
+    internal fun singleHeader(name: String): String? =
+      headers.filter { it.key.equals(name, ignoreCase = true) }.singleOrNull()?.value
   }
 
   @Suppress("unused")
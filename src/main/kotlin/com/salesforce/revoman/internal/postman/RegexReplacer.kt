@@ -13,9 +13,6 @@ import com.salesforce.revoman.internal.postman.template.Auth.Bearer
 import com.salesforce.revoman.internal.postman.template.Item
 import com.salesforce.revoman.internal.postman.template.Request
 
-private const val VARIABLE_KEY = "variableKey"
-private val postManVariableRegex = "\\{\\{(?<$VARIABLE_KEY>[^{}]*?)}}".toRegex()
-
 class RegexReplacer(
   private val customDynamicVariableGenerators: Map<String, CustomDynamicVariableGenerator> =
     emptyMap(),
@@ -34,19 +31,23 @@ class RegexReplacer(
   internal fun replaceVariablesRecursively(stringWithRegex: String?, pm: PostmanSDK): String? =
     replaceVariablesRecursively(stringWithRegex, pm, emptySet())
 
+  /**
+   * Each string is compiled once into a [PlaceholderTemplate] (cached JVM-wide by content), so the
+   * per-step passes over headers, URL and body render segment by segment instead of re-scanning
+   * with a regex.
+   */
   private fun replaceVariablesRecursively(
     stringWithRegex: String?,
     pm: PostmanSDK,
     visitedKeys: Set<String>,
   ): String? = stringWithRegex?.let {
     if (!it.contains("{{")) return@let it
-    postManVariableRegex.replace(it) { variable ->
-      val variableKey = variable.groups[VARIABLE_KEY]?.value!!
+    PlaceholderTemplate.of(it).render { variableKey ->
       if (variableKey in visitedKeys) {
         RevomanLog.warn {
           "Cyclic variable reference detected: $variableKey is part of a resolution chain. Leaving placeholder {{$variableKey}} unresolved."
         }
-        return@replace variable.value
+        return@render null
       }
       val newVisitedKeys = visitedKeys + variableKey
       customDynamicVariableGenerators[variableKey]
@@ -65,7 +66,6 @@ class RegexReplacer(
           )
           ?.also { value -> setItBackInEnvironment(variableKey, value, pm) }
         ?: resolveFromScopes(variableKey, pm, newVisitedKeys)
-        ?: variable.value
     }
   }
 
@@ -133,6 +133,42 @@ class RegexReplacer(
         ),
     )
 
+  private val envIndex = EnvResolutionIndex()
+
+  /**
+   * Resolves placeholders left in `pm.environment` ahead of a step, writing back only entries whose
+   * resolution changed. Only entries the [EnvResolutionIndex] flags — written since the last pass,
+   * or waiting on a variable that may now resolve — are looked at, so a large static env costs
+   * nothing per step. Equivalent to `putAll(`[replaceVariablesInEnv]`)` minus the no-op rewrites.
+   */
+  internal fun reResolveEnv(pm: PostmanSDK) {
+    val env = pm.environment
+    val candidates =
+      envIndex.candidates(
+        env.mutableEnv,
+        isDynamic = { it.startsWith("$") || it in customDynamicVariableGenerators },
+        inOuterScopes = { pm.collectionVariables.containsKey(it) || pm.globals.containsKey(it) },
+      )
+    candidates.forEach { key ->
+      val value = env[key]
+      if (!env.containsKey(key) || !EnvResolutionIndex.hasPlaceholder(key, value)) {
+        envIndex.forget(key)
+        return@forEach
+      }
+      val resolvedKey = replaceVariablesRecursively(key, pm)!!
+      val resolvedValue = if (value is String?) replaceVariablesRecursively(value, pm) else value
+      if (resolvedKey != key || resolvedValue != value) env[resolvedKey] = resolvedValue
+      // A placeholder KEY stays in the env untouched, still referencing its original value.
+      val remaining = if (resolvedKey != key) value else resolvedValue
+      envIndex.track(
+        key,
+        (EnvResolutionIndex.variablesIn(key) +
+            EnvResolutionIndex.variablesIn(remaining as? String))
+          .toSet(),
+      )
+    }
+  }
+
   internal fun replaceVariablesInEnv(pm: PostmanSDK): Map<String, Any?> =
     pm.environment.toMap().entries.associate { (key, value) ->
       val valueHasPlaceholder = value is String && value.contains("{{")
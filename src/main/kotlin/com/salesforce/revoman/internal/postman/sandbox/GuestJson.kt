@@ -0,0 +1,68 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.postman.sandbox
+
+import org.graalvm.polyglot.Value
+
+/**
+ * Copies a guest [Value] straight into plain host objects, with `JSON.stringify` semantics, so the
+ * copy equals what [Flatted.parse] returns for the same payload without serializing it to a string
+ * and parsing it back:
+ * - `toJSON()` is honoured (postman-collection's `VariableScope`, `PropertyList`, `Date`, …),
+ * - functions and `undefined` are dropped from objects and become `null` in arrays,
+ * - numbers come back as `Double` and non-finite ones as `null`.
+ *
+ * Throws [NotPlain] for anything JSON can't express as-is — a cycle (what Flatted exists for), a
+ * `BigInt`, a symbol, a host object — so the caller falls back to Flatted for that payload.
+ */
+internal object GuestJson {
+  class NotPlain : RuntimeException(null, null, false, false)
+
+  /** Marks a value `JSON.stringify` skips: a function or `undefined`. */
+  private val OMITTED = Any()
+
+  fun copy(value: Value): Any? = copy("", value, ArrayList()).takeUnless { it === OMITTED }
+
+  private fun copy(key: String, raw: Value, ancestors: MutableList<Value>): Any? {
+    val value =
+      if (raw.hasMembers() && raw.canInvokeMember("toJSON")) raw.invokeMember("toJSON", key)
+      else raw
+    return when {
+      value.isNull -> if (value.toString() == "undefined") OMITTED else null
+      value.isBoolean -> value.asBoolean()
+      value.isString -> value.asString()
+      value.isNumber && value.fitsInDouble() -> value.asDouble().takeIf { it.isFinite() }
+      value.canExecute() -> OMITTED
+      value.isHostObject -> throw NotPlain()
+      value.hasArrayElements() ->
+        nested(value, ancestors) {
+          List(value.arraySize.toInt()) { index ->
+            copy(index.toString(), value.getArrayElement(index.toLong()), ancestors).takeUnless {
+              it === OMITTED
+            }
+          }
+        }
+      value.hasMembers() ->
+        nested(value, ancestors) {
+          val copied = LinkedHashMap<String, Any?>()
+          for (member in value.memberKeys) {
+            val element = copy(member, value.getMember(member), ancestors)
+            if (element !== OMITTED) copied[member] = element
+          }
+          copied
+        }
+      else -> throw NotPlain()
+    }
+  }
+
+  private inline fun nested(value: Value, ancestors: MutableList<Value>, copy: () -> Any?): Any? {
+    if (ancestors.any { it == value }) throw NotPlain()
+    ancestors += value
+    return copy().also { ancestors.removeAt(ancestors.lastIndex) }
+  }
+}
@@ -7,6 +7,10 @@
  */
 package com.salesforce.revoman.internal.postman.sandbox
 
+import com.salesforce.revoman.internal.exe.prepareHttpClient
+import com.salesforce.revoman.output.report.SandboxProfile
+import org.http4k.core.HttpHandler
+
 /** Which sandbox lifecycle script is running. Maps to Postman's event `listen` value. */
 internal enum class ScriptTarget(val listen: String) {
   PRE_REQUEST("prerequest"),
@@ -17,13 +21,23 @@ internal enum class ScriptTarget(val listen: String) {
  * A single variable scope (environment / globals / collectionVariables) as key→value. [name] is the
  * scope's display name (e.g. the environment name) — exposed to scripts via `pm.environment.name`;
  * null when the scope is unnamed.
+ *
+ * A [live] scope passes the host's own map rather than a snapshot. The sandbox keeps it mirrored
+ * across executions ([ScopeMirror]), sends it only the keys changed since the previous one, and
+ * reports back only what the script changed, in [PmExecutionResult.deltas].
  */
-internal data class PmScope(val id: String, val values: Map<String, Any?>, val name: String? = null)
+internal data class PmScope(
+  val id: String,
+  val values: Map<String, Any?>,
+  val name: String? = null,
+  val live: Boolean = false,
+)
 
 /**
  * Everything the sandbox needs to execute one script. Variable scopes are snapshots taken from
  * [com.salesforce.revoman.output.postman.PostmanEnvironment] (and friends) before execution; the
- * sandbox returns mutated copies in [PmExecutionResult].
+ * sandbox returns mutated copies in [PmExecutionResult]. [httpClient] sends the script's
+ * `pm.sendRequest`s: the run's own pooled client, so they honour `insecureHttp` like its steps.
  */
 internal data class PmExecutionContext(
   val environment: PmScope,
@@ -31,6 +45,7 @@ internal data class PmExecutionContext(
   val collectionVariables: PmScope = PmScope("collectionVariables", emptyMap()),
   val request: Map<String, Any?>? = null,
   val response: Map<String, Any?>? = null,
+  val httpClient: HttpHandler = prepareHttpClient(insecureHttp = false),
 )
 
 /** One `pm.test`/legacy `test` assertion result reported by the sandbox. */
@@ -45,7 +60,9 @@ internal data class PmAssertion(
 /**
  * The outcome of a single sandbox execution.
  * - [environment]/[globals]/[collectionVariables]: the FULL post-execution scope values (caller
- *   diffs against the pre-snapshot to derive produced/unset).
+ *   diffs against the pre-snapshot to derive produced/unset); empty for a [PmScope.live] scope.
+ * - [deltas]: what the script set and unset on each [PmScope.live] scope, keyed by its slot
+ *   (`environment`, `globals` or `collectionVariables`).
  * - [assertions]: pm.test results (failures are data, NOT thrown).
  * - [error]: a thrown script error (pre-req/test JS failure) — null on success.
  * - [nextRequest]: the `setNextRequest` argument; null when never set OR explicitly set to null.
@@ -53,6 +70,7 @@ internal data class PmAssertion(
  *   `setNextRequest(null)` (STOP) from "never called" (no directive) — both leave [nextRequest]
  *   null.
  * - [skipRequest]: true iff `pm.execution.skipRequest()` was called (pre-request only).
+ * - [profile]: where the execution's time went; null only for a result built outside the bridge.
  */
 internal data class PmExecutionResult(
   val environment: Map<String, Any?>,
@@ -63,4 +81,6 @@ internal data class PmExecutionResult(
   val nextRequest: String? = null,
   val skipRequest: Boolean = false,
   val nextRequestSet: Boolean = false,
+  val deltas: Map<String, ScopeDelta> = emptyMap(),
+  val profile: SandboxProfile? = null,
 )
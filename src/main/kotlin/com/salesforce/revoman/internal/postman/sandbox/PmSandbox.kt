@@ -7,23 +7,61 @@
  */
 package com.salesforce.revoman.internal.postman.sandbox
 
+import com.salesforce.revoman.output.report.failure.ScriptLimitExceeded
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+
 /**
  * The single entry point the rest of ReVoman uses to run pm scripts. Wraps a [SandboxBridge] (one
- * booted GraalJS context per ReVoman run). Construct once per run; [close] at the end.
+ * booted GraalJS context). Runs take one from [PmSandboxPool] and hand it back when done; it is
+ * only [close]d when the pool retires it.
+ *
+ * Boots lazily on the first [execute], or ahead of it on a background thread via
+ * [bootInBackground]; either way the sandbox is only ever used by one thread at a time, since
+ * [ensureBooted] waits for a background boot before touching the bridge.
+ *
+ * A script that overruns its budgets ([ScriptLimitExceeded]) takes its context down with it: the
+ * bridge is swapped for a fresh one, booted by the run's next script, and the sandbox is faulted so
+ * the pool retires it rather than trusting it with another run.
  *
  * All GraalJS/bridge/Flatted detail lives behind [execute].
  */
 internal class PmSandbox : AutoCloseable {
-  private val bridge = SandboxBridge()
+  private var bridge = SandboxBridge()
   private var booted = false
   private var closed = false
   private var idSeq = 0L
+  private var pendingBoot: CompletableFuture<Void>? = null
 
-  private fun ensureBooted() {
-    if (!booted) {
+  /** A script errored or the bridge threw on this sandbox; the pool retires it, never reuses it. */
+  var isFaulted = false
+    private set
+
+  fun ensureBooted() {
+    if (booted) return
+    val boot = pendingBoot
+    if (boot == null) {
       bridge.boot()
-      booted = true
+    } else {
+      pendingBoot = null
+      try {
+        boot.join()
+      } catch (e: CompletionException) {
+        throw e.cause ?: e
+      }
     }
+    booted = true
+  }
+
+  /**
+   * Starts booting on a virtual thread and returns at once, so the boot overlaps whatever the run
+   * does before its first script. No-op once booted or already booting.
+   */
+  fun bootInBackground() {
+    check(!closed) { "sandbox: bootInBackground() after close()" }
+    if (booted || pendingBoot != null) return
+    pendingBoot =
+      CompletableFuture.runAsync(bridge::boot) { Thread.ofVirtual().name(BOOT_THREAD).start(it) }
   }
 
   fun execute(
@@ -34,16 +72,52 @@ internal class PmSandbox : AutoCloseable {
   ): PmExecutionResult {
     check(!closed) { "sandbox: execute() after close()" }
     ensureBooted()
-    return bridge.dispatchExecute("step${idSeq++}", script, target, context, timeoutMs)
+    return try {
+      bridge.dispatchExecute("step${idSeq++}", script, target, context, timeoutMs).also {
+        if (it.error != null) isFaulted = true
+      }
+    } catch (e: ScriptLimitExceeded) {
+      isFaulted = true
+      bridge.close()
+      bridge = SandboxBridge()
+      booted = false
+      throw e
+    } catch (e: Throwable) {
+      isFaulted = true
+      throw e
+    }
+  }
+
+  /**
+   * Readies this sandbox for another run: clears the bridge's per-run state and pings the guest.
+   * False — retire it instead — once closed, faulted or unresponsive. A never-booted sandbox has
+   * nothing to reset and stays reusable.
+   */
+  fun resetForReuse(): Boolean {
+    if (closed || isFaulted) return false
+    if (!booted) {
+      if (pendingBoot == null) return true
+      runCatching { ensureBooted() }.onFailure { return false }
+    }
+    bridge.reset()
+    return bridge.isResponsive("health${idSeq++}")
+  }
+
+  /** Drops guest globals the last run's scripts leaked, so the next run here can't see them. */
+  fun sweepLeakedGlobals() {
+    if (booted && !closed) bridge.sweepLeakedGlobals()
   }
 
   override fun close() {
+    // A boot still running on its thread must finish before the bridge can be closed
+    if (pendingBoot != null) runCatching { ensureBooted() }
     if (booted) bridge.close()
     closed = true
   }
 
   private companion object {
     const val DEFAULT_TIMEOUT_MS = 60_000L
+    const val BOOT_THREAD = "revoman-sandbox-boot"
   }
 }
 
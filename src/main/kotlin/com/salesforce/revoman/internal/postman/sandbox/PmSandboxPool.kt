@@ -0,0 +1,108 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.postman.sandbox
+
+import com.salesforce.revoman.internal.log.RevomanLog
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentLinkedDeque
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * JVM-wide pool of booted [PmSandbox]es. Booting one (a fresh GraalJS Context evaluating the 2.2 MB
+ * bootcode, then `initialize`) dominates short collections, so a finished run returns its sandbox
+ * here instead of closing it, and the next run skips the boot. Scopes never carry over — every
+ * execute gets them passed in and hands them back — and the reset drops leaked guest globals.
+ *
+ * On [release] a sandbox is reset and health-checked ([PmSandbox.resetForReuse]); one that hit a
+ * script error, threw, or stops answering `ping` is closed instead. At most `maxIdle` sandboxes are
+ * kept idle; the rest are closed. Idle sandboxes are handed out most-recently-used first, so a
+ * steady caller keeps reusing the warmest one. Never touched concurrently: a sandbox belongs to
+ * exactly one run between [acquire] and [release]. Idle sandboxes live until [clear] —
+ * `ReVoman.shutdown()` or the JVM shutdown hook.
+ */
+internal object PmSandboxPool {
+  private val idle = ConcurrentLinkedDeque<PmSandbox>()
+  private val idleCount = AtomicInteger()
+
+  init {
+    // Idle GraalJS contexts are otherwise only closed by `ReVoman.shutdown()`
+    Runtime.getRuntime().addShutdownHook(Thread(::clear, "revoman-sandbox-pool-shutdown"))
+  }
+
+  /** Idle sandboxes currently pooled. */
+  val size: Int
+    get() = idleCount.get()
+
+  fun acquire(): PmSandbox = idle.pollFirst()?.also { idleCount.decrementAndGet() } ?: PmSandbox()
+
+  fun release(sandbox: PmSandbox, maxIdle: Int) {
+    if (maxIdle > 0 && sandbox.resetForReuse()) {
+      if (idleCount.incrementAndGet() <= maxIdle) {
+        idle.offerFirst(sandbox)
+        return
+      }
+      idleCount.decrementAndGet()
+    } else if (sandbox.isFaulted) {
+      RevomanLog.debug { "Retiring a Postman sandbox after a script error" }
+    }
+    sandbox.close()
+  }
+
+  /**
+   * Boots sandboxes in parallel until at least [count] sit idle. Blocks until they are booted; the
+   * first boot failure is rethrown once the rest have finished (and been pooled).
+   */
+  fun prewarm(count: Int) {
+    val booting =
+      Executors.newVirtualThreadPerTaskExecutor().use { executor ->
+        List((count - size).coerceAtLeast(0)) {
+          executor.submit(Callable { PmSandbox().also { it.ensureBooted() } })
+        }
+      }
+    val outcomes =
+      booting.map { future ->
+        runCatching { future.get() }
+          .recoverCatching { throw (it as? ExecutionException)?.cause ?: it }
+      }
+    outcomes.forEach { outcome ->
+      outcome.onSuccess {
+        idleCount.incrementAndGet()
+        idle.offerFirst(it)
+      }
+    }
+    outcomes.firstNotNullOfOrNull { it.exceptionOrNull() }?.let { throw it }
+  }
+
+  /**
+   * Runs [block] on a pooled sandbox. If [block] throws, the sandbox may be mid-script, so it is
+   * closed rather than returned.
+   */
+  inline fun <T> use(maxIdle: Int, block: (PmSandbox) -> T): T {
+    val sandbox = acquire()
+    val result =
+      try {
+        block(sandbox)
+      } catch (e: Throwable) {
+        sandbox.close()
+        throw e
+      }
+    release(sandbox, maxIdle)
+    return result
+  }
+
+  /** Closes and forgets every idle sandbox. */
+  fun clear() {
+    while (true) {
+      val sandbox = idle.pollFirst() ?: break
+      idleCount.decrementAndGet()
+      sandbox.close()
+    }
+  }
+}
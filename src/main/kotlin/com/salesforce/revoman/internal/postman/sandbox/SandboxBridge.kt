@@ -7,8 +7,14 @@
  */
 package com.salesforce.revoman.internal.postman.sandbox
 
+import com.salesforce.revoman.output.report.SandboxProfile
+import com.salesforce.revoman.output.report.failure.ScriptLimitExceeded
+import com.salesforce.revoman.output.report.failure.ScriptLimitExceeded.Limit
 import io.github.oshai.kotlinlogging.KotlinLogging
+import java.lang.management.ManagementFactory
+import java.time.Duration
 import java.util.Base64
+import java.util.concurrent.CompletionException
 import org.graalvm.polyglot.Context
 import org.graalvm.polyglot.Engine
 import org.graalvm.polyglot.HostAccess
@@ -17,16 +23,16 @@ import org.graalvm.polyglot.Value
 import org.graalvm.polyglot.proxy.ProxyArray
 import org.graalvm.polyglot.proxy.ProxyExecutable
 import org.graalvm.polyglot.proxy.ProxyObject
+import org.http4k.core.HttpHandler
 
 /**
  * ONE process-wide immutable GraalVM [Engine], shared by every per-run [Context] (the sandbox
  * Context here AND the PostmanSDK JSEvaluator Context). The Engine shares the interpreter->JIT /
  * optimizing-runtime warm-up across runs and across both Context kinds — the reliable, measured A2
  * win, so that convergence is paid once per JVM rather than per ReVoman run. It ALSO caches parsed
- * code for the 2.2 MB bootcode [Source], but that reuse is best-effort: the engine source cache
- * holds the [Source] weakly and the bootcode Source is a local not retained past [boot], so its
- * parsed code may be GC'd between runs. Either way this is a strict improvement — pre-A2 there was
- * zero cross-run sharing.
+ * code for the 2.2 MB bootcode [Source]. The engine source cache holds a [Source] only weakly, so
+ * [boot] evaluates the one [SandboxResources.bootcodeSource] retained for the JVM lifetime — a
+ * Source built per boot could be GC'd between runs, taking its parsed code with it.
  *
  * Engines are thread-safe and long-lived by design; Contexts are single-threaded and per-run.
  * Sharing the Engine does NOT weaken the single-threaded Context contract, and — critically — guest
@@ -50,14 +56,43 @@ internal val sharedGraalEngine: Engine by lazy {
  * Boot installs browser-global shims (timers via [SandboxEventLoop], atob/btoa, Blob/File/etc.),
  * captures the guest `bridge` Value before the bootcode deletes it, evals the bootcode, and sends
  * `initialize`. Each [dispatchExecute] emits an `execute` event, drains the loop until the sandbox
- * dispatches the terminal `execution.result.<id>`, and decodes the collected guest emits into a
+ * dispatches the terminal `execution.result.<id>`, and decodes the collected guest events into a
  * [PmExecutionResult].
+ *
+ * Guest→host events skip serialization: boot wraps the guest `bridge.dispatch` so each event's
+ * arguments are first handed to the host as [Value]s and copied straight into host objects by
+ * [GuestJson]. Only a payload JSON can't express as-is (a cycle, above all) is declined and goes
+ * the bridge-client's original way, as a Flatted string through `__uvm_emit`.
+ *
+ * [PmScope.live] scopes stay in the guest between executions: the wrapper keeps the
+ * `VariableScope`s an execution leaves behind and returns only their tracked mutations, and the
+ * next execution gets those same scopes back, updated with just the keys a [ScopeMirror] found
+ * changed on the host.
+ *
+ * `pm.sendRequest` is serviced as its `execution.request.<id>` is dispatched: [SandboxHttp] sends
+ * it on a virtual thread through the execution's [PmExecutionContext.httpClient], and the loop
+ * [awaits][SandboxEventLoop.await] the reply, so a script's requests overlap. Each reply resumes
+ * the guest on the loop's thread with `execution.response.<id>`.
+ *
+ * Each execution runs under [ScriptWatchdog]'s wall-clock and statement budgets. A script that
+ * overruns either cancels the context and throws [ScriptLimitExceeded]; the bridge is dead after
+ * that, and its owner replaces it.
  */
 internal class SandboxBridge {
   private lateinit var ctx: Context
   private lateinit var guestBridge: Value
+  private lateinit var globalsSweep: Value
+  private lateinit var scopeSync: Value
+  private lateinit var respond: Value
+  private var httpClient: HttpHandler? = null
+  private val mirrors = HashMap<String, ScopeMirror>()
+  // Set by the watchdog's thread or Graal's limit callback just before the context is cancelled
+  @Volatile private var breach: Limit? = null
   private val loop = SandboxEventLoop()
-  private val emits = mutableListOf<String>() // raw Flatted strings, guest -> host
+  // Guest -> host events in dispatch order: decoded argument lists, or raw Flatted strings
+  private val events = mutableListOf<Any>()
+  // Characters of this execution's Flatted fallback payloads
+  private var flattedBytes = 0L
 
   // Lifecycle flags: a single instance boots once and closes once.
   private var booted = false
@@ -74,6 +109,8 @@ internal class SandboxBridge {
         .allowExperimentalOptions(true)
         .option("js.esm-eval-returns-exports", "true")
         .option("js.ecmascript-version", "2024")
+        .option("js.function-constructor-cache-size", FUNCTION_CACHE_SIZE.toString())
+        .resourceLimits(ScriptWatchdog.limits { breach = Limit.STATEMENTS })
         .allowHostAccess(HostAccess.ALL)
         .allowHostClassLookup { true }
         .build()
@@ -98,10 +135,25 @@ internal class SandboxBridge {
     bindings.putMember(
       "__java_emit",
       ProxyExecutable { args ->
-        emits.add(args[0].asString())
+        val payload = args[0].asString()
+        flattedBytes += payload.length
+        events.add(payload)
         null
       },
     )
+    bindings.putMember(
+      "__java_dispatch",
+      ProxyExecutable { args ->
+        try {
+          val event = GuestJson.copy(args[0]) as? List<*> ?: emptyList<Any?>()
+          events.add(event)
+          sendRequest(event)
+          true
+        } catch (_: GuestJson.NotPlain) {
+          false
+        }
+      },
+    )
     bindings.putMember(
       "__java_btoa",
       ProxyExecutable { args ->
@@ -142,12 +194,115 @@ internal class SandboxBridge {
 
     guestBridge = bindings.getMember("bridge")
     check(!guestBridge.isNull) { "sandbox: no global bridge after bridge-client" }
+    scopeSync =
+      ctx.eval(
+        "js",
+        """
+        (function (bridge, direct) {
+          const flatted = bridge.dispatch;
+          const mirrors = new Map();
+          let capture = null;
+          // The keys a script set or unset, read back from the scope's own mutation tracker
+          function mutations(scope) {
+            const tracked = scope.mutations || { compacted: {}, stream: [] };
+            const keys = new Set(
+              Object.values(tracked.compacted).concat(tracked.stream).map((m) => m[0]));
+            scope.disableTracking();
+            return Array.from(keys, (key) => (scope.has(key) ? [key, scope.get(key)] : [key]));
+          }
+          // A pm.sendRequest as the host sends it, whatever form the script gave it in
+          function plainRequest(request) {
+            const url = request.url;
+            const headers = request.headers && request.headers.all
+              ? request.headers.all() : request.header || [];
+            const body = request.body;
+            let raw = null;
+            if (body && typeof body.isEmpty === 'function') {
+              raw = body.isEmpty() ? null : body.toString();
+            } else if (body && body.mode === 'raw') {
+              raw = body.raw;
+            }
+            return {
+              method: request.method,
+              url: typeof url === 'string' ? url : url && url.toString(),
+              header: headers.filter((h) => h && !h.disabled)
+                .map((h) => ({ key: h.key, value: h.value })),
+              body: raw,
+            };
+          }
+          bridge.dispatch = function (...args) {
+            if (typeof args[0] === 'string' && args[0].startsWith('$REQUEST_EVENT') && args[4]) {
+              args[4] = plainRequest(args[4]);
+            }
+            if (capture && args[0] === capture.event && args[2]) {
+              const execution = Object.assign({}, args[2]);
+              for (const slot of capture.slots) {
+                mirrors.set(slot, execution[slot]);
+                execution[slot] = { mutations: mutations(execution[slot]) };
+              }
+              capture = null;
+              args[2] = execution;
+            }
+            if (!direct(args)) flatted.apply(this, args);
+          };
+          return {
+            capture: function (event, slots) {
+              capture = { event: event, slots: [] };
+              for (let i = 0; i < slots.length; i++) capture.slots.push(slots[i]);
+            },
+            update: function (slot, set, unset) {
+              const scope = mirrors.get(slot);
+              for (let i = 0; i < set.length; i++) scope.set(set[i][0], set[i][1]);
+              for (let i = 0; i < unset.length; i++) scope.unset(unset[i]);
+              return scope;
+            },
+            drop: function () {
+              mirrors.clear();
+              capture = null;
+            },
+          };
+        })(bridge, __java_dispatch)
+        """
+          .trimIndent(),
+      )
+    // The bootcode deletes the global bridge, so its reply path is captured now, too
+    respond =
+      ctx.eval(
+        "js",
+        """
+        (function (bridge) {
+          return function (event, eventId, error, response) {
+            bridge.emit(event, eventId, error === null ? null : new Error(error), response);
+          };
+        })(bridge)
+        """
+          .trimIndent(),
+      )
 
-    ctx.eval(Source.newBuilder("js", SandboxResources.bootcode, "bootcode.js").build())
+    ctx.eval(SandboxResources.bootcodeSource)
     loop.run()
 
     guestBridge.invokeMember("emit", "initialize", ProxyObject.fromMap(HashMap<String, Any?>()))
     loop.run()
+    // Scripts run non-strict, so a bare undeclared assignment lands on the real global object and
+    // outlives the execute. Baseline the globals of a freshly booted sandbox so
+    // [sweepLeakedGlobals] can drop anything a script added before the context is reused.
+    globalsSweep =
+      ctx.eval(
+        "js",
+        """
+        (function () {
+          const baseline = new Set(Object.getOwnPropertyNames(globalThis));
+          return function () {
+            for (const key of Object.getOwnPropertyNames(globalThis)) {
+              if (baseline.has(key) || delete globalThis[key]) continue;
+              try { globalThis[key] = undefined; } catch (e) {}
+            }
+          };
+        })()
+        """
+          .trimIndent(),
+      )
     logger.info { "Postman sandbox booted (postman-sandbox ${SandboxResources.version})" }
   }
 
@@ -158,7 +313,13 @@ internal class SandboxBridge {
     context: PmExecutionContext,
     timeoutMs: Long,
   ): PmExecutionResult {
-    emits.clear()
+    events.clear()
+    loop.dropHostWork()
+    loop.takeStats()
+    flattedBytes = 0
+    httpClient = context.httpClient
+    val allocatedBefore = allocatedBytes()
+    val syncStarted = System.nanoTime()
 
     val event: ProxyObject =
       ProxyObject.fromMap(
@@ -173,43 +334,174 @@ internal class SandboxBridge {
             ),
         )
       )
+    val scopes =
+      linkedMapOf(
+        "environment" to context.environment,
+        "globals" to context.globals,
+        "collectionVariables" to context.collectionVariables,
+      )
+    val liveSlots = scopes.filterValues { it.live }.keys.toList()
     val ctxObj: ProxyObject =
       ProxyObject.fromMap(
-        linkedMapOf<String, Any?>(
-            "environment" to scopeToProxy(context.environment),
-            "globals" to scopeToProxy(context.globals),
-            "collectionVariables" to scopeToProxy(context.collectionVariables),
-          )
+        scopes
+          .mapValuesTo(LinkedHashMap<String, Any?>()) { (slot, scope) -> scopeArg(slot, scope) }
           .also { m ->
             context.request?.let { m["request"] = ProxyObject.fromMap(it) }
-            context.response?.let { m["response"] = ProxyObject.fromMap(it) }
+            context.response?.let { m["response"] = deepProxy(it) }
           }
       )
     val options: ProxyObject =
       ProxyObject.fromMap(
         linkedMapOf<String, Any?>(
-          // Phase 1: timeoutMs is forwarded to the guest but enforced in VIRTUAL time (timers run
-          // on the virtual-time SandboxEventLoop), so it does NOT bound host wall-clock/CPU time.
-          // SandboxEventLoop's RUNAWAY_BACKSTOP guards async runaways; real wall-clock timeout
-          // enforcement is Phase 2 (when real I/O exists).
+          // The guest applies this to the script's timers, in the loop's VIRTUAL time; the
+          // watchdog below enforces it on the wall clock.
           "timeout" to timeoutMs,
           "cursor" to ProxyObject.fromMap(HashMap<String, Any?>()),
           "allowSkipRequest" to (target == ScriptTarget.PRE_REQUEST),
         )
       )
 
-    guestBridge.invokeMember("emit", "execute", id, event, ctxObj, options)
-    loop.run()
+    if (liveSlots.isNotEmpty()) {
+      scopeSync.invokeMember("capture", "execution.result.$id", ProxyArray.fromList(liveSlots))
+    }
+    ctx.resetLimits()
+    breach = null
+    val started = System.nanoTime()
+    val deadline =
+      ScriptWatchdog.arm(Duration.ofMillis(timeoutMs)) {
+        breach = Limit.WALL_CLOCK
+        loop.cancel() // in case it's waiting on a pm.sendRequest rather than running the script
+        ctx.close(true)
+      }
+    val synced = System.nanoTime()
+    var executed = synced
+    var drained = synced
+    val result =
+      try {
+        guestBridge.invokeMember("emit", "execute", id, event, ctxObj, options)
+        executed = System.nanoTime()
+        loop.run()
+        drained = System.nanoTime()
+        decodeResult(id, liveSlots)
+      } catch (e: Throwable) {
+        deadline.cancel(false)
+        breach?.let { throw limitExceeded(it, started, timeoutMs, e) }
+        dropMirrors()
+        throw e
+      }
+    // A deadline that fired as the script finished is cancelling the context all the same
+    if (!deadline.cancel(false)) throw limitExceeded(Limit.WALL_CLOCK, started, timeoutMs, null)
+    // Effects of a failed script are not applied on the host, so the guest's scopes diverged
+    if (result.error != null || !result.deltas.keys.containsAll(liveSlots)) dropMirrors()
+    val stats = loop.takeStats()
+    val profile =
+      SandboxProfile(
+        scopeSync = Duration.ofNanos(synced - syncStarted),
+        execute = Duration.ofNanos(executed - synced),
+        drain = Duration.ofNanos(drained - executed),
+        decode = Duration.ofNanos(System.nanoTime() - drained),
+        tasksRun = stats.tasksRun,
+        timersFired = stats.timersFired,
+        hostAwaits = stats.hostAwaits,
+        events = events.size,
+        flattedBytes = flattedBytes,
+        allocatedBytes = allocatedBefore?.let { before -> allocatedBytes()?.minus(before) },
+      )
+    return result.copy(profile = profile)
+  }
 
-    return decodeResult(id)
+  /**
+   * Sends the request of an `execution.request.<id>` [event] and, once it's answered, emits the
+   * `execution.response.<id>` the guest waits for: `(eventId, error, response)`.
+   */
+  private fun sendRequest(event: List<*>) {
+    val name = event.firstOrNull() as? String ?: return
+    if (!name.startsWith(REQUEST_EVENT)) return
+    val executionId = name.removePrefix(REQUEST_EVENT)
+    val eventId = event.getOrNull(3)
+    val client = checkNotNull(httpClient) { "sandbox: pm.sendRequest outside an execution" }
+    loop.await(SandboxHttp.send(client, event.getOrNull(4) as? Map<*, *>)) { exchange, error ->
+      val failure = (error as? CompletionException)?.cause ?: error
+      respond.executeVoid(
+        "execution.response.$executionId",
+        eventId,
+        failure?.let { it.message ?: it.toString() },
+        exchange?.let { deepProxy(SandboxHttp.toGuest(it)) },
+      )
+    }
+  }
+
+  private fun limitExceeded(limit: Limit, started: Long, timeoutMs: Long, cause: Throwable?) =
+    ScriptLimitExceeded(
+        limit,
+        Duration.ofNanos(System.nanoTime() - started),
+        Duration.ofMillis(timeoutMs),
+        ScriptWatchdog.STATEMENT_BUDGET,
+        cause,
+      )
+      .also { logger.warn { "Sandbox context discarded: ${it.message}" } }
+
+  /** Deletes every guest global added since boot, so the next execute starts from a clean realm. */
+  fun sweepLeakedGlobals() {
+    if (::globalsSweep.isInitialized) globalsSweep.executeVoid()
+  }
+
+  /**
+   * Clears per-run state for the next run: pending timers, undelivered events, mirrored scopes and
+   * any guest global a script leaked.
+   */
+  fun reset() {
+    loop.reset()
+    events.clear()
+    dropMirrors()
+    sweepLeakedGlobals()
   }
 
+  /**
+   * Health check over the guest's own `ping` → `pong` listener: true when the booted context still
+   * answers with the same [token]. Any guest or host failure on the way counts as unhealthy.
+   */
+  fun isResponsive(token: String): Boolean =
+    runCatching {
+        events.clear()
+        guestBridge.invokeMember("emit", "ping", token)
+        loop.run()
+        events.any { event ->
+          val parsed = decode(event)
+          parsed != null && parsed.firstOrNull() == "pong" && parsed.getOrNull(1) == token
+        }
+      }
+      .getOrDefault(false)
+      .also { events.clear() }
+
   fun close() {
     if (closed) return
     if (::ctx.isInitialized) ctx.close(true)
     closed = true
   }
 
+  /**
+   * [scope] as the guest takes it: a new scope from its values or, for a [PmScope.live] one the
+   * guest already holds, that same scope updated with only the changed keys.
+   */
+  private fun scopeArg(slot: String, scope: PmScope): Any {
+    if (!scope.live) return scopeToProxy(scope)
+    val mirror = mirrors.getOrPut(slot, ::ScopeMirror)
+    val delta =
+      mirror.sync(scope) ?: return scopeToProxy(PmScope(scope.id, mirror.values, scope.name))
+    return scopeSync.invokeMember(
+      "update",
+      slot,
+      ProxyArray.fromList(delta.set.map { (key, value) -> ProxyArray.fromArray(key, value) }),
+      ProxyArray.fromList(delta.unset.toList()),
+    )
+  }
+
+  private fun dropMirrors() {
+    mirrors.values.forEach(ScopeMirror::forget)
+    if (::scopeSync.isInitialized) scopeSync.invokeMember("drop")
+  }
+
   private fun scopeToProxy(scope: PmScope): ProxyObject =
     ProxyObject.fromMap(
       linkedMapOf<String, Any?>(
@@ -227,7 +519,24 @@ internal class SandboxBridge {
         .also { m -> scope.name?.let { m["name"] = it } }
     )
 
-  private fun decodeResult(id: String): PmExecutionResult {
+  /**
+   * Proxies nested maps and lists too, in the shape [scopeToProxy] gives scope values, so a list
+   * (e.g. the response `header` list) reaches postman-collection as an array, not a host object.
+   */
+  private fun deepProxy(map: Map<String, Any?>): ProxyObject =
+    ProxyObject.fromMap(map.mapValuesTo(LinkedHashMap()) { (_, value) -> deepProxyValue(value) })
+
+  private fun deepProxyValue(value: Any?): Any? =
+    when (value) {
+      is Map<*, *> -> deepProxy(value.entries.associate { (k, v) -> k.toString() to v })
+      is List<*> -> ProxyArray.fromList(value.map(::deepProxyValue))
+      else -> value
+    }
+
+  private fun decode(event: Any): List<*>? =
+    (if (event is String) Flatted.parse(event) else event) as? List<*>
+
+  private fun decodeResult(id: String, liveSlots: List<String>): PmExecutionResult {
     val assertions = mutableListOf<PmAssertion>()
     var error: Throwable? = null
     var environment: Map<String, Any?> = emptyMap()
@@ -236,9 +545,10 @@ internal class SandboxBridge {
     var nextRequest: String? = null
     var skipRequest = false
     var nextRequestSet = false
+    val deltas = LinkedHashMap<String, ScopeDelta>()
 
-    for (raw in emits) {
-      val parsed = Flatted.parse(raw) as? List<*> ?: continue
+    for (event in events) {
+      val parsed = decode(event) ?: continue
       val name = parsed.firstOrNull() as? String ?: continue
       when (name) {
         "execution.assertion.$id" -> {
@@ -264,18 +574,15 @@ internal class SandboxBridge {
           val stack = errMap?.get("stack") as? String
           error = RuntimeException(if (stack != null) "$msg\n$stack" else msg)
         }
-        // Phase 1: pm.sendRequest dispatches execution.request.<id> expecting a host HTTP
-        // responder.
-        // None is wired yet, so the script's await never resumes and no execution.result arrives.
-        // Surface a crisp, intentional error instead of silently returning empty scopes. Wiring the
-        // http4k responder is Phase 2.
-        "execution.request.$id" ->
-          error = UnsupportedOperationException("pm.sendRequest is not supported yet (Phase 2)")
         "execution.result.$id" -> {
           val execution = parsed.getOrNull(2) as? Map<*, *> ?: continue
           environment = scopeValues(execution["environment"])
           globals = scopeValues(execution["globals"])
           collectionVariables = scopeValues(execution["collectionVariables"])
+          for (slot in liveSlots) {
+            val mutations = (execution[slot] as? Map<*, *>)?.get("mutations") as? List<*>
+            mutations?.let { deltas[slot] = mirrors.getValue(slot).captured(it) }
+          }
           // `pm.execution.setNextRequest(name)` writes `execution.return.nextRequest`. Capture it
           // as a control-flow directive; the step sequencer consumes it to reorder execution.
           val returnMap = (execution["return"] as? Map<*, *>)
@@ -293,6 +600,7 @@ internal class SandboxBridge {
       nextRequest,
       skipRequest,
       nextRequestSet,
+      deltas,
     )
   }
 
@@ -318,23 +626,36 @@ internal class SandboxBridge {
     }
   }
 
-  /**
-   * The bridge decodes all JSON numbers as `Double` (JSON has no int/double distinction). ReVoman's
-   * env, the old in-JS path, and consumer assertions/`getInt` expect integral values to stay `Int`/
-   * `Long`. Narrow integral doubles back so an unchanged `limit=1` round-trips as `1`, not `1.0` —
-   * which also keeps [diffScopes] from spuriously flagging untouched numeric keys as produced.
-   */
-  private fun normalizeNumber(value: Any?): Any? =
-    when (value) {
-      is Double ->
-        if (value % 1.0 == 0.0 && !value.isInfinite()) {
-          if (value in Int.MIN_VALUE.toDouble()..Int.MAX_VALUE.toDouble()) value.toInt()
-          else value.toLong()
-        } else value
-      else -> value
-    }
-
   private companion object {
     private val logger = KotlinLogging.logger {}
+    private val threads = ManagementFactory.getThreadMXBean() as? com.sun.management.ThreadMXBean
+
+    /** Bytes the current thread has allocated so far; null where that isn't measured. */
+    fun allocatedBytes(): Long? =
+      threads
+        ?.takeIf { it.isThreadAllocatedMemorySupported && it.isThreadAllocatedMemoryEnabled }
+        ?.currentThreadAllocatedBytes
+        ?.takeIf { it >= 0 }
+
+    const val REQUEST_EVENT = "execution.request."
+
+    /** The bootcode compiles scripts via `Function`, which GraalJS caches by source text. */
+    const val FUNCTION_CACHE_SIZE = 4_096
   }
 }
+
+/**
+ * The bridge decodes all JSON numbers as `Double` (JSON has no int/double distinction). ReVoman's
+ * env, the old in-JS path, and consumer assertions/`getInt` expect integral values to stay `Int`/
+ * `Long`. Narrow integral doubles back so an unchanged `limit=1` round-trips as `1`, not `1.0` —
+ * which also keeps [diffScopes] from spuriously flagging untouched numeric keys as produced.
+ */
+internal fun normalizeNumber(value: Any?): Any? =
+  when (value) {
+    is Double ->
+      if (value % 1.0 == 0.0 && !value.isInfinite()) {
+        if (value in Int.MIN_VALUE.toDouble()..Int.MAX_VALUE.toDouble()) value.toInt()
+        else value.toLong()
+      } else value
+    else -> value
+  }
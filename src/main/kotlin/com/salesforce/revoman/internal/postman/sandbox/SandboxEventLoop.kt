@@ -8,11 +8,20 @@
 package com.salesforce.revoman.internal.postman.sandbox
 
 import java.util.PriorityQueue
+import java.util.concurrent.CancellationException
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
 
 /**
  * A minimal single-threaded event loop backing the sandbox's `setTimeout`/`setImmediate`/
  * `setInterval` globals (GraalJS provides none natively). Uses virtual time: timed tasks fire in
  * delay order, not wall-clock — deterministic and instant in tests. Confined to the calling thread.
+ *
+ * Host work the guest waits on ([await], e.g. a `pm.sendRequest` in flight) switches the loop to
+ * real time: while any is pending, a timer fires only once its delay has passed on the wall clock,
+ * so a script's timeout can't jump ahead of a reply that is still on its way. Completions are
+ * posted from any thread but always run on the loop's.
  */
 internal class SandboxEventLoop {
   private val ready: ArrayDeque<Runnable> = ArrayDeque()
@@ -20,6 +29,16 @@ internal class SandboxEventLoop {
   private val timerFns: MutableMap<Long, Runnable> = HashMap()
   private var seq: Long = 1
   private var virtualNow: Long = 0
+  private val completions = LinkedBlockingQueue<Runnable>()
+  private var pending = 0
+  // Bumped by [dropHostWork]; a completion from an older epoch is discarded, not run
+  private var epoch = 0
+  private var tasksRun = 0
+  private var timersFired = 0
+  private var hostAwaits = 0
+
+  /** The loop's work since the last [takeStats]. */
+  data class Stats(val tasksRun: Int, val timersFired: Int, val hostAwaits: Int)
 
   fun schedule(task: Runnable, delayMs: Long): Long {
     val id = seq++
@@ -42,24 +61,113 @@ internal class SandboxEventLoop {
     timerFns.remove(id)
   }
 
-  /** Drains ready tasks first, then timed tasks in virtual-time order, until nothing remains. */
+  /**
+   * Runs [resume] on the loop's thread once [future] completes, with its value or its failure. Any
+   * number of futures can be awaited at once; [run] returns only after all of them resumed.
+   */
+  fun <T> await(future: CompletableFuture<T>, resume: (T?, Throwable?) -> Unit) {
+    val awaited = epoch
+    pending++
+    hostAwaits++
+    future.whenComplete { value, error ->
+      completions.add(
+        Runnable {
+          if (awaited == epoch) {
+            pending--
+            resume(value, error)
+          }
+        }
+      )
+    }
+  }
+
+  /**
+   * Wakes a [run] waiting on host work and makes it throw [CancellationException]. The one member
+   * safe to call from another thread.
+   */
+  fun cancel() {
+    completions.add(Runnable { throw CancellationException("sandbox event loop cancelled") })
+  }
+
+  /** Returns the counts since the previous call and starts new ones. */
+  fun takeStats(): Stats =
+    Stats(tasksRun, timersFired, hostAwaits).also {
+      tasksRun = 0
+      timersFired = 0
+      hostAwaits = 0
+    }
+
+  /** Stops waiting on host work awaited so far: whenever it completes, it's ignored. */
+  fun dropHostWork() {
+    epoch++
+    pending = 0
+    completions.clear()
+  }
+
+  /**
+   * Drops every queued task and timer and rewinds virtual time, so a pooled sandbox starts its next
+   * run with an empty loop even if the last one was cut short mid-drain.
+   */
+  fun reset() {
+    dropHostWork()
+    ready.clear()
+    timers.clear()
+    timerFns.clear()
+    virtualNow = 0
+  }
+
+  /**
+   * Drains completed host work and ready tasks first, then timed tasks in virtual-time order, until
+   * nothing remains. While host work is pending it blocks for the next completion, or until the
+   * next timer is due on the wall clock.
+   */
   fun run() {
     var guard = 0
     while (true) {
       check(++guard <= RUNAWAY_BACKSTOP) {
         "sandbox event loop runaway (> $RUNAWAY_BACKSTOP iterations)"
       }
-      ready.removeFirstOrNull()?.let {
+      (completions.poll() ?: ready.removeFirstOrNull())?.let {
+        tasksRun++
         it.run()
         continue
       }
-      val next = timers.poll() ?: break
-      val fn = timerFns.remove(next[1]) ?: continue // cancelled
-      virtualNow = maxOf(virtualNow, next[0])
-      fn.run()
+      val next = nextTimer()
+      if (pending == 0) {
+        fire(next ?: break)
+        continue
+      }
+      val waitStart = System.nanoTime()
+      val completion =
+        if (next == null) completions.take()
+        else completions.poll(next[0] - virtualNow, TimeUnit.MILLISECONDS)
+      if (completion == null) {
+        fire(next!!)
+      } else {
+        val waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStart)
+        virtualNow = next?.let { minOf(it[0], virtualNow + waited) } ?: (virtualNow + waited)
+        tasksRun++
+        completion.run()
+      }
     }
   }
 
+  /** The earliest timer still armed, left queued; cancelled ones are dropped on the way. */
+  private fun nextTimer(): LongArray? {
+    while (true) {
+      val next = timers.peek() ?: return null
+      if (next[1] in timerFns) return next
+      timers.poll()
+    }
+  }
+
+  private fun fire(timer: LongArray) {
+    timers.poll()
+    virtualNow = maxOf(virtualNow, timer[0])
+    timersFired++
+    timerFns.remove(timer[1])?.run()
+  }
+
   private companion object {
     const val RUNAWAY_BACKSTOP = 5_000_000
   }
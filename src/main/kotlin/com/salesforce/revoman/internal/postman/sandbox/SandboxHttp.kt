@@ -0,0 +1,68 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.postman.sandbox
+
+import java.util.concurrent.CompletableFuture
+import org.http4k.core.HttpHandler
+import org.http4k.core.Method
+import org.http4k.core.Request
+import org.http4k.core.Response
+
+/**
+ * The host side of `pm.sendRequest`. The guest hands over each request already flattened by the
+ * bridge's dispatch wrapper — `{method, url, header: [{key, value}], body}` — and gets back the
+ * plain options Postman's `sdk.Response` is built from.
+ */
+internal object SandboxHttp {
+  private const val THREAD_NAME = "revoman-sandbox-http"
+
+  /** A guest response with how long the exchange took, for `response.responseTime`. */
+  class Exchange(val response: Response, val elapsedMs: Long)
+
+  /**
+   * Sends [request] through [client] on a virtual thread. A request that can't be built fails the
+   * future, like one that can't be sent, so the script's callback gets it as `err`.
+   */
+  fun send(client: HttpHandler, request: Map<*, *>?): CompletableFuture<Exchange> =
+    CompletableFuture.supplyAsync(
+      {
+        val httpRequest = toHttp4k(request)
+        val started = System.nanoTime()
+        val response = client(httpRequest)
+        Exchange(response, (System.nanoTime() - started) / 1_000_000)
+      },
+      { Thread.ofVirtual().name(THREAD_NAME).start(it) },
+    )
+
+  fun toHttp4k(request: Map<*, *>?): Request {
+    val url = request?.get("url") as? String
+    require(request != null && !url.isNullOrBlank()) { "pm.sendRequest: the request has no url" }
+    val method = (request["method"] as? String)?.uppercase() ?: "GET"
+    val headers =
+      (request["header"] as? List<*>).orEmpty().mapNotNull { header ->
+        val h = header as? Map<*, *> ?: return@mapNotNull null
+        val key = h["key"] as? String ?: return@mapNotNull null
+        key to h["value"]?.toString()
+      }
+    return Request(Method.valueOf(method), url)
+      .headers(headers)
+      .let { r -> (request["body"] as? String)?.let { r.body(it) } ?: r }
+  }
+
+  fun toGuest(exchange: Exchange): Map<String, Any?> =
+    linkedMapOf(
+      "code" to exchange.response.status.code,
+      "status" to exchange.response.status.description,
+      "header" to
+        exchange.response.headers.map { (key, value) ->
+          linkedMapOf("key" to key, "value" to value)
+        },
+      "body" to exchange.response.bodyString(),
+      "responseTime" to exchange.elapsedMs,
+    )
+}
@@ -9,6 +9,7 @@ package com.salesforce.revoman.internal.postman.sandbox
 
 import com.salesforce.revoman.input.readFileToString
 import com.salesforce.revoman.input.readGzippedFileToString
+import org.graalvm.polyglot.Source
 
 /**
  * Loads the vendored Postman sandbox resources from the classpath. Uses ReVoman's
@@ -22,11 +23,15 @@ import com.salesforce.revoman.input.readGzippedFileToString
  * It is inflated once on first access and cached. [bridgeClient] (3 KB) stays raw.
  *
  * Resources are read once and cached for the JVM lifetime; they are immutable build artifacts.
+ * [bootcodeSource] is cached the same way: the engine's parsed-code cache is keyed on the [Source]
+ * and holds it only weakly, so this strong reference is what lets every later boot skip re-parsing.
  */
 internal object SandboxResources {
   private const val DIR = "postman-sandbox"
+  const val BOOTCODE_NAME = "bootcode.js"
 
   val bootcode: String by lazy { readGzippedFileToString("$DIR/bootcode.js.gz") }
+  val bootcodeSource: Source by lazy { Source.newBuilder("js", bootcode, BOOTCODE_NAME).build() }
   val bridgeClient: String by lazy { readFileToString("$DIR/bridge-client.js") }
   val version: String by lazy { readFileToString("$DIR/pm-sandbox-version.txt").trim() }
 }
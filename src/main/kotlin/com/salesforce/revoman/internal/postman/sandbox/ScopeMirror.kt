@@ -0,0 +1,113 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.postman.sandbox
+
+import com.salesforce.revoman.output.postman.PersistentBackedMutableMap
+
+/** Keys set (with their new values) and unset on one scope. */
+internal data class ScopeDelta(val set: Map<String, Any?>, val unset: Set<String>)
+
+/**
+ * Real Postman variable values — the only ones sent into and read back from the sandbox. Typed
+ * POJOs ReVoman stores in the env (hooks, cross-step reuse) are not pm-script variables.
+ */
+internal fun isSandboxSafe(value: Any?): Boolean =
+  value == null || value is String || value is Number || value is Boolean
+
+/**
+ * The host's record of one [PmScope.live] scope as the guest holds it between executions: the
+ * guest keeps the `VariableScope` an execution leaves behind and [SandboxBridge] updates it in
+ * place, so per-script cost follows what changed, not the scope's size.
+ * - Into the guest, [sync] sends only the keys written since the last execution — read from the
+ *   source's [PersistentBackedMutableMap.changedKeysSince] journal at the version this mirror was
+ *   synced at, or from a host-only comparison for any other map.
+ * - Out of it, [captured] folds in only the keys the script mutated, as tracked by the guest scope.
+ *
+ * A different source map, scope id or name, or a journal that no longer reaches back, resyncs the
+ * full scope.
+ */
+internal class ScopeMirror {
+  private var source: Map<String, Any?>? = null
+  private var id: String? = null
+  private var name: String? = null
+  private var version = 0L
+
+  /** The sandbox-safe values the guest's scope holds, in the order it got them. */
+  val values = LinkedHashMap<String, Any?>()
+
+  /** True once a result handed the guest's scope back for reuse; until then, sync in full. */
+  var held = false
+    private set
+
+  /**
+   * Brings this mirror up to [scope]'s live values: the changes to apply to the guest's scope, or
+   * `null` when the guest must be given all of [values] as a new scope.
+   */
+  fun sync(scope: PmScope): ScopeDelta? {
+    val live = scope.values
+    val journal = live as? PersistentBackedMutableMap<*>
+    val changed =
+      if (held && live === source && scope.id == id && scope.name == name) {
+        journal?.changedKeysSince(version) ?: (live.keys + values.keys)
+      } else null
+    version = journal?.version ?: 0L
+    if (changed == null) {
+      forget()
+      source = live
+      id = scope.id
+      name = scope.name
+      live.forEach { (key, value) -> if (isSandboxSafe(value)) values[key] = value }
+      return null
+    }
+    val set = LinkedHashMap<String, Any?>()
+    val unset = LinkedHashSet<String>()
+    for (key in changed) {
+      val value = live[key]
+      if (live.containsKey(key) && isSandboxSafe(value)) {
+        if (!values.containsKey(key) || values[key] != value) {
+          set[key] = value
+          values[key] = value
+        }
+      } else if (values.containsKey(key)) {
+        unset += key
+        values.remove(key)
+      }
+    }
+    return ScopeDelta(set, unset)
+  }
+
+  /**
+   * Folds in the script's mutations, each `[key, value]` for a set or `[key]` for an unset, and
+   * returns the net change: a key set to the value it already had is not reported.
+   */
+  fun captured(mutations: List<*>): ScopeDelta {
+    held = true
+    val set = LinkedHashMap<String, Any?>()
+    val unset = LinkedHashSet<String>()
+    for (mutation in mutations) {
+      val entry = mutation as? List<*> ?: continue
+      val key = entry.firstOrNull() as? String ?: continue
+      if (entry.size > 1) {
+        val value = normalizeNumber(entry[1])
+        if (!values.containsKey(key) || values[key] != value) set[key] = value
+        values[key] = value
+      } else if (values.containsKey(key)) {
+        unset += key
+        values.remove(key)
+      }
+    }
+    return ScopeDelta(set, unset)
+  }
+
+  /** Drops the record, so the next [sync] sends the full scope. */
+  fun forget() {
+    source = null
+    held = false
+    values.clear()
+  }
+}
@@ -0,0 +1,62 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.postman.sandbox
+
+import java.time.Duration
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+import java.util.function.Predicate
+import org.graalvm.polyglot.ResourceLimits
+import org.graalvm.polyglot.Source
+
+/**
+ * Real budgets for sandbox scripts, which the virtual-time [SandboxEventLoop] can't give: it only
+ * sees timers, so a synchronous `while (true)` never yields to it.
+ * - Wall clock: [arm] schedules a deadline on one JVM-wide daemon thread. When it fires, the
+ *   script's context is cancelled from a virtual thread, so one cancellation never delays another
+ *   sandbox's deadline.
+ * - CPU: Graal can't meter the CPU time of the virtual threads runs execute on, so the budget is
+ *   counted in statements instead, with [limits] on the context. Only the script's own code counts;
+ *   the bootcode (pm, chai, the sandbox itself) is filtered out.
+ *
+ * Either way the context is cancelled, not interrupted: the bootcode's per-execution state can't be
+ * trusted after a script is stopped mid-flight, so the sandbox is discarded.
+ */
+internal object ScriptWatchdog {
+  /** Statements one script may execute: far beyond any real script, reached within seconds. */
+  const val STATEMENT_BUDGET = 100_000_000L
+
+  /** One instance for every sandbox context: Graal requires a single filter per engine. */
+  private val scriptCode = Predicate<Source> { it.name != SandboxResources.BOOTCODE_NAME }
+
+  private val deadlines: ScheduledExecutorService by lazy {
+    Executors.newSingleThreadScheduledExecutor {
+      Thread.ofPlatform().daemon().name("revoman-sandbox-watchdog").unstarted(it)
+    }
+  }
+
+  /**
+   * The statement budget for a sandbox context. [onLimit] runs when a script exhausts it, just
+   * before Graal cancels the context; the caller resets the count per script.
+   */
+  fun limits(onLimit: () -> Unit): ResourceLimits =
+    ResourceLimits.newBuilder()
+      .statementLimit(STATEMENT_BUDGET, scriptCode)
+      .onLimit { onLimit() }
+      .build()
+
+  /** Runs [onTimeout] on a virtual thread once [timeout] elapses, unless cancelled first. */
+  fun arm(timeout: Duration, onTimeout: () -> Unit): ScheduledFuture<*> =
+    deadlines.schedule(
+      Runnable { Thread.ofVirtual().name("revoman-sandbox-cancel").start { onTimeout() } },
+      timeout.toNanos(),
+      TimeUnit.NANOSECONDS,
+    )
+}
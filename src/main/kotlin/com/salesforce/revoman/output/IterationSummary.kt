@@ -0,0 +1,27 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.output
+
+/**
+ * What `ReVoman.revUpIterations` kept of a data-driven run: counts only — each row's [Rundown]
+ * went to the caller's hook and was dropped.
+ *
+ * @property iterations rows run
+ * @property failedIterations rows that threw, whose hook threw, or that had an unsuccessful step
+ * @property firstFailure the first exception a row (or its hook) threw, if any
+ */
+data class IterationSummary
+internal constructor(
+  @JvmField val iterations: Long,
+  @JvmField val failedIterations: Long,
+  @JvmField val firstFailure: Throwable? = null,
+) {
+  @get:JvmName("areAllIterationsSuccessful")
+  val areAllIterationsSuccessful: Boolean
+    get() = failedIterations == 0L
+}
@@ -10,6 +10,7 @@ package com.salesforce.revoman.output
 import com.salesforce.revoman.input.config.StepPick.PostTxnStepPick
 import com.salesforce.revoman.output.ledger.LedgerEntry
 import com.salesforce.revoman.output.postman.PostmanEnvironment
+import com.salesforce.revoman.output.report.ConnectionWarmUp
 import com.salesforce.revoman.output.report.Folder.Companion.FOLDER_DELIMITER
 import com.salesforce.revoman.output.report.StepReport
 
@@ -31,23 +32,45 @@ data class Rundown(
    */
   @JvmField val globals: PostmanEnvironment<Any?> = PostmanEnvironment(),
   @JvmField val stopReason: StopReason = StopReason.COMPLETED,
+  /** The hosts connected to ahead of the first step; null unless `prewarmConnections` is set. */
+  @JvmField val connectionWarmUp: ConnectionWarmUp? = null,
 ) {
+  /**
+   * The [StepReportLog] behind [stepReports] when the sequencer built this [Rundown] from one, so
+   * the counts below are read off the log's running tally instead of recounted for every per-step
+   * copy. `null` for hand-built [stepReports] (the counts then fall back to a scan).
+   */
+  internal val stepReportLog: StepReportLog?
+    get() = (stepReports as? StepReportList)?.log
+
+  internal fun withStepReportLog(log: StepReportLog): Rundown =
+    copy(stepReports = StepReportList(log))
+
   @get:JvmName("immutableEnv") val immutableEnv: Map<String, Any?> by lazy { mutableEnv.toMap() }
 
   @get:JvmName("executedStepCount") val executedStepCount: Int by lazy { stepReports.size }
 
   @get:JvmName("httpFailureStepCount")
-  val httpFailureStepCount: Int by lazy { stepReports.count { !it.isHttpStatusSuccessful } }
+  val httpFailureStepCount: Int by lazy {
+    stepReportLog?.tally?.httpFailureStepCount ?: stepReports.count { !it.isHttpStatusSuccessful }
+  }
 
   @get:JvmName("unsuccessfulStepCount")
-  val unsuccessfulStepCount: Int by lazy { stepReports.count { !it.isSuccessful } }
+  val unsuccessfulStepCount: Int by lazy {
+    stepReportLog?.tally?.unsuccessfulStepCount ?: stepReports.count { !it.isSuccessful }
+  }
 
   @get:JvmName("executionFailureStepCount")
-  val executionFailureStepCount: Int by lazy { stepReports.count { it.failure?.isLeft ?: false } }
+  val executionFailureStepCount: Int by lazy {
+    stepReportLog?.tally?.executionFailureStepCount
+      ?: stepReports.count { it.failure?.isLeft ?: false }
+  }
 
   @get:JvmName("firstUnsuccessfulStepReport")
   val firstUnsuccessfulStepReport: StepReport? by lazy {
-    stepReports.firstOrNull { !it.isSuccessful }
+    val log = stepReportLog
+    if (log != null) log.tally.firstUnsuccessfulStepReport
+    else stepReports.firstOrNull { !it.isSuccessful }
   }
 
   @get:JvmName("firstUnIgnoredUnsuccessfulStepReport")
@@ -58,7 +81,7 @@ data class Rundown(
   }
 
   @get:JvmName("areAllStepsSuccessful")
-  val areAllStepsSuccessful: Boolean by lazy { stepReports.all { it.isSuccessful } }
+  val areAllStepsSuccessful: Boolean by lazy { unsuccessfulStepCount == 0 }
 
   @get:JvmName("areAllStepsExceptIgnoredSuccessful")
   val areAllStepsExceptIgnoredSuccessful: Boolean by lazy {
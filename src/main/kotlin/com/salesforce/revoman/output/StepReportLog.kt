@@ -0,0 +1,84 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.output
+
+import com.salesforce.revoman.output.report.StepReport
+import kotlinx.collections.immutable.PersistentList
+import kotlinx.collections.immutable.persistentListOf
+import kotlinx.collections.immutable.toPersistentList
+
+/**
+ * The run's append-only log of [StepReport]s. The sequencer appends one report per execution and
+ * [PostmanSDK][com.salesforce.revoman.internal.postman.PostmanSDK] replaces the last one as the
+ * current step's report evolves — both effectively O(1) on a persistent vector whose structure is
+ * shared by every per-step [Rundown], where a [List] copy per call made a long run quadratic.
+ *
+ * The counts a [Rundown] derives from its reports are carried alongside as a [StepReportTally]:
+ * [settled] covers every report but the last (the only one that can still be replaced), so both
+ * [append] and [replaceLast] update it in constant time.
+ */
+internal class StepReportLog
+private constructor(
+  @JvmField val reports: PersistentList<StepReport>,
+  private val settled: StepReportTally,
+) {
+  val tally: StepReportTally
+    get() = reports.lastOrNull()?.let { settled + it } ?: settled
+
+  fun append(report: StepReport): StepReportLog = StepReportLog(reports.add(report), tally)
+
+  /** Replaces the last report if it is for the same step, else [append]s. */
+  fun replaceLastOrAppend(report: StepReport): StepReportLog =
+    if (reports.lastOrNull()?.step == report.step) replaceLast(report) else append(report)
+
+  fun replaceLast(report: StepReport): StepReportLog =
+    StepReportLog(reports.set(reports.lastIndex, report), settled)
+
+  companion object {
+    @JvmField val EMPTY = StepReportLog(persistentListOf(), StepReportTally())
+
+    /** Tallies [reports] once, for a [Rundown] that wasn't built from a log. */
+    fun of(reports: List<StepReport>): StepReportLog =
+      if (reports.isEmpty()) EMPTY
+      else {
+        val persistent = reports.toPersistentList()
+        StepReportLog(
+          persistent,
+          persistent.subList(0, persistent.lastIndex).fold(StepReportTally(), StepReportTally::plus),
+        )
+      }
+  }
+}
+
+/**
+ * A [StepReportLog]'s reports as the plain [List] a [Rundown] exposes, with the [log] riding along
+ * so its tally survives [Rundown.copy] and takes part in equality only as the list it wraps.
+ */
+internal class StepReportList(@JvmField val log: StepReportLog) : List<StepReport> by log.reports {
+  override fun equals(other: Any?): Boolean = log.reports == other
+
+  override fun hashCode(): Int = log.reports.hashCode()
+
+  override fun toString(): String = log.reports.toString()
+}
+
+/** Running counts over a prefix of the step reports, one report at a time. */
+internal data class StepReportTally(
+  val httpFailureStepCount: Int = 0,
+  val unsuccessfulStepCount: Int = 0,
+  val executionFailureStepCount: Int = 0,
+  val firstUnsuccessfulStepReport: StepReport? = null,
+) {
+  operator fun plus(report: StepReport): StepReportTally =
+    StepReportTally(
+      httpFailureStepCount + if (report.isHttpStatusSuccessful) 0 else 1,
+      unsuccessfulStepCount + if (report.isSuccessful) 0 else 1,
+      executionFailureStepCount + if (report.failure?.isLeft == true) 1 else 0,
+      firstUnsuccessfulStepReport ?: report.takeUnless { it.isSuccessful },
+    )
+}
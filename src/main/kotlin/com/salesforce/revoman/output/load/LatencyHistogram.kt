@@ -0,0 +1,114 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.output.load
+
+import java.time.Duration
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+import kotlin.math.ceil
+
+/**
+ * A lock-free, fixed-footprint latency histogram in the HdrHistogram layout: values (in
+ * microseconds) below [SUB_BUCKETS] are counted exactly, and every power-of-two range above is
+ * split into [SUB_BUCKETS]`/2` linear sub-buckets — so any recorded value is reported within ~1.6%
+ * (1/64) of its true value, from 1µs up to centuries, in ~30 KB. Recording is a handful of atomic
+ * updates, safe from any number of load workers without coordination.
+ *
+ * Percentiles report the HIGHEST value equivalent to the bucket the rank falls in (the
+ * conservative HDR convention), never below the true value; [max] and [min] are exact.
+ */
+class LatencyHistogram {
+  private val counts = AtomicLongArray(BUCKET_COUNT)
+  private val totalCount = AtomicLong()
+  private val totalMicros = AtomicLong()
+  private val minMicros = AtomicLong(Long.MAX_VALUE)
+  private val maxMicros = AtomicLong()
+
+  fun record(latency: Duration) {
+    val micros = latency.toNanos().coerceAtLeast(0) / 1_000
+    counts.incrementAndGet(indexOf(micros))
+    totalCount.incrementAndGet()
+    totalMicros.addAndGet(micros)
+    minMicros.accumulateAndGet(micros, ::minOf)
+    maxMicros.accumulateAndGet(micros, ::maxOf)
+  }
+
+  @get:JvmName("count") val count: Long get() = totalCount.get()
+
+  @get:JvmName("min")
+  val min: Duration
+    get() = if (count == 0L) Duration.ZERO else Duration.ofNanos(minMicros.get() * 1_000)
+
+  @get:JvmName("max") val max: Duration get() = Duration.ofNanos(maxMicros.get() * 1_000)
+
+  @get:JvmName("mean")
+  val mean: Duration
+    get() = if (count == 0L) Duration.ZERO else Duration.ofNanos(totalMicros.get() * 1_000 / count)
+
+  @get:JvmName("p50") val p50: Duration get() = percentile(50.0)
+
+  @get:JvmName("p90") val p90: Duration get() = percentile(90.0)
+
+  @get:JvmName("p99") val p99: Duration get() = percentile(99.0)
+
+  /** The latency at [percentile] (0–100], clamped to the exact [max]. Zero when empty. */
+  fun percentile(percentile: Double): Duration {
+    require(percentile > 0.0 && percentile <= 100.0) {
+      "percentile must be in (0, 100], was $percentile"
+    }
+    val total = count
+    if (total == 0L) return Duration.ZERO
+    val rank = ceil(percentile / 100.0 * total).toLong().coerceAtLeast(1)
+    var seen = 0L
+    for (index in 0 until BUCKET_COUNT) {
+      seen += counts.get(index)
+      if (seen >= rank) {
+        return Duration.ofNanos(minOf(highestEquivalent(index), maxMicros.get()) * 1_000)
+      }
+    }
+    return max
+  }
+
+  /** Adds every count of [other] into this histogram (e.g. to roll steps up into a run total). */
+  fun add(other: LatencyHistogram) {
+    for (index in 0 until BUCKET_COUNT) {
+      val bucket = other.counts.get(index)
+      if (bucket != 0L) counts.addAndGet(index, bucket)
+    }
+    totalCount.addAndGet(other.totalCount.get())
+    totalMicros.addAndGet(other.totalMicros.get())
+    minMicros.accumulateAndGet(other.minMicros.get(), ::minOf)
+    maxMicros.accumulateAndGet(other.maxMicros.get(), ::maxOf)
+  }
+
+  override fun toString(): String =
+    "count=$count p50=${p50.toMillis()}ms p90=${p90.toMillis()}ms p99=${p99.toMillis()}ms " +
+      "max=${max.toMillis()}ms"
+
+  internal companion object {
+    const val SUB_BUCKETS = 128
+    private const val HALF = SUB_BUCKETS / 2
+    private const val SUB_BUCKET_BITS = 7 // log2(SUB_BUCKETS)
+    private const val BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * HALF + HALF
+
+    /** Exact below [SUB_BUCKETS]; above, (power-of-two range, linear sub-bucket) folded flat. */
+    fun indexOf(micros: Long): Int {
+      if (micros < SUB_BUCKETS) return micros.toInt()
+      val range = 63 - java.lang.Long.numberOfLeadingZeros(micros) - (SUB_BUCKET_BITS - 1)
+      val subBucket = (micros ushr range).toInt() // in [HALF, SUB_BUCKETS)
+      return (range + 1) * HALF + (subBucket - HALF)
+    }
+
+    fun highestEquivalent(index: Int): Long {
+      if (index < SUB_BUCKETS) return index.toLong()
+      val range = index / HALF - 1
+      val subBucket = index % HALF + HALF
+      return ((subBucket.toLong() + 1) shl range) - 1
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.output.load
+
+import com.salesforce.revoman.output.ExeType
+import java.time.Duration
+
+/**
+ * The aggregate of a load run: iteration-level latency and throughput, plus per-step latency
+ * broken down by [ExeType]. Only aggregates are kept — no [com.salesforce.revoman.output.Rundown]
+ * survives an iteration — so memory stays flat however many iterations run.
+ *
+ * @property iterations measured (non-warm-up) iterations scheduled
+ * @property failedIterations measured iterations that threw or had an unsuccessful step
+ * @property wallClock wall-clock time of the measured phase
+ * @property iterationLatency whole-collection latency per measured iteration; in the open model
+ *   measured from the iteration's INTENDED start, i.e. corrected for coordinated omission
+ * @property steps per-step stats, in collection order
+ * @property firstFailure the first exception an iteration threw, if any
+ * @property openModel arrival-schedule stats of an open-model run, `null` for a closed loop
+ */
+data class LoadReport
+internal constructor(
+  @JvmField val iterations: Int,
+  @JvmField val failedIterations: Int,
+  @JvmField val wallClock: Duration,
+  @JvmField val iterationLatency: LatencyHistogram,
+  @JvmField val steps: List<StepLoadStats>,
+  @JvmField val firstFailure: Throwable? = null,
+  @JvmField val openModel: OpenModelStats? = null,
+) {
+  /** Measured iterations that actually ran (all of them, unless the open model dropped some). */
+  @get:JvmName("completedIterations")
+  val completedIterations: Int
+    get() = iterations - (openModel?.droppedIterations ?: 0)
+
+  /** Measured iterations completed per second of [wallClock]. */
+  @get:JvmName("throughputPerSecond")
+  val throughputPerSecond: Double
+    get() = perSecond(completedIterations.toLong(), wallClock)
+
+  fun statsForStep(stepPath: String): StepLoadStats? = steps.firstOrNull { it.path == stepPath }
+
+  override fun toString(): String = buildString {
+    appendLine(
+      "Load: $iterations iterations ($failedIterations failed) in ${wallClock.toMillis()}ms, " +
+        "%.1f it/s".format(throughputPerSecond)
+    )
+    openModel?.let {
+      appendLine(
+        "  target %.1f it/s, ${it.droppedIterations} dropped, ${it.lateIterations} late"
+          .format(it.targetArrivalRatePerSecond)
+      )
+      appendLine("  start lag  ${it.startLag}")
+      appendLine("  service    ${it.serviceLatency}")
+    }
+    appendLine("  iteration  $iterationLatency")
+    steps.forEach { appendLine("  ${it.path}  ${it.latency}") }
+  }
+
+  internal companion object {
+    fun perSecond(count: Long, wallClock: Duration): Double =
+      if (wallClock.isZero) 0.0 else count * 1_000_000_000.0 / wallClock.toNanos()
+  }
+}
+
+/**
+ * How an open-model run kept to its arrival schedule. Iteration `i` is INTENDED to start at
+ * `runStart + i / targetArrivalRatePerSecond`; [startLag] is how much later it actually started
+ * (scheduler or in-flight backlog), and [LoadReport.iterationLatency] counts that lag as
+ * latency — a request the load generator couldn't send on time is exactly the queueing a real
+ * client would see. [serviceLatency] is the uncorrected figure, from actual start, for comparison.
+ *
+ * @property droppedIterations iterations not started because `concurrency` were already in flight
+ * @property lateIterations started iterations whose [startLag] exceeded one arrival interval
+ */
+data class OpenModelStats
+internal constructor(
+  @JvmField val targetArrivalRatePerSecond: Double,
+  @JvmField val droppedIterations: Int,
+  @JvmField val lateIterations: Int,
+  @JvmField val startLag: LatencyHistogram,
+  @JvmField val serviceLatency: LatencyHistogram,
+)
+
+/**
+ * One step's stats across a load run. [latency] is the step's total (the sum of its
+ * [com.salesforce.revoman.output.report.StepReport.exeTimings], the same figure the run log's
+ * `tookMs` reports); [byExeType] splits it per phase, so e.g. `HTTP_REQUEST` p99 separates server
+ * latency from script/unmarshalling overhead. Ledger-skipped executions aren't counted.
+ */
+data class StepLoadStats
+internal constructor(
+  @JvmField val path: String,
+  @JvmField val latency: LatencyHistogram,
+  @JvmField val byExeType: Map<ExeType, LatencyHistogram>,
+  @JvmField val failures: Long,
+) {
+  @get:JvmName("executions")
+  val executions: Long
+    get() = latency.count
+
+  /** Executions of this step completed per second of the run's [wallClock]. */
+  fun throughputPerSecond(wallClock: Duration): Double =
+    LoadReport.perSecond(executions, wallClock)
+}
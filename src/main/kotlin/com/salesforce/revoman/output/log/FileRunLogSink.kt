@@ -7,6 +7,7 @@
  */
 package com.salesforce.revoman.output.log
 
+import com.salesforce.revoman.output.report.ServerTiming
 import io.github.oshai.kotlinlogging.KotlinLogging
 import java.io.BufferedWriter
 import java.io.IOException
@@ -56,6 +57,12 @@ private constructor(
   /** Per-run step timings (path -> summed tookMs) for the heaviest-steps table (Task 5). */
   private val stepTimings = LinkedHashMap<String, Long>()
 
+  /**
+   * Per-path split of HTTP time for steps whose server sent `Server-Timing`: summed server ms and
+   * summed HTTP ms, so the heaviest-steps table can show the server's share next to the rest.
+   */
+  private val serverSplits = LinkedHashMap<String, LongArray>()
+
   /**
    * The rendered perf summary block, stored at footer-write time so close() can splice it below the
    * banner.
@@ -75,6 +82,13 @@ private constructor(
     // Accumulate step timings for the heaviest-steps table BEFORE any content gate.
     if (event is StepEvent.StepFinished) {
       stepTimings.merge(event.path, event.tookMs) { existing, new -> existing + new }
+      val serverMs = ServerTiming.serverTimeOf(event.serverTimings)?.toMillis()
+      if (serverMs != null && event.httpMs != null) {
+        serverSplits.getOrPut(event.path) { LongArray(2) }.let {
+          it[0] += serverMs
+          it[1] += event.httpMs
+        }
+      }
     }
     // Coarse runbook events render under their OWN toggle (independent of `steps`), so a reader can
     // keep the runbook tree while dropping per-request bodies (or the reverse). All grammar comes
@@ -120,18 +134,36 @@ private constructor(
    * cleanup steps — so it is the "where did the time go" view at step granularity. Newline-
    * terminated; header-only when no steps ran. When a step path repeats in a run (retries/chained
    * collections), its times are summed — this is total time under that path, not one execution.
+   *
+   * When any step's server sent `Server-Timing` (see `Kick.traceContext`), two columns follow the
+   * total: the server's time, and the rest of the step's HTTP time — network and client. Steps
+   * without it show `-` there.
    */
   fun renderHeaviestSteps(topN: Int): String {
     val sb = StringBuilder("--- perf: heaviest steps ----------------------------\n")
+    val split = serverSplits.isNotEmpty()
+    if (split) {
+      sb.append(
+        String.format("  %-${PATH_COL_WIDTH}s%10s%10s%12s\n", "", "total", "server", "net+client")
+      )
+    }
     stepTimings.entries
       .sortedByDescending { it.value }
       .take(topN.coerceAtLeast(0))
       .forEach {
-        sb.append(String.format("  %-${PATH_COL_WIDTH}s%8dms\n", truncatePath(it.key), it.value))
+        sb.append(String.format("  %-${PATH_COL_WIDTH}s%8dms", truncatePath(it.key), it.value))
+        if (split) {
+          val ms = serverSplits[it.key]
+          val overheadMs = ms?.let { (serverMs, httpMs) -> httpMs - serverMs }
+          sb.append(String.format("%10s%12s", ms?.get(0).asMs(), overheadMs.asMs()))
+        }
+        sb.append('\n')
       }
     return sb.toString()
   }
 
+  private fun Long?.asMs(): String = if (this == null) "-" else "${coerceAtLeast(0)}ms"
+
   /**
    * Keep the heaviest-steps table aligned: cap an over-long step path so the ms column doesn't
    * shift. An over-long path is truncated to [PATH_COL_WIDTH] chars with a trailing ellipsis.
@@ -8,6 +8,11 @@
 package com.salesforce.revoman.output.log
 
 import com.salesforce.revoman.input.config.Phase
+import com.salesforce.revoman.output.ExeType
+import com.salesforce.revoman.output.report.HttpPoolStats
+import com.salesforce.revoman.output.report.HttpTiming
+import com.salesforce.revoman.output.report.SandboxProfile
+import com.salesforce.revoman.output.report.ServerTiming
 
 /**
  * Per-step outcome surfaced to a [RunLogSink]; mirrors a
@@ -53,6 +58,16 @@ sealed interface StepEvent {
     val host: String? = null,
     /** Request URI path; null when the step made no request. */
     val requestPath: String? = null,
+    /** Where the step's sandbox scripts spent their time, as on its StepReport. */
+    val sandboxProfiles: Map<ExeType, SandboxProfile> = emptyMap(),
+    /** The host's connection pool as the step's request was sent, as on its StepReport. */
+    val httpPoolStats: HttpPoolStats? = null,
+    /** Where the step's HTTP time went, phase by phase, as on its StepReport. */
+    val httpTiming: HttpTiming? = null,
+    /** The step's `exeTimings[HTTP_REQUEST]` in ms; null when it sent no request. */
+    val httpMs: Long? = null,
+    /** The response's `Server-Timing` metrics, as on its StepReport. */
+    val serverTimings: List<ServerTiming> = emptyList(),
   ) : StepEvent
 
   data class LedgerSkipped(override val path: String, val reused: Set<String>) : StepEvent
@@ -372,9 +372,43 @@ private constructor(private var current: PersistentMap<String, V>) : MutableMap<
 
   constructor(seed: Map<String, V>) : this(seed.toPersistentMap())
 
+  /** Bumped once per key put or removed; readers remember it to ask [changedKeysSince] later. */
+  var version = 0L
+    private set
+
+  /** Written keys in order: the one at index `i` took [version] from `journalStart + i`. */
+  private val journal = ArrayList<String>()
+  private var journalStart = 0L
+  private var drainedAt: Long? = null
+
   /** O(1): a NEW instance sharing this instance's current immutable backing. */
   fun snapshotView(): PersistentBackedMutableMap<V> = PersistentBackedMutableMap(current)
 
+  /**
+   * The keys put or removed after [since], a [version] read earlier. `null` when the journal no
+   * longer reaches back that far — after [clear], or once [JOURNAL_LIMIT] writes evicted it — and
+   * the caller must rescan. Any number of readers can follow the same map, each at its own version.
+   */
+  fun changedKeysSince(since: Long): Set<String>? =
+    if (since < journalStart || since > version) null
+    else journal.subList((since - journalStart).toInt(), journal.size).toSet()
+
+  /**
+   * The keys put or removed since the previous call. `null` on the first call and after [clear] —
+   * the caller can't tell what changed and must rescan. Snapshot views keep their own journal.
+   */
+  fun drainChangedKeys(): Set<String>? =
+    drainedAt?.let(::changedKeysSince).also { drainedAt = version }
+
+  private fun journal(key: String) {
+    if (journal.size == JOURNAL_LIMIT) {
+      journalStart = version
+      journal.clear()
+    }
+    journal += key
+    version++
+  }
+
   override val size: Int
     get() = current.size
 
@@ -389,21 +423,27 @@ private constructor(private var current: PersistentMap<String, V>) : MutableMap<
   override fun put(key: String, value: V): V? {
     val prev = current[key]
     current = current.put(key, value)
+    journal(key)
     return prev
   }
 
   override fun remove(key: String): V? {
     val prev = current[key]
     current = current.remove(key)
+    journal(key)
     return prev
   }
 
   override fun putAll(from: Map<out String, V>) {
     current = current.putAll(from)
+    from.keys.forEach(::journal)
   }
 
   override fun clear() {
     current = persistentMapOf()
+    version++
+    journalStart = version
+    journal.clear()
   }
 
   // Read-through views over the current backing. kotlinx immutable views are Set/Collection; wrap
@@ -468,6 +508,11 @@ private constructor(private var current: PersistentMap<String, V>) : MutableMap<
   override fun hashCode(): Int = current.hashCode()
 
   override fun toString(): String = current.toString()
+
+  private companion object {
+    /** Journal entries kept before it is dropped; bounds the memory of an env no one reads. */
+    const val JOURNAL_LIMIT = 8_192
+  }
 }
 
 private fun <T> Iterator<T>.asReadOnlyMutable(): MutableIterator<T> =
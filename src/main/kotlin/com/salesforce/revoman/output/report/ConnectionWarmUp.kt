@@ -0,0 +1,28 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.output.report
+
+import java.time.Duration
+
+/**
+ * What `Kick.prewarmConnections` did before the run's first step, on `Rundown.connectionWarmUp`:
+ * - [warmed]: each host (`host:port`) connected to, with how long its DNS, TCP and TLS setup took.
+ * - [failed]: each host that couldn't be reached, with why. Its first step connects as usual.
+ * - [elapsed]: how long the run waited on the warm-up. Hosts are warmed in parallel, alongside
+ *   the sandbox boot, so this is about the slowest host's setup rather than their sum.
+ *
+ * [handshakeTimeSaved] is the setup the hosts' first steps no longer pay in their
+ * `exeTimings[HTTP_REQUEST]`; less [elapsed], it's what the run saved overall.
+ */
+data class ConnectionWarmUp(
+  @JvmField val warmed: Map<String, Duration>,
+  @JvmField val failed: Map<String, String> = emptyMap(),
+  @JvmField val elapsed: Duration,
+) {
+  @JvmField val handshakeTimeSaved: Duration = warmed.values.fold(Duration.ZERO, Duration::plus)
+}
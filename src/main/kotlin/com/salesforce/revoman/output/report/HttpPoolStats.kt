@@ -0,0 +1,22 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.output.report
+
+/**
+ * A connection pool's state for one [host] (`host:port`): connections [leased] to requests in
+ * flight, requests [pending] a lease because the pool is at its cap, idle connections [available]
+ * for reuse, and the per-host cap [max]. A steady non-zero [pending] means the pool, not the
+ * server, is the bottleneck. See `ReVoman.httpPoolStats` and [StepReport.httpPoolStats].
+ */
+data class HttpPoolStats(
+  @JvmField val host: String,
+  @JvmField val leased: Int,
+  @JvmField val pending: Int,
+  @JvmField val available: Int,
+  @JvmField val max: Int,
+)
@@ -0,0 +1,36 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.output.report
+
+import java.time.Duration
+
+/**
+ * Where one step's `exeTimings[HTTP_REQUEST]` went, for [StepReport.httpTiming], phase by phase:
+ * - [dnsLookup], [connect] and [tlsHandshake]: setting up a connection; all zero when the request
+ *   reused a pooled one ([connectionReused]).
+ * - [requestWrite]: sending the request line, headers and body.
+ * - [timeToFirstByte]: from the request being sent to the response's status line and headers
+ *   arriving — the server's think time plus one round trip.
+ * - [download]: reading the response body.
+ *
+ * A phase the exchange never reached, because it failed first, is zero. [total] is the phases'
+ * sum; the rest of `HTTP_REQUEST` is the client's own overhead.
+ */
+data class HttpTiming(
+  @JvmField val dnsLookup: Duration,
+  @JvmField val connect: Duration,
+  @JvmField val tlsHandshake: Duration,
+  @JvmField val requestWrite: Duration,
+  @JvmField val timeToFirstByte: Duration,
+  @JvmField val download: Duration,
+  @JvmField val connectionReused: Boolean,
+) {
+  @JvmField
+  val total: Duration =
+    dnsLookup + connect + tlsHandshake + requestWrite + timeToFirstByte + download
+}
@@ -0,0 +1,40 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.output.report
+
+import java.time.Duration
+
+/**
+ * Where one script's time went in the Postman sandbox, for [StepReport.sandboxProfiles]. The
+ * phases add up to the script's share of `exeTimings[PRE_REQ_JS]`/`[POST_RES_JS]`:
+ * - [scopeSync]: handing the scopes to the sandbox, as changed keys or full copies.
+ * - [execute]: the script's synchronous run, including parsing it the first time it's seen.
+ * - [drain]: the event loop after that — promises, timers, and waiting on `pm.sendRequest`.
+ * - [decode]: reading the sandbox's events back, Flatted parsing included.
+ * - [scopeApply]: applying the script's variable changes to the run's scopes.
+ *
+ * [tasksRun], [timersFired] and [hostAwaits] (`pm.sendRequest`s) count the event loop's work;
+ * [events] and [flattedBytes] measure what the sandbox sent back, the latter only for events too
+ * irregular to copy directly. [allocatedBytes] is what the running thread allocated, guest and
+ * host, or null where the JVM can't measure it (for example, on a virtual thread).
+ */
+data class SandboxProfile(
+  @JvmField val scopeSync: Duration,
+  @JvmField val execute: Duration,
+  @JvmField val drain: Duration,
+  @JvmField val decode: Duration,
+  @JvmField val scopeApply: Duration = Duration.ZERO,
+  @JvmField val tasksRun: Int = 0,
+  @JvmField val timersFired: Int = 0,
+  @JvmField val hostAwaits: Int = 0,
+  @JvmField val events: Int = 0,
+  @JvmField val flattedBytes: Long = 0,
+  @JvmField val allocatedBytes: Long? = null,
+) {
+  @JvmField val total: Duration = scopeSync + execute + drain + decode + scopeApply
+}
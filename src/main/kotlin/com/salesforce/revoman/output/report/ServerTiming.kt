@@ -0,0 +1,34 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.output.report
+
+import java.time.Duration
+
+/**
+ * One metric of a response's `Server-Timing` header, e.g. `db;dur=53.2;desc="Primary DB"`: its
+ * [name], its [duration] (`dur`, in milliseconds on the wire) and its [description] (`desc`), the
+ * latter two null when the server left them out. See [StepReport.serverTimings].
+ */
+data class ServerTiming(
+  @JvmField val name: String,
+  @JvmField val duration: Duration?,
+  @JvmField val description: String?,
+) {
+  companion object {
+    private const val TOTAL = "total"
+
+    /**
+     * The time the server says it spent on the request: its `total` metric if it sends one, else
+     * its longest metric. Metrics commonly nest (`app` spans `db`), so they aren't summed.
+     */
+    @JvmStatic
+    fun serverTimeOf(serverTimings: List<ServerTiming>): Duration? =
+      serverTimings.firstOrNull { it.name.equals(TOTAL, ignoreCase = true) }?.duration
+        ?: serverTimings.mapNotNull { it.duration }.maxOrNull()
+  }
+}
@@ -56,6 +56,32 @@ internal constructor(
    * Internal marker: this report is a pre-request `skipRequest()` skip (set by [requestSkipped]).
    */
   @JvmField val requestSkippedFlag: Boolean = false,
+  /**
+   * Where this step's sandbox scripts spent their time, keyed by [ExeType.PRE_REQ_JS] and
+   * [ExeType.POST_RES_JS]. A script that ran natively, or not at all, has no entry.
+   */
+  @JvmField val sandboxProfiles: Map<ExeType, SandboxProfile> = emptyMap(),
+  /**
+   * The connection pool for this step's host just before its request was leased a connection: how
+   * busy the host was when the step's `exeTimings[HTTP_REQUEST]` began. Null for the first request
+   * to a host, and under [com.salesforce.revoman.input.config.KickDef.asyncHttp], whose JDK client
+   * keeps its pool to itself.
+   */
+  @JvmField val httpPoolStats: HttpPoolStats? = null,
+  /**
+   * The step's `exeTimings[HTTP_REQUEST]` broken down into connection setup, write, wait and read.
+   * Null when the request never got a connection. Under
+   * [com.salesforce.revoman.input.config.KickDef.asyncHttp], whose JDK client exposes no setup or
+   * write, everything before the response head is in `timeToFirstByte`.
+   */
+  @JvmField val httpTiming: HttpTiming? = null,
+  /**
+   * The W3C `traceparent` the step's request carried, to find its spans in the backend's traces:
+   * the one `Kick.traceContext` added, or the collection's own. Null when it sent none.
+   */
+  @JvmField val traceparent: String? = null,
+  /** The response's `Server-Timing` metrics, parsed when `Kick.traceContext` is set. */
+  @JvmField val serverTimings: List<ServerTiming> = emptyList(),
 ) {
   internal constructor(
     step: Step,
@@ -131,6 +157,12 @@ internal constructor(
    */
   @JvmField val isRequestSkipped: Boolean = requestSkippedFlag
 
+  /**
+   * The share of `exeTimings[HTTP_REQUEST]` the server accounts for in [serverTimings] (see
+   * [ServerTiming.serverTimeOf]); the rest is network and client. Null when it reported none.
+   */
+  @JvmField val serverTime: Duration? = ServerTiming.serverTimeOf(serverTimings)
+
   companion object {
     /**
      * A RECORDED report for a step whose HTTP dispatch was skipped on a warm run because the ledger
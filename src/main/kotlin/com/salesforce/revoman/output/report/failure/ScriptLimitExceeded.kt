@@ -0,0 +1,41 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.output.report.failure
+
+import java.time.Duration
+
+/**
+ * A pre-request or test script stopped for running past one of its budgets: [elapsed] wall-clock
+ * time against its [timeout] (`Kick.scriptTimeout`), or more of its own statements than
+ * [statementBudget]. Surfaces as the `failure` of a [RequestFailure.PreReqJSFailure] or
+ * [ResponseFailure.PostResJSFailure]. The sandbox it ran in is discarded and the run's next script
+ * gets a fresh one.
+ */
+class ScriptLimitExceeded(
+  @JvmField val limit: Limit,
+  @JvmField val elapsed: Duration,
+  @JvmField val timeout: Duration,
+  @JvmField val statementBudget: Long,
+  cause: Throwable? = null,
+) : RuntimeException(messageFor(limit, elapsed, timeout, statementBudget), cause) {
+  enum class Limit {
+    /** Ran longer than its `timeout`. */
+    WALL_CLOCK,
+
+    /** Ran more statements than its `statementBudget` — the CPU budget, which a busy loop hits. */
+    STATEMENTS,
+  }
+
+  private companion object {
+    fun messageFor(limit: Limit, elapsed: Duration, timeout: Duration, statementBudget: Long) =
+      when (limit) {
+        Limit.WALL_CLOCK -> "Script exceeded its wall-clock budget of $timeout"
+        Limit.STATEMENTS -> "Script exceeded its budget of $statementBudget statements"
+      } + " (stopped after $elapsed)"
+  }
+}
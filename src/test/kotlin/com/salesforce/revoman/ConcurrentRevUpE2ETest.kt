@@ -0,0 +1,156 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman
+
+import com.google.common.truth.Truth.assertThat
+import com.salesforce.revoman.input.config.HookConfig
+import com.salesforce.revoman.input.config.Kick
+import com.salesforce.revoman.input.config.StepPick.PostTxnStepPick.PickUtils.afterStepName
+import com.salesforce.revoman.input.config.StepPick.PreTxnStepPick.PickUtils.beforeStepName
+import com.sun.net.httpserver.HttpServer
+import java.net.InetSocketAddress
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+import org.junit.jupiter.api.AfterAll
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+
+/**
+ * E2E for the concurrent execution paths ([ReVoman.revUpAll] and `stepConcurrency` waves) against a
+ * loopback [HttpServer] that answers every request after a short delay and records the peak number
+ * of requests in flight — the observable proof that runs/steps actually overlapped.
+ */
+class ConcurrentRevUpE2ETest {
+  private val collection = "pm-templates/v3/fan-out"
+
+  private fun kick(tenant: String, stepConcurrency: Int = 1, vararg hooks: HookConfig) =
+    Kick.configure()
+      .templatePath(collection)
+      .dynamicEnvironment("baseUrl", baseUrl)
+      .dynamicEnvironment("tenant", tenant)
+      .stepConcurrency(stepConcurrency)
+      .hooks(*hooks)
+      .insecureHttp(true)
+      .off()
+
+  @BeforeEach
+  fun resetPeak() {
+    inFlight.set(0)
+    peakInFlight.set(0)
+  }
+
+  @Test
+  fun `revUpAll runs isolated kicks concurrently and returns rundowns in kick order`() {
+    val tenants = (1..20).map { "tenant-$it" }
+
+    val rundowns = ReVoman.revUpAll(tenants.map { kick(it) })
+
+    assertThat(rundowns.map { it.mutableEnv["tenant"] }).containsExactlyElementsIn(tenants).inOrder()
+    assertThat(rundowns.all { it.areAllStepsSuccessful }).isTrue()
+    rundowns.forEach { assertThat(it.mutableEnv.keys).containsAtLeast("id1", "id2", "id3", "id4") }
+    assertThat(peakInFlight.get()).isGreaterThan(1)
+  }
+
+  @Test
+  fun `revUpAll honors a caller supplied executor and leaves it running`() {
+    val executor = Executors.newFixedThreadPool(2)
+    try {
+      val rundowns = ReVoman.revUpAll(listOf(kick("a"), kick("b"), kick("c")), executor)
+      assertThat(rundowns.map { it.mutableEnv["tenant"] }).containsExactly("a", "b", "c").inOrder()
+      assertThat(executor.isShutdown).isFalse()
+    } finally {
+      executor.shutdownNow()
+    }
+  }
+
+  @Test
+  fun `stepConcurrency overlaps independent steps and keeps declaration order`() {
+    val rundown = ReVoman.revUp(kick("solo", stepConcurrency = 4))
+
+    assertThat(rundown.stepReports.map { it.step.name })
+      .containsExactly("create-1", "create-2", "create-3", "create-4")
+      .inOrder()
+    assertThat(rundown.areAllStepsSuccessful).isTrue()
+    assertThat(rundown.stepReports.map { it.envVars.produced })
+      .containsExactly(setOf("id1"), setOf("id2"), setOf("id3"), setOf("id4"))
+      .inOrder()
+    assertThat(peakInFlight.get()).isGreaterThan(1)
+  }
+
+  @Test
+  fun `a PreStepHook on a wave member runs only after the earlier members completed`() {
+    val seenByHook = mutableListOf<String>()
+    val hook =
+      HookConfig.pre(beforeStepName("create-3")) { _, _, rundown ->
+        rundown.stepReports
+          .filter { it.responseInfo != null }
+          .mapTo(seenByHook) { it.step.name }
+      }
+
+    val rundown = ReVoman.revUp(kick("solo", 4, hook))
+
+    assertThat(seenByHook).containsExactly("create-1", "create-2").inOrder()
+    assertThat(rundown.stepReports.map { it.step.name })
+      .containsExactly("create-1", "create-2", "create-3", "create-4")
+      .inOrder()
+    assertThat(rundown.areAllStepsSuccessful).isTrue()
+  }
+
+  @Test
+  fun `a key a PostStepHook produces reaches the next step`() {
+    val hook =
+      HookConfig.post(afterStepName("login")) { stepReport, rundown ->
+        rundown.mutableEnv.set("token", "t-${stepReport.step.name}")
+      }
+    val kick =
+      Kick.configure()
+        .templatePath("pm-templates/v3/hook-chain")
+        .dynamicEnvironment("baseUrl", baseUrl)
+        .stepConcurrency(4)
+        .hooks(hook)
+        .insecureHttp(true)
+        .off()
+
+    val rundown = ReVoman.revUp(kick)
+
+    assertThat(rundown.areAllStepsSuccessful).isTrue()
+    assertThat(rundown.stepReports[1].requestInfo!!.get().httpMsg.uri.path).isEqualTo("/me/t-login")
+  }
+
+  companion object {
+    private lateinit var server: HttpServer
+    private lateinit var baseUrl: String
+    private val inFlight = AtomicInteger()
+    private val peakInFlight = AtomicInteger()
+    private val ids = AtomicInteger()
+
+    @BeforeAll
+    @JvmStatic
+    fun startServer() {
+      server = HttpServer.create(InetSocketAddress("127.0.0.1", 0), 0)
+      server.executor = Executors.newCachedThreadPool()
+      server.createContext("/") { exchange ->
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), ::maxOf)
+        try {
+          Thread.sleep(100)
+          val body = """{"id": "${ids.incrementAndGet()}"}""".toByteArray()
+          exchange.responseHeaders.add("Content-Type", "application/json")
+          exchange.sendResponseHeaders(200, body.size.toLong())
+          exchange.responseBody.use { it.write(body) }
+        } finally {
+          inFlight.decrementAndGet()
+        }
+      }
+      server.start()
+      baseUrl = "http://127.0.0.1:${server.address.port}"
+    }
+
+    @AfterAll @JvmStatic fun stopServer() = server.stop(0)
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman
+
+import com.google.common.truth.Truth.assertThat
+import com.salesforce.revoman.input.IterationHook
+import com.salesforce.revoman.input.config.Kick
+import com.sun.net.httpserver.HttpServer
+import java.net.InetSocketAddress
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+import org.junit.jupiter.api.AfterAll
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+
+/** E2E for [ReVoman.revUpIterations] over CSV/NDJSON iteration data against a loopback server. */
+class IterationDataE2ETest {
+  private fun kick(dataPath: String?, concurrency: Int = 1) =
+    Kick.configure()
+      .templatePath("pm-templates/v3/fan-out")
+      .dynamicEnvironment("baseUrl", baseUrl)
+      .dynamicEnvironment("tenant", "default")
+      .iterationDataPath(dataPath)
+      .iterationConcurrency(concurrency)
+      .insecureHttp(true)
+      .off()
+
+  @Test
+  fun `each csv row runs the collection once with the row overlaid on the env`() {
+    val envByIteration = ConcurrentHashMap<Long, Map<String, Any?>>()
+
+    val summary =
+      ReVoman.revUpIterations(
+        kick("iteration-data/tenants.csv", concurrency = 2),
+        IterationHook { iteration, _, rundown ->
+          assertThat(rundown.areAllStepsSuccessful).isTrue()
+          envByIteration[iteration] = rundown.mutableEnv.immutableEnv
+        },
+      )
+
+    assertThat(summary.iterations).isEqualTo(3)
+    assertThat(summary.areAllIterationsSuccessful).isTrue()
+    assertThat(envByIteration.keys).containsExactly(0L, 1L, 2L)
+    assertThat(envByIteration.getValue(0)).containsAtLeast("tenant", "acme", "label", "Acme, Inc.")
+    assertThat(envByIteration.getValue(1)).containsEntry("label", "Globex \"West\"")
+    assertThat(envByIteration.getValue(2)).containsEntry("tenant", "initech")
+    envByIteration.values.forEach {
+      assertThat(it.keys).containsAtLeast("id1", "id2", "id3", "id4")
+    }
+  }
+
+  @Test
+  fun `ndjson rows keep their json types`() {
+    val seats = ConcurrentHashMap<Long, Any?>()
+
+    val summary =
+      ReVoman.revUpIterations(
+        kick("iteration-data/tenants.ndjson"),
+        IterationHook { iteration, row, _ -> seats[iteration] = row["seats"] },
+      )
+
+    assertThat(summary.iterations).isEqualTo(2)
+    assertThat(seats).containsExactly(0L, 3, 1L, 12)
+  }
+
+  @Test
+  fun `a hook failure fails only its row`() {
+    val summary =
+      ReVoman.revUpIterations(
+        kick("iteration-data/tenants.csv"),
+        IterationHook { iteration, _, _ -> check(iteration != 1L) { "row 1 rejected" } },
+      )
+
+    assertThat(summary.iterations).isEqualTo(3)
+    assertThat(summary.failedIterations).isEqualTo(1)
+    assertThat(summary.firstFailure).hasMessageThat().isEqualTo("row 1 rejected")
+  }
+
+  @Test
+  fun `iteration data path is required`() {
+    assertThrows<IllegalArgumentException> { ReVoman.revUpIterations(kick(null)) }
+  }
+
+  companion object {
+    private lateinit var server: HttpServer
+    private lateinit var baseUrl: String
+    private val ids = AtomicInteger()
+
+    @BeforeAll
+    @JvmStatic
+    fun startServer() {
+      server = HttpServer.create(InetSocketAddress("127.0.0.1", 0), 0)
+      server.executor = Executors.newCachedThreadPool()
+      server.createContext("/") { exchange ->
+        val body = """{"id": "${ids.incrementAndGet()}"}""".toByteArray()
+        exchange.responseHeaders.add("Content-Type", "application/json")
+        exchange.sendResponseHeaders(200, body.size.toLong())
+        exchange.responseBody.use { it.write(body) }
+      }
+      server.start()
+      baseUrl = "http://127.0.0.1:${server.address.port}"
+    }
+
+    @AfterAll @JvmStatic fun stopServer() = server.stop(0)
+  }
+}
@@ -0,0 +1,131 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman
+
+import com.google.common.truth.Truth.assertThat
+import com.salesforce.revoman.input.config.IterationEnv
+import com.salesforce.revoman.input.config.Kick
+import com.salesforce.revoman.input.config.LoadConfig
+import com.salesforce.revoman.output.ExeType.HTTP_REQUEST
+import com.sun.net.httpserver.HttpServer
+import java.net.InetSocketAddress
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+import org.junit.jupiter.api.AfterAll
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+
+/**
+ * E2E for [ReVoman.loadTest] against a loopback [HttpServer] that answers after a fixed delay, so
+ * latencies have a known floor and overlapping iterations are observable.
+ */
+class LoadTestE2ETest {
+  private val kick =
+    Kick.configure()
+      .templatePath("pm-templates/v3/fan-out")
+      .dynamicEnvironment("baseUrl", baseUrl)
+      .insecureHttp(true)
+      .off()
+
+  @Test
+  fun `closed loop runs every measured iteration and reports per-step latency`() {
+    val config =
+      LoadConfig.iterations(12)
+        .concurrency(4)
+        .warmUp(2)
+        .seedEachIteration(IterationEnv { mapOf("tenant" to "tenant-$it") })
+        .off()
+    requests.set(0)
+
+    val report = ReVoman.loadTest(kick, config)
+
+    assertThat(report.iterations).isEqualTo(12)
+    assertThat(report.failedIterations).isEqualTo(0)
+    assertThat(report.iterationLatency.count).isEqualTo(12)
+    assertThat(requests.get()).isEqualTo((12 + 2) * 4)
+    assertThat(report.steps.map { it.path.substringAfterLast('/') })
+      .containsExactly("create-1", "create-2", "create-3", "create-4")
+      .inOrder()
+    report.steps.forEach { step ->
+      assertThat(step.executions).isEqualTo(12)
+      assertThat(step.byExeType.getValue(HTTP_REQUEST).p50.toMillis()).isAtLeast(DELAY_MS)
+      assertThat(step.latency.p99).isAtLeast(step.byExeType.getValue(HTTP_REQUEST).p50)
+    }
+    // 4 workers × ~4 requests of DELAY_MS each: well under the 12 × 4 × DELAY_MS a serial run takes
+    assertThat(report.wallClock.toMillis()).isLessThan(12L * 4 * DELAY_MS)
+    assertThat(report.throughputPerSecond).isGreaterThan(0.0)
+  }
+
+  @Test
+  fun `an iteration that throws is counted as failed, not rethrown`() {
+    val config =
+      LoadConfig.iterations(3)
+        .seedEachIteration(IterationEnv { mapOf("baseUrl" to "http://127.0.0.1:1") })
+        .off()
+
+    val report = ReVoman.loadTest(kick, config)
+
+    assertThat(report.iterations).isEqualTo(3)
+    assertThat(report.failedIterations).isEqualTo(3)
+  }
+
+  @Test
+  fun `open model starts iterations on schedule and corrects latency from the intended start`() {
+    val config = LoadConfig.iterations(10).arrivalRate(20.0).off()
+
+    val report = ReVoman.loadTest(kick, config)
+
+    val openModel = report.openModel!!
+    assertThat(openModel.droppedIterations).isEqualTo(0)
+    assertThat(report.completedIterations).isEqualTo(10)
+    assertThat(report.iterationLatency.count).isEqualTo(10)
+    assertThat(openModel.serviceLatency.count).isEqualTo(10)
+    // 4 sequential requests per iteration, iterations overlapping instead of waiting on each other
+    assertThat(report.wallClock.toMillis()).isAtLeast(9 * 50L)
+    assertThat(report.wallClock.toMillis()).isLessThan(10L * 4 * DELAY_MS)
+    assertThat(report.iterationLatency.max).isAtLeast(openModel.serviceLatency.min)
+  }
+
+  @Test
+  fun `open model drops iterations due while the in-flight cap is reached`() {
+    val config = LoadConfig.iterations(5).arrivalRate(100.0).concurrency(1).off()
+
+    val report = ReVoman.loadTest(kick, config)
+
+    val openModel = report.openModel!!
+    assertThat(openModel.droppedIterations).isGreaterThan(0)
+    assertThat(report.completedIterations + openModel.droppedIterations).isEqualTo(5)
+    assertThat(report.iterationLatency.count).isEqualTo(report.completedIterations.toLong())
+  }
+
+  companion object {
+    private const val DELAY_MS = 50L
+    private lateinit var server: HttpServer
+    private lateinit var baseUrl: String
+    private val requests = AtomicInteger()
+
+    @BeforeAll
+    @JvmStatic
+    fun startServer() {
+      server = HttpServer.create(InetSocketAddress("127.0.0.1", 0), 0)
+      server.executor = Executors.newCachedThreadPool()
+      server.createContext("/") { exchange ->
+        requests.incrementAndGet()
+        Thread.sleep(DELAY_MS)
+        val body = """{"id": "${requests.get()}"}""".toByteArray()
+        exchange.responseHeaders.add("Content-Type", "application/json")
+        exchange.sendResponseHeaders(200, body.size.toLong())
+        exchange.responseBody.use { it.write(body) }
+      }
+      server.start()
+      baseUrl = "http://127.0.0.1:${server.address.port}"
+    }
+
+    @AfterAll @JvmStatic fun stopServer() = server.stop(0)
+  }
+}
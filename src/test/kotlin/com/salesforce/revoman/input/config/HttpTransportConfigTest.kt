@@ -0,0 +1,53 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.input.config
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.matchers.shouldBe
+import java.time.Duration
+import org.junit.jupiter.api.Test
+
+class HttpTransportConfigTest {
+
+  @Test
+  fun `an untouched builder is the default transport`() {
+    HttpTransportConfig.transport().off() shouldBe HttpTransportConfig.DEFAULT
+  }
+
+  @Test
+  fun `every knob is carried to the config`() {
+    val config =
+      HttpTransportConfig.transport()
+        .maxConnectionsPerRoute(32)
+        .maxConnectionsTotal(64)
+        .connectionTimeToLive(Duration.ofMinutes(5))
+        .keepAlive(Duration.ofSeconds(30))
+        .http2(true)
+        .socketBuffers(65_536, 131_072)
+        .off()
+    config.maxConnectionsPerRoute shouldBe 32
+    config.maxConnectionsTotal shouldBe 64
+    config.connectionTimeToLive shouldBe Duration.ofMinutes(5)
+    config.keepAlive shouldBe Duration.ofSeconds(30)
+    config.http2 shouldBe true
+    config.socketSendBufferBytes shouldBe 65_536
+    config.socketReceiveBufferBytes shouldBe 131_072
+  }
+
+  @Test
+  fun `invalid transports are rejected`() {
+    shouldThrow<IllegalArgumentException> { HttpTransportConfig.transport().maxConnectionsTotal(0) }
+    shouldThrow<IllegalArgumentException> {
+      HttpTransportConfig.transport().keepAlive(Duration.ZERO)
+    }
+    shouldThrow<IllegalArgumentException> { HttpTransportConfig.transport().socketBuffers(-1, 0) }
+    shouldThrow<IllegalArgumentException> {
+      HttpTransportConfig.transport().maxConnectionsPerRoute(16).maxConnectionsTotal(8).off()
+    }
+  }
+}
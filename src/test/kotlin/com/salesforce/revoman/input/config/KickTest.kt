@@ -83,4 +83,24 @@ class KickTest {
     val custom = Kick.configure().templatePath("x").maxStepExecutionFactor(3).off()
     custom.maxStepExecutionFactor() shouldBe 3
   }
+
+  @Test
+  fun `stepConcurrency defaults to serial and rejects values below 1`() {
+    Kick.configure().templatePath("x").off().stepConcurrency() shouldBe 1
+    Kick.configure().templatePath("x").stepConcurrency(8).off().stepConcurrency() shouldBe 8
+    shouldThrow<IllegalArgumentException> {
+      Kick.configure().templatePath("x").stepConcurrency(0).off()
+    }
+  }
+
+  @Test
+  fun `httpTransport defaults to the shared transport and HTTP-2 requires asyncHttp`() {
+    Kick.configure().templatePath("x").off().httpTransport() shouldBe HttpTransportConfig.DEFAULT
+    val http2 = HttpTransportConfig.transport().http2(true).off()
+    shouldThrow<IllegalArgumentException> {
+      Kick.configure().templatePath("x").httpTransport(http2).off()
+    }
+    val kick = Kick.configure().templatePath("x").httpTransport(http2).asyncHttp(true).off()
+    kick.httpTransport() shouldBe http2
+  }
 }
@@ -0,0 +1,47 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.input.config
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.matchers.shouldBe
+import org.junit.jupiter.api.Test
+
+class LoadConfigTest {
+
+  @Test
+  fun `closed loop defaults to a single worker without warm-up`() {
+    val config = LoadConfig.iterations(10).off()
+    config.concurrency shouldBe 1
+    config.warmUpIterations shouldBe 0
+    config.isOpenModel shouldBe false
+  }
+
+  @Test
+  fun `arrival rate switches to the open model with a generous in-flight cap`() {
+    val config = LoadConfig.iterations(10).arrivalRate(50.0).off()
+    config.isOpenModel shouldBe true
+    config.arrivalRatePerSecond shouldBe 50.0
+    config.concurrency shouldBe LoadConfig.DEFAULT_OPEN_MODEL_MAX_IN_FLIGHT
+  }
+
+  @Test
+  fun `explicit concurrency caps the open model in flight`() {
+    LoadConfig.iterations(10).concurrency(8).arrivalRate(50.0).off().concurrency shouldBe 8
+  }
+
+  @Test
+  fun `invalid profiles are rejected`() {
+    shouldThrow<IllegalArgumentException> { LoadConfig.iterations(0) }
+    shouldThrow<IllegalArgumentException> { LoadConfig.iterations(1).concurrency(0) }
+    shouldThrow<IllegalArgumentException> { LoadConfig.iterations(1).warmUp(-1) }
+    shouldThrow<IllegalArgumentException> { LoadConfig.iterations(1).arrivalRate(0.0) }
+    shouldThrow<IllegalArgumentException> {
+      LoadConfig.iterations(1).arrivalRate(Double.POSITIVE_INFINITY)
+    }
+  }
+}
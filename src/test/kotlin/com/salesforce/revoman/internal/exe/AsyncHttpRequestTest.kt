@@ -0,0 +1,130 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.exe
+
+import com.google.common.truth.Truth.assertThat
+import com.salesforce.revoman.internal.json.MoshiReVoman.Companion.initMoshi
+import com.salesforce.revoman.internal.postman.template.Item
+import com.salesforce.revoman.output.report.Step
+import com.sun.net.httpserver.HttpServer
+import java.net.InetSocketAddress
+import java.net.ServerSocket
+import java.util.concurrent.Executors
+import org.http4k.core.Method
+import org.http4k.core.Request
+import org.junit.jupiter.api.AfterAll
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+
+class AsyncHttpRequestTest {
+  private val step = Step(index = "1", rawPMStep = Item(name = "async"))
+  private val moshiReVoman = initMoshi()
+
+  @Test
+  fun `each TLS variant has one memoized client`() {
+    assertThat(prepareAsyncHttpClient(false)).isSameInstanceAs(prepareAsyncHttpClient(false))
+    assertThat(prepareAsyncHttpClient(true)).isNotSameInstanceAs(prepareAsyncHttpClient(false))
+  }
+
+  @Test
+  fun `a request round-trips through the non-blocking client`() {
+    val request =
+      Request(Method.POST, "$baseUrl/echo")
+        .header("X-Trace", "t1")
+        .header("Host", baseUrl.removePrefix("http://")) // restricted, but what the client sends
+        .body("hello")
+    val result = fireHttpRequestAsync(step, request, false, moshiReVoman).join()
+    val response = result.getOrNull()!!.httpMsg
+    assertThat(response.status.code).isEqualTo(201)
+    assertThat(response.status.description).isEqualTo("Created")
+    assertThat(response.header("X-Echo")).isEqualTo("t1")
+    assertThat(response.bodyString()).isEqualTo("POST hello")
+    assertThat(request.bodyString()).isEqualTo("hello") // still readable for the run log
+  }
+
+  @Test
+  fun `a failed exchange completes with a Left, not exceptionally`() {
+    val unbound = ServerSocket(0).use { it.localPort }
+    val request = Request(Method.GET, "http://127.0.0.1:$unbound/")
+    val result = fireHttpRequestAsync(step, request, false, moshiReVoman).join()
+    assertThat(result.isLeft()).isTrue()
+    assertThat(result.leftOrNull()!!.requestInfo.httpMsg).isEqualTo(request)
+  }
+
+  @Test
+  fun `a restricted header the client would change fails the request`() {
+    val request = Request(Method.GET, "$baseUrl/echo").header("Host", "elsewhere.example")
+    val result = fireHttpRequestAsync(step, request, false, moshiReVoman).join()
+    assertThat(result.leftOrNull()!!.failure).isInstanceOf(IllegalArgumentException::class.java)
+  }
+
+  @Test
+  fun `only the insecure client follows redirects, like the blocking ones`() {
+    val request = Request(Method.GET, "$baseUrl/redirect")
+    val secure = fireHttpRequestAsync(step, request, false, moshiReVoman).join()
+    assertThat(secure.getOrNull()!!.httpMsg.status.code).isEqualTo(302)
+    val insecure = fireHttpRequestAsync(step, request, true, moshiReVoman).join()
+    assertThat(insecure.getOrNull()!!.httpMsg.status.code).isEqualTo(200)
+  }
+
+  @Test
+  fun `the response head and body are timed`() {
+    val timing = AsyncHttpTimingRecorder()
+    val request = Request(Method.GET, "$baseUrl/slow")
+    fireHttpRequestAsync(step, request, false, moshiReVoman, timing = timing).join()
+    val httpTiming = timing.toTiming()!!
+    assertThat(httpTiming.timeToFirstByte.toMillis()).isAtLeast(SLOW_MS)
+    assertThat(httpTiming.total).isEqualTo(httpTiming.timeToFirstByte + httpTiming.download)
+  }
+
+  @Test
+  fun `many requests are in flight together`() {
+    val started = System.nanoTime()
+    val slow = Request(Method.GET, "$baseUrl/slow")
+    val results =
+      (1..20).map { fireHttpRequestAsync(step, slow, false, moshiReVoman) }.map { it.join() }
+    val elapsedMs = (System.nanoTime() - started) / 1_000_000
+    assertThat(results.all { it.isRight() }).isTrue()
+    assertThat(elapsedMs).isLessThan(20 * SLOW_MS / 2) // far from one after the other
+  }
+
+  companion object {
+    private const val SLOW_MS = 200L
+    private lateinit var server: HttpServer
+    private lateinit var baseUrl: String
+
+    @BeforeAll
+    @JvmStatic
+    fun startServer() {
+      server = HttpServer.create(InetSocketAddress("127.0.0.1", 0), 0)
+      server.executor = Executors.newVirtualThreadPerTaskExecutor()
+      server.createContext("/echo") { exchange ->
+        val body =
+          "${exchange.requestMethod} ${exchange.requestBody.readAllBytes().decodeToString()}"
+            .toByteArray()
+        exchange.responseHeaders.add("X-Echo", exchange.requestHeaders.getFirst("X-Trace"))
+        exchange.sendResponseHeaders(201, body.size.toLong())
+        exchange.responseBody.use { it.write(body) }
+      }
+      server.createContext("/redirect") { exchange ->
+        exchange.responseHeaders.add("Location", "/slow")
+        exchange.sendResponseHeaders(302, -1)
+        exchange.close()
+      }
+      server.createContext("/slow") { exchange ->
+        Thread.sleep(SLOW_MS)
+        exchange.sendResponseHeaders(200, -1)
+        exchange.close()
+      }
+      server.start()
+      baseUrl = "http://127.0.0.1:${server.address.port}"
+    }
+
+    @AfterAll @JvmStatic fun stopServer() = server.stop(0)
+  }
+}
@@ -0,0 +1,74 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.exe
+
+import com.google.common.truth.Truth.assertThat
+import com.salesforce.revoman.input.config.HttpTransportConfig
+import com.sun.net.httpserver.HttpServer
+import java.net.InetSocketAddress
+import java.net.ServerSocket
+import java.net.URI
+import org.http4k.core.Method
+import org.http4k.core.Request
+import org.junit.jupiter.api.Test
+
+class ConnectionWarmUpTest {
+
+  @Test
+  fun `hosts are resolved from the environment, nested placeholders included`() {
+    val env = mapOf("baseUrl" to "https://{{host}}", "host" to "org.example.com")
+    assertThat(hostOf("{{baseUrl}}/services/data?q=1", env))
+      .isEqualTo(URI("https://org.example.com:443"))
+    assertThat(hostOf("http://localhost:8080/a", emptyMap()))
+      .isEqualTo(URI("http://localhost:8080"))
+  }
+
+  @Test
+  fun `URLs that don't resolve to an http host are skipped`() {
+    assertThat(hostOf("{{setByAScript}}/a", emptyMap())).isNull()
+    assertThat(hostOf("ftp://example.com/a", emptyMap())).isNull()
+    assertThat(hostOf("/relative/path", emptyMap())).isNull()
+  }
+
+  @Test
+  fun `each host is connected once and its first request reuses the connection`() {
+    val server = HttpServer.create(InetSocketAddress("127.0.0.1", 0), 0)
+    server.createContext("/") { exchange ->
+      exchange.sendResponseHeaders(204, -1)
+      exchange.close()
+    }
+    server.start()
+    try {
+      val base = "http://127.0.0.1:${server.address.port}"
+      val transport = HttpTransportConfig.transport().maxConnectionsPerRoute(4).off()
+      val client = pooledHttpClient(false, transport)
+      val warmUp = warmUpConnections(listOf("$base/a", "{{base}}/b"), mapOf("base" to base), client)
+      val host = "127.0.0.1:${server.address.port}"
+      assertThat(warmUp.warmed.keys).containsExactly(host)
+      assertThat(warmUp.failed).isEmpty()
+      assertThat(warmUp.handshakeTimeSaved).isEqualTo(warmUp.warmed.getValue(host))
+      assertThat(client.statsFor(Request(Method.GET, "$base/a"))!!.available).isEqualTo(1)
+
+      assertThat(client.handler(Request(Method.GET, "$base/a")).status.code).isEqualTo(204)
+      // Had the request opened its own connection, the warmed one would still be idle beside it
+      assertThat(client.statsFor(Request(Method.GET, "$base/a"))!!.available).isEqualTo(1)
+    } finally {
+      server.stop(0)
+    }
+  }
+
+  @Test
+  fun `an unreachable host is reported, not thrown`() {
+    val unbound = ServerSocket(0).use { it.localPort }
+    val transport = HttpTransportConfig.transport().maxConnectionsPerRoute(5).off()
+    val client = pooledHttpClient(false, transport)
+    val warmUp = warmUpConnections(listOf("http://127.0.0.1:$unbound/"), emptyMap(), client)
+    assertThat(warmUp.warmed).isEmpty()
+    assertThat(warmUp.failed.keys).containsExactly("127.0.0.1:$unbound")
+  }
+}
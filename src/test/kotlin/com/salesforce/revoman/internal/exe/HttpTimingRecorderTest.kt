@@ -0,0 +1,111 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.exe
+
+import com.google.common.truth.Truth.assertThat
+import com.salesforce.revoman.input.config.HttpTransportConfig
+import com.salesforce.revoman.internal.json.MoshiReVoman.Companion.initMoshi
+import com.salesforce.revoman.internal.postman.template.Item
+import com.salesforce.revoman.output.report.Step
+import com.sun.net.httpserver.HttpServer
+import java.net.InetSocketAddress
+import java.net.ServerSocket
+import java.time.Duration
+import org.http4k.core.Method
+import org.http4k.core.Request
+import org.junit.jupiter.api.AfterAll
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+
+class HttpTimingRecorderTest {
+  private val step = Step(index = "1", rawPMStep = Item(name = "timing"))
+  private val moshiReVoman = initMoshi()
+  // A pool of its own, so no other test's connection to the server is reused
+  private val transport = HttpTransportConfig.transport().maxConnectionsPerRoute(7).off()
+
+  @Test
+  fun `a first request is timed from connection setup to the last body byte`() {
+    val timing = HttpTimingRecorder()
+    val response =
+      fireHttpRequest(
+        step,
+        Request(Method.POST, "$baseUrl/think").body("payload"),
+        false,
+        moshiReVoman,
+        transport,
+        timing,
+      )
+    assertThat(response.isRight()).isTrue()
+    val phases = timing.toTiming()!!
+    assertThat(phases.connectionReused).isFalse()
+    assertThat(phases.timeToFirstByte).isAtLeast(Duration.ofMillis(THINK_MS))
+    assertThat(phases.total).isEqualTo(
+      phases.dnsLookup +
+        phases.connect +
+        phases.tlsHandshake +
+        phases.requestWrite +
+        phases.timeToFirstByte +
+        phases.download
+    )
+
+    val reused = HttpTimingRecorder()
+    val again = Request(Method.GET, "$baseUrl/think")
+    fireHttpRequest(step, again, false, moshiReVoman, transport, reused)
+    val reusedPhases = reused.toTiming()!!
+    assertThat(reusedPhases.connectionReused).isTrue()
+    assertThat(reusedPhases.dnsLookup).isEqualTo(Duration.ZERO)
+    assertThat(reusedPhases.tlsHandshake).isEqualTo(Duration.ZERO)
+  }
+
+  @Test
+  fun `a request that never connects has no timing`() {
+    val unbound = ServerSocket(0).use { it.localPort }
+    val timing = HttpTimingRecorder()
+    val result =
+      fireHttpRequest(
+        step,
+        Request(Method.GET, "http://127.0.0.1:$unbound/"),
+        false,
+        moshiReVoman,
+        transport,
+        timing,
+      )
+    assertThat(result.isLeft()).isTrue()
+    assertThat(timing.toTiming()).isNull()
+  }
+
+  @Test
+  fun `calls made without a recorder aren't timed`() {
+    val timing = HttpTimingRecorder()
+    pooledHttpClient(false, transport).handler(Request(Method.GET, "$baseUrl/think"))
+    assertThat(timing.toTiming()).isNull()
+  }
+
+  companion object {
+    private const val THINK_MS = 100L
+    private lateinit var server: HttpServer
+    private lateinit var baseUrl: String
+
+    @BeforeAll
+    @JvmStatic
+    fun startServer() {
+      server = HttpServer.create(InetSocketAddress("127.0.0.1", 0), 0)
+      server.createContext("/think") { exchange ->
+        exchange.requestBody.readAllBytes()
+        Thread.sleep(THINK_MS)
+        val body = "done".toByteArray()
+        exchange.sendResponseHeaders(200, body.size.toLong())
+        exchange.responseBody.use { it.write(body) }
+      }
+      server.start()
+      baseUrl = "http://127.0.0.1:${server.address.port}"
+    }
+
+    @AfterAll @JvmStatic fun stopServer() = server.stop(0)
+  }
+}
@@ -0,0 +1,71 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.exe
+
+import com.google.common.truth.Truth.assertThat
+import okio.Buffer
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+
+class IterationDataTest {
+  private fun rows(path: String, content: String) =
+    iterationRows(path, Buffer().writeUtf8(content)).toList()
+
+  @Test
+  fun `csv rows map header columns to string values`() {
+    val rows = rows("data.csv", "\uFEFFname,count\nacme,3\n\nglobex,12\n")
+
+    assertThat(rows)
+      .containsExactly(
+        mapOf("name" to "acme", "count" to "3"),
+        mapOf("name" to "globex", "count" to "12"),
+      )
+      .inOrder()
+  }
+
+  @Test
+  fun `csv quoted fields keep commas, escaped quotes and line breaks`() {
+    val rows = rows("data.csv", "name,note\n\"Acme, Inc.\",\"say \"\"hi\"\"\nthen leave\"\n")
+
+    assertThat(rows)
+      .containsExactly(mapOf("name" to "Acme, Inc.", "note" to "say \"hi\"\nthen leave"))
+  }
+
+  @Test
+  fun `csv row wider than the header is rejected with its line`() {
+    val error = assertThrows<IllegalArgumentException> { rows("data.csv", "a\n1\n2,3\n") }
+
+    assertThat(error).hasMessageThat().contains("line 3")
+  }
+
+  @Test
+  fun `ndjson rows keep json types and narrow integral numbers`() {
+    val rows =
+      rows("data.ndjson", """{"name": "acme", "count": 3, "ratio": 0.5, "tags": ["a"]}""" + "\n")
+
+    assertThat(rows)
+      .containsExactly(mapOf("name" to "acme", "count" to 3, "ratio" to 0.5, "tags" to listOf("a")))
+  }
+
+  @Test
+  fun `malformed ndjson line is rejected with its line`() {
+    val error = assertThrows<IllegalArgumentException> { rows("data.jsonl", "{}\n\n{not json\n") }
+
+    assertThat(error).hasMessageThat().contains("line 3")
+  }
+
+  @Test
+  fun `rows are parsed lazily`() {
+    val source = Buffer().writeUtf8("name\nacme\nglobex\n")
+
+    val first = iterationRows("data.csv", source).first()
+
+    assertThat(first).containsExactly("name", "acme")
+    assertThat(source.readUtf8()).isEqualTo("globex\n")
+  }
+}
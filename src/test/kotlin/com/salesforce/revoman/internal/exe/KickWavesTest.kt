@@ -0,0 +1,140 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.exe
+
+import com.google.common.truth.Truth.assertThat
+import com.salesforce.revoman.input.config.HookConfig
+import com.salesforce.revoman.input.config.Kick
+import com.salesforce.revoman.input.config.StepPick.PostTxnStepPick.PickUtils.afterStepName
+import com.salesforce.revoman.input.config.StepPick.PreTxnStepPick.PickUtils.beforeStepName
+import com.salesforce.revoman.internal.postman.template.Auth
+import com.salesforce.revoman.internal.postman.template.Event
+import com.salesforce.revoman.internal.postman.template.Item
+import com.salesforce.revoman.internal.postman.template.Request
+import com.salesforce.revoman.internal.postman.template.Url
+import com.salesforce.revoman.output.ledger.LedgerEntry
+import com.salesforce.revoman.output.ledger.LedgerSnapshot
+import com.salesforce.revoman.output.report.Step
+import org.junit.jupiter.api.Test
+
+class KickWavesTest {
+
+  @Test
+  fun `independent persona kicks share one wave`() {
+    val keys = (1..4).map { KickKeys(produces = setOf("persona${it}Id"), consumes = emptySet()) }
+    assertThat(kickWaves(keys)).containsExactly(0..3)
+  }
+
+  @Test
+  fun `a kick reading an upstream key starts the next wave`() {
+    val keys =
+      listOf(
+        KickKeys(setOf("orgId"), emptySet()),
+        KickKeys(setOf("userId"), emptySet()),
+        KickKeys(setOf("caseId"), setOf("orgId")),
+        KickKeys(emptySet(), emptySet()),
+      )
+    assertThat(kickWaves(keys)).containsExactly(0..1, 2..3).inOrder()
+  }
+
+  @Test
+  fun `unknown keys degrade to the serial chain`() {
+    val keys = List(3) { KickKeys(null, null) }
+    assertThat(kickWaves(keys)).containsExactly(0..0, 1..1, 2..2).inOrder()
+  }
+
+  @Test
+  fun `keys are learned from the ledger when not declared`() {
+    val ledger =
+      LedgerSnapshot(
+        "00D",
+        mapOf(
+          "create-user" to LedgerEntry(setOf("userId"), "h1", setOf("orgId")),
+          "create-case" to LedgerEntry(setOf("caseId"), "h2", setOf("userId")),
+        ),
+        emptyMap(),
+      )
+    val steps = listOf(step("create-user"), step("create-case"))
+    val learned = kickKeysOf(Kick.configure().templatePath("x").ledger(ledger).off()) { steps }
+    assertThat(learned).isEqualTo(KickKeys(setOf("userId", "caseId"), setOf("orgId")))
+    val declaring =
+      Kick.configure().templatePath("x").ledger(ledger).consumedKeys(setOf("tenant")).off()
+    assertThat(kickKeysOf(declaring) { steps }.consumes).containsExactly("tenant")
+  }
+
+  @Test
+  fun `a read-only step's upstream placeholder is a learned consume`() {
+    val ledger =
+      LedgerSnapshot("00D", mapOf("create-case" to LedgerEntry(setOf("caseId"), "h")), emptyMap())
+    val steps =
+      listOf(
+        step("create-case"),
+        step("read-org", url = "https://example.test/orgs/{{orgId}}"),
+        step("read-case", test = "pm.expect(pm.environment.get('caseId')).to.be.ok"),
+      )
+    val keys = kickKeysOf(Kick.configure().templatePath("x").ledger(ledger).off()) { steps }
+    assertThat(keys).isEqualTo(KickKeys(setOf("caseId"), setOf("orgId")))
+  }
+
+  @Test
+  fun `consumes are unknown when steps can't be scanned`() {
+    val kick = Kick.configure().templatePath("x").off()
+    assertThat(kickKeysOf(kick) { null }.consumes).isNull()
+    val opaque = listOf(step("dynamic", test = "pm.environment.get(key)"))
+    assertThat(kickKeysOf(kick) { opaque }.consumes).isNull()
+  }
+
+  @Test
+  fun `a bearer auth placeholder is a learned consume`() {
+    val bearer = Auth(listOf(Auth.Bearer("token", "string", "{{accessToken}}")), "bearer")
+    val steps = listOf(step("me", auth = bearer))
+    val keys = kickKeysOf(Kick.configure().templatePath("x").off()) { steps }
+    assertThat(keys.consumes).containsExactly("accessToken")
+  }
+
+  @Test
+  fun `consumes are unknown for a kick with PreStepHooks`() {
+    val hook = HookConfig.pre(beforeStepName("me")) { _, _, _ -> }
+    val kick = Kick.configure().templatePath("x").hooks(hook).off()
+    assertThat(kickKeysOf(kick) { listOf(step("me")) }.consumes).isNull()
+  }
+
+  @Test
+  fun `consumes are unknown for a kick with PostStepHooks`() {
+    val hook = HookConfig.post(afterStepName("me")) { _, _ -> }
+    val kick = Kick.configure().templatePath("x").hooks(hook).off()
+    assertThat(kickKeysOf(kick) { listOf(step("me")) }.consumes).isNull()
+    val declaring = Kick.configure().templatePath("x").hooks(hook).consumedKeys(setOf("t")).off()
+    assertThat(kickKeysOf(declaring) { listOf(step("me")) }.consumes).containsExactly("t")
+  }
+
+  @Test
+  fun `env delta keeps only what a kick changed`() {
+    val input = mapOf("a" to "1", "b" to "2", "c" to "3")
+    val output = mapOf("a" to "1", "b" to "20", "d" to "4")
+    val (changed, removed) = envDelta(input, output)
+    assertThat(changed).containsExactly("b", "20", "d", "4")
+    assertThat(removed).containsExactly("c")
+  }
+
+  private fun step(
+    name: String,
+    url: String = "https://example.test/$name",
+    test: String? = null,
+    auth: Auth? = null,
+  ): Step =
+    Step(
+      index = name,
+      rawPMStep =
+        Item(
+          name = name,
+          request = Request(auth = auth, method = "POST", url = Url(url)),
+          event = test?.let { listOf(Event("test", Event.Script(listOf(it)))) },
+        ),
+    )
+}
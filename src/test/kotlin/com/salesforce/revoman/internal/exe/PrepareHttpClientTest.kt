@@ -8,6 +8,11 @@
 package com.salesforce.revoman.internal.exe
 
 import com.google.common.truth.Truth.assertThat
+import com.salesforce.revoman.input.config.HttpTransportConfig
+import com.sun.net.httpserver.HttpServer
+import java.net.InetSocketAddress
+import org.http4k.core.Method
+import org.http4k.core.Request
 import org.junit.jupiter.api.Test
 
 class PrepareHttpClientTest {
@@ -25,4 +30,41 @@ class PrepareHttpClientTest {
   fun `secure and insecure are distinct handlers`() {
     assertThat(prepareHttpClient(false)).isNotSameInstanceAs(prepareHttpClient(true))
   }
+
+  @Test
+  fun `the default transport is the one prepareHttpClient hands out`() {
+    assertThat(pooledHttpClient(false).handler).isSameInstanceAs(prepareHttpClient(false))
+  }
+
+  @Test
+  fun `each transport config gets its own memoized pool`() {
+    val small = HttpTransportConfig.transport().maxConnectionsPerRoute(2).off()
+    assertThat(pooledHttpClient(false, small)).isSameInstanceAs(pooledHttpClient(false, small))
+    assertThat(pooledHttpClient(false, small)).isNotSameInstanceAs(pooledHttpClient(false))
+  }
+
+  @Test
+  fun `pool stats report the host once it has been connected to`() {
+    val server = HttpServer.create(InetSocketAddress("127.0.0.1", 0), 0)
+    server.createContext("/") { exchange ->
+      exchange.sendResponseHeaders(204, -1)
+      exchange.close()
+    }
+    server.start()
+    try {
+      val transport = HttpTransportConfig.transport().maxConnectionsPerRoute(3).off()
+      val client = pooledHttpClient(false, transport)
+      val request = Request(Method.GET, "http://127.0.0.1:${server.address.port}/")
+      assertThat(client.statsFor(request)).isNull()
+      assertThat(client.handler(request).status.code).isEqualTo(204)
+      val stats = client.statsFor(request)!!
+      assertThat(stats.host).isEqualTo("127.0.0.1:${server.address.port}")
+      assertThat(stats.leased).isEqualTo(0)
+      assertThat(stats.pending).isEqualTo(0)
+      assertThat(stats.max).isEqualTo(3)
+      assertThat(allHttpPoolStats()).contains(stats)
+    } finally {
+      server.stop(0)
+    }
+  }
 }
@@ -0,0 +1,167 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.exe
+
+import com.google.common.truth.Truth.assertThat
+import com.salesforce.revoman.internal.postman.template.Auth
+import com.salesforce.revoman.internal.postman.template.Body
+import com.salesforce.revoman.internal.postman.template.Event
+import com.salesforce.revoman.internal.postman.template.Item
+import com.salesforce.revoman.internal.postman.template.Request
+import com.salesforce.revoman.internal.postman.template.Url
+import com.salesforce.revoman.output.ledger.LedgerEntry
+import com.salesforce.revoman.output.ledger.LedgerSnapshot
+import com.salesforce.revoman.output.report.Step
+import org.junit.jupiter.api.Test
+
+class StepGraphTest {
+
+  @Test
+  fun `independent fan-out creates form one wave bounded by maxWidth`() {
+    val steps = (1..5).map { step("create-$it", url = "{{baseUrl}}/accounts") }
+    val graph = StepGraph(steps, LedgerSnapshot.EMPTY, emptyMap())
+    assertThat(graph.waveFrom(0, 3)).isEqualTo(0..2)
+    assertThat(graph.waveFrom(3, 3)).isEqualTo(3..4)
+  }
+
+  @Test
+  fun `maxWidth 1 keeps the serial cursor`() {
+    val steps = (1..3).map { step("create-$it") }
+    assertThat(StepGraph(steps, LedgerSnapshot.EMPTY, emptyMap()).waveFrom(0, 1)).isEqualTo(0..0)
+  }
+
+  @Test
+  fun `a step consuming a key produced earlier in the wave ends the wave`() {
+    val steps =
+      listOf(
+        step("create-account"),
+        step("create-contact"),
+        step("read-account", url = "{{baseUrl}}/accounts/{{accountId}}"),
+      )
+    val ledger =
+      LedgerSnapshot(
+        "00D",
+        mapOf("create-account" to LedgerEntry(setOf("accountId"), "h")),
+        emptyMap(),
+      )
+    val graph = StepGraph(steps, ledger, emptyMap())
+    assertThat(graph.dependsOn(2, 0)).isTrue()
+    assertThat(graph.waveFrom(0, 10)).isEqualTo(0..1)
+  }
+
+  @Test
+  fun `literal script reads and writes count as consumed and produced keys`() {
+    val steps =
+      listOf(
+        step("login", test = "pm.environment.set('token', pm.response.json().token)"),
+        step("me", preReq = "const t = pm.environment.get(\"token\")"),
+      )
+    val graph = StepGraph(steps, LedgerSnapshot.EMPTY, emptyMap())
+    assertThat(graph.keysOf(0).produces).containsExactly("token")
+    assertThat(graph.keysOf(1).consumes).contains("token")
+    assertThat(graph.waveFrom(0, 10)).isEqualTo(0..0)
+  }
+
+  @Test
+  fun `dynamic variables are not env dependencies`() {
+    val steps = listOf(step("a", body = "{\"id\": \"{{\$randomUUID}}\"}"), step("b"))
+    val graph = StepGraph(steps, LedgerSnapshot.EMPTY, emptyMap())
+    assertThat(graph.keysOf(0).consumes).containsExactly("baseUrl")
+    assertThat(graph.waveFrom(0, 10)).isEqualTo(0..1)
+  }
+
+  @Test
+  fun `setNextRequest callers and their jump targets are barriers`() {
+    val steps =
+      listOf(
+        step("poll", test = "if (!done) pm.execution.setNextRequest('poll')"),
+        step("create-1"),
+        step("skip-me", preReq = "pm.execution.skipRequest()"),
+        step("create-2"),
+      )
+    val graph = StepGraph(steps, LedgerSnapshot.EMPTY, emptyMap())
+    assertThat(graph.isBarrier(0)).isTrue()
+    assertThat(graph.isBarrier(1)).isFalse()
+    assertThat(graph.isBarrier(2)).isTrue()
+    assertThat(graph.waveFrom(0, 10)).isEqualTo(0..0)
+    assertThat(graph.waveFrom(1, 10)).isEqualTo(1..1)
+  }
+
+  @Test
+  fun `non-literal scope access is a barrier unless the step is declared`() {
+    val steps =
+      listOf(step("a"), step("dynamic", test = "pm.environment.set(key, pm.response.json().id)"))
+    assertThat(StepGraph(steps, LedgerSnapshot.EMPTY, emptyMap()).isBarrier(1)).isTrue()
+    val declared = StepGraph(steps, LedgerSnapshot.EMPTY, mapOf("dynamic" to emptySet()))
+    assertThat(declared.isBarrier(1)).isFalse()
+    assertThat(declared.waveFrom(0, 10)).isEqualTo(0..1)
+  }
+
+  @Test
+  fun `declared dependencies split a wave`() {
+    val steps = listOf(step("a"), step("b"), step("c"))
+    val graph = StepGraph(steps, LedgerSnapshot.EMPTY, mapOf("c" to setOf("a")))
+    assertThat(graph.dependsOn(2, 0)).isTrue()
+    assertThat(graph.dependsOn(1, 0)).isFalse()
+    assertThat(graph.waveFrom(0, 10)).isEqualTo(0..1)
+  }
+
+  @Test
+  fun `a bearer auth placeholder is a consumed key`() {
+    val bearer = Auth(listOf(Auth.Bearer("token", "string", "{{accessToken}}")), "bearer")
+    val steps =
+      listOf(
+        step("login", test = "pm.environment.set('accessToken', pm.response.json().token)"),
+        step("me", url = "https://example.com/me", auth = bearer),
+      )
+    val graph = StepGraph(steps, LedgerSnapshot.EMPTY, emptyMap())
+    assertThat(graph.keysOf(1).consumes).containsExactly("accessToken")
+    assertThat(graph.waveFrom(0, 10)).isEqualTo(0..0)
+  }
+
+  @Test
+  fun `with PostStepHooks, a step the ledger hasn't seen ends its wave`() {
+    val steps = listOf(step("a"), step("b"), step("c"))
+    val ledger = LedgerSnapshot("00D", mapOf("a" to LedgerEntry(setOf("aId"), "h")), emptyMap())
+    val graph = StepGraph(steps, ledger, emptyMap(), hasPostStepHooks = true)
+    assertThat(graph.keysOf(0).mayProduceUnseen).isFalse()
+    assertThat(graph.keysOf(1).mayProduceUnseen).isTrue()
+    assertThat(graph.waveFrom(0, 10)).isEqualTo(0..1)
+    assertThat(graph.waveFrom(1, 10)).isEqualTo(1..1)
+  }
+
+  private fun step(
+    name: String,
+    url: String = "{{baseUrl}}/$name",
+    body: String? = null,
+    auth: Auth? = null,
+    preReq: String? = null,
+    test: String? = null,
+  ): Step {
+    val events =
+      listOfNotNull(
+        preReq?.let { Event("prerequest", Event.Script(listOf(it))) },
+        test?.let { Event("test", Event.Script(listOf(it))) },
+      )
+    return Step(
+      index = name,
+      rawPMStep =
+        Item(
+          name = name,
+          request =
+            Request(
+              auth = auth,
+              method = "POST",
+              url = Url(url),
+              body = body?.let { Body("raw", it) },
+            ),
+          event = events.ifEmpty { null },
+        ),
+    )
+  }
+}
@@ -0,0 +1,92 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.exe
+
+import com.google.common.truth.Truth.assertThat
+import com.salesforce.revoman.input.config.Kick
+import com.salesforce.revoman.input.config.StepPick.ExeStepPick
+import com.salesforce.revoman.internal.postman.template.Auth
+import com.salesforce.revoman.internal.postman.template.Body
+import com.salesforce.revoman.internal.postman.template.Event
+import com.salesforce.revoman.internal.postman.template.Header
+import com.salesforce.revoman.internal.postman.template.Item
+import com.salesforce.revoman.internal.postman.template.Request
+import com.salesforce.revoman.internal.postman.template.Url
+import com.salesforce.revoman.output.report.Step
+import org.junit.jupiter.api.Test
+
+class StepPlanTest {
+  private val kick = Kick.configure().off()
+
+  private fun step(
+    request: Request = Request(method = "GET", url = Url("https://example.com/accounts")),
+    event: List<Event>? = null,
+    name: String = "list-accounts",
+  ): Step = Step(index = "1", rawPMStep = Item(name = name, request = request, event = event))
+
+  @Test
+  fun `joins script lines once and drops blank scripts`() {
+    val plan =
+      StepPlan(
+        step(
+          event =
+            listOf(
+              Event("prerequest", Event.Script(listOf("const a = 1;", "pm.test('a', () => {});"))),
+              Event("test", Event.Script(listOf("  ", ""))),
+            )
+        ),
+        kick,
+      )
+    assertThat(plan.preRequestScript).isEqualTo("const a = 1;\npm.test('a', () => {});")
+    assertThat(plan.testScript).isNull()
+  }
+
+  @Test
+  fun `placeholder-free request is flagged so replacement can be skipped`() {
+    assertThat(StepPlan(step(), kick).hasPlaceholders).isFalse()
+  }
+
+  @Test
+  fun `a placeholder anywhere replacement looks is detected`() {
+    val base = Request(method = "POST", url = Url("https://example.com/accounts"))
+    val variants =
+      listOf(
+        base.copy(url = Url("{{baseUrl}}/accounts")),
+        base.copy(header = listOf(Header("x-tenant", "{{tenant}}"))),
+        base.copy(header = listOf(Header("{{headerName}}", "v"))),
+        base.copy(body = Body("raw", """{"name": "{{name}}"}""")),
+        base.copy(auth = Auth(listOf(Auth.Bearer("token", "string", "{{token}}")), "bearer")),
+      )
+    variants.forEach { assertThat(StepPlan(step(request = it), kick).hasPlaceholders).isTrue() }
+  }
+
+  @Test
+  fun `ledger opt-out folds the header and the Kick-level picks`() {
+    val optOutKick =
+      Kick.configure().ledgerOptOutStep(ExeStepPick.withName("create-account")).off()
+    val headerOptOut =
+      step(
+        request =
+          Request(
+            method = "GET",
+            header = listOf(Header(Step.LEDGER_HEADER, Step.LEDGER_OFF)),
+            url = Url("https://example.com/accounts"),
+          )
+      )
+    assertThat(StepPlan(headerOptOut, kick).optsOutOfLedger).isTrue()
+    assertThat(StepPlan(step(name = "create-account"), optOutKick).optsOutOfLedger).isTrue()
+    assertThat(StepPlan(step(), optOutKick).optsOutOfLedger).isFalse()
+  }
+
+  @Test
+  fun `raw request is built once per plan`() {
+    val plan = StepPlan(step(), kick)
+    assertThat(plan.rawHttpRequest).isSameInstanceAs(plan.rawHttpRequest)
+    assertThat(plan.rawHttpRequest.uri.toString()).isEqualTo("https://example.com/accounts")
+  }
+}
@@ -0,0 +1,73 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.exe
+
+import com.salesforce.revoman.internal.postman.template.Item
+import com.salesforce.revoman.output.report.ServerTiming
+import com.salesforce.revoman.output.report.Step
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import io.kotest.matchers.string.shouldMatch
+import java.time.Duration
+import org.http4k.core.Method
+import org.http4k.core.Request
+import org.junit.jupiter.api.Test
+
+class TraceContextTest {
+  private val first = Step(index = "1", rawPMStep = Item(name = "first"))
+  private val second = Step(index = "2", rawPMStep = Item(name = "second"))
+
+  @Test
+  fun `traceparent is a sampled W3C header with the run's trace id`() {
+    val traceId = newTraceId()
+    val header = traceparent(traceId, first, 0)
+    header shouldMatch Regex("00-[0-9a-f]{32}-[0-9a-f]{16}-01")
+    header.split('-')[1] shouldBe traceId
+  }
+
+  @Test
+  fun `each step and iteration gets its own span, the same every time it's derived`() {
+    val traceId = newTraceId()
+    traceparent(traceId, first, 0) shouldBe traceparent(traceId, first, 0)
+    traceparent(traceId, first, 0) shouldNotBe traceparent(traceId, second, 0)
+    traceparent(traceId, first, 0) shouldNotBe traceparent(traceId, first, 1)
+  }
+
+  @Test
+  fun `a collection's own traceparent is left alone`() {
+    val own = "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01"
+    val request = Request(Method.GET, "https://example.com").header(TRACEPARENT, own)
+    withTraceparent(request, traceparent(newTraceId(), first, 0)).header(TRACEPARENT) shouldBe own
+    val bare = Request(Method.GET, "https://example.com")
+    withTraceparent(bare, own).header(TRACEPARENT) shouldBe own
+  }
+
+  @Test
+  fun `Server-Timing metrics are parsed across repeated headers`() {
+    val timings =
+      parseServerTiming(
+        listOf("""db;dur=53.5;desc="Primary, DB", cache;desc=hit""", "total;dur=120", ";dur=1")
+      )
+    timings shouldBe
+      listOf(
+        ServerTiming("db", Duration.ofNanos(53_500_000), "Primary, DB"),
+        ServerTiming("cache", null, "hit"),
+        ServerTiming("total", Duration.ofMillis(120), null),
+      )
+  }
+
+  @Test
+  fun `server time is the total metric, else the longest`() {
+    val db = ServerTiming("db", Duration.ofMillis(80), null)
+    val app = ServerTiming("app", Duration.ofMillis(100), null)
+    ServerTiming.serverTimeOf(listOf(db, app)) shouldBe Duration.ofMillis(100)
+    val total = ServerTiming("Total", Duration.ofMillis(150), null)
+    ServerTiming.serverTimeOf(listOf(db, total, app)) shouldBe Duration.ofMillis(150)
+    ServerTiming.serverTimeOf(emptyList()) shouldBe null
+  }
+}
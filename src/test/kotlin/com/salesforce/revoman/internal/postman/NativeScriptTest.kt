@@ -0,0 +1,134 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.postman
+
+import com.salesforce.revoman.internal.json.MoshiReVoman.Companion.initMoshi
+import com.salesforce.revoman.internal.postman.sandbox.PmExecutionContext
+import com.salesforce.revoman.internal.postman.sandbox.PmSandbox
+import com.salesforce.revoman.internal.postman.sandbox.PmScope
+import com.salesforce.revoman.internal.postman.sandbox.ScriptTarget
+import com.salesforce.revoman.internal.postman.template.Header
+import com.salesforce.revoman.internal.postman.template.Item
+import com.salesforce.revoman.output.report.PmTestAssertion
+import com.salesforce.revoman.output.report.Step
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.nulls.shouldNotBeNull
+import io.kotest.matchers.shouldBe
+import org.junit.jupiter.api.Test
+
+class NativeScriptTest {
+  private val step = Step(index = "1", rawPMStep = Item(name = "native"))
+  private val body =
+    """{"id": 42, "items": [{"sku": "a-1"}], "nested": {"ratio": 0.5}, "none": null}"""
+  private val headers = listOf(Header("Location", "/accounts/42"), Header("Set-Cookie", "a=1"))
+
+  private val declarativeScript =
+    """
+    // status checks
+    pm.test('status is ok', () => pm.expect(pm.response.code).to.eql(200));
+    pm.test("created", function () {
+      pm.response.to.have.status(201);
+    });
+    pm.environment.set('id', pm.response.json().id);
+    pm.environment.set('sku', pm.response.json().items[0].sku);
+    pm.collectionVariables.set('ratio', pm.response.json().nested['ratio']);
+    pm.globals.set('location', pm.response.headers.get('location'))
+    """
+      .trimIndent()
+
+  private fun pmWithResponse(code: Int = 200, responseBody: String = body) =
+    PostmanSDK(initMoshi()).apply { response = Response(code, "OK", responseBody, headers) }
+
+  @Test
+  fun `only scripts made entirely of the declarative shapes compile`() {
+    NativeScript.compile(declarativeScript).shouldNotBeNull()
+    listOf(
+        "pm.test('x', () => { pm.expect(pm.response.code).to.equal(204); });",
+        "pm.environment.set('code', pm.response.code);",
+      )
+      .forEach { NativeScript.compile(it).shouldNotBeNull() }
+    listOf(
+        "console.log(pm.response.code);",
+        "pm.test('x', () => pm.expect(1).to.eql(1));",
+        "pm.environment.set('id', pm.response.json().id); const body = pm.response.json();",
+        "pm.environment.set('k', 'literal');",
+        "pm.environment.set('it\\'s', pm.response.code);",
+        "pm.environment.set('id', pm.response.json().id) /* block comment */",
+      )
+      .forEach { NativeScript.compile(it).shouldBeNull() }
+  }
+
+  @Test
+  fun `runs writes and assertions as host operations`() {
+    val pm = pmWithResponse()
+    NativeScript.compile(declarativeScript)!!.runOn(pm, step) shouldBe true
+    pm.environment["id"] shouldBe 42
+    pm.environment["sku"] shouldBe "a-1"
+    pm.collectionVariables["ratio"] shouldBe 0.5
+    pm.globals["location"] shouldBe "/accounts/42"
+    pm.pmTestAssertionsFor(step) shouldBe
+      listOf(
+        PmTestAssertion("status is ok", true),
+        PmTestAssertion(
+          "created",
+          false,
+          error = "expected response to have status code 201 but got 200",
+        ),
+      )
+  }
+
+  @Test
+  fun `falls back to the sandbox without any effect when a value cannot be mirrored`() {
+    val setId = "pm.environment.set('id', pm.response.json().id);"
+    listOf(
+        "pm.response.json().none",
+        "pm.response.json().missing.x",
+        "pm.response.headers.get('Set-Cookie2')",
+        "pm.response.json().nested",
+      )
+      .forEach { value ->
+        val pm = pmWithResponse()
+        NativeScript.compile("$setId pm.environment.set('v', $value);")!!.runOn(pm, step) shouldBe
+          false
+        pm.environment.containsKey("id") shouldBe false
+      }
+    val notJson = pmWithResponse(responseBody = "<xml/>")
+    NativeScript.compile("pm.environment.set('id', pm.response.json().id);")!!
+      .runOn(notJson, step) shouldBe false
+  }
+
+  @Test
+  fun `matches the sandbox on the same script and response`() {
+    val pm = pmWithResponse(code = 201)
+    NativeScript.compile(declarativeScript)!!.runOn(pm, step) shouldBe true
+
+    val sandboxed =
+      PmSandbox().use {
+        it.execute(
+          declarativeScript,
+          ScriptTarget.TEST,
+          PmExecutionContext(
+            environment = PmScope("environment", emptyMap()),
+            response =
+              mapOf(
+                "code" to 201,
+                "status" to "Created",
+                "header" to headers.map { h -> mapOf("key" to h.key, "value" to h.value) },
+                "body" to body,
+              ),
+          ),
+        )
+      }
+    sandboxed.error.shouldBeNull()
+    sandboxed.environment shouldBe pm.environment.mutableEnv
+    sandboxed.collectionVariables shouldBe pm.collectionVariables.mutableEnv
+    sandboxed.globals shouldBe pm.globals.mutableEnv
+    sandboxed.assertions.map { PmTestAssertion(it.name, it.passed, it.skipped, it.error) } shouldBe
+      pm.pmTestAssertionsFor(step)
+  }
+}
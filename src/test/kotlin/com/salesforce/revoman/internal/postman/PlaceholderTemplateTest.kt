@@ -0,0 +1,62 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.postman
+
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import org.junit.jupiter.api.Test
+
+class PlaceholderTemplateTest {
+  private val postmanVariableRegex = "\\{\\{([^{}]*?)}}".toRegex()
+
+  private fun regexRender(raw: String, resolve: (String) -> String?): String =
+    postmanVariableRegex.replace(raw) { resolve(it.groupValues[1]) ?: it.value }
+
+  @Test
+  fun `splits literals and variables in order`() {
+    val template = PlaceholderTemplate.compile("{{baseUrl}}/accounts/{{id}}?q={{id}}")
+    template.variables shouldBe listOf("baseUrl", "id", "id")
+    template.render { it.uppercase() } shouldBe "BASEURL/accounts/ID?q=ID"
+  }
+
+  @Test
+  fun `unresolved variables are written back verbatim`() {
+    PlaceholderTemplate.compile("""{"a": "{{known}}", "b": "{{unknown}}"}""")
+      .render { if (it == "known") "1" else null } shouldBe """{"a": "1", "b": "{{unknown}}"}"""
+  }
+
+  @Test
+  fun `matches the Postman variable regex on brace edge cases`() {
+    val resolve = { key: String -> if (key == "missing") null else "<$key>" }
+    listOf(
+        "",
+        "no placeholders",
+        "{{}}",
+        "{{{x}}}",
+        "{{a}}{{b}}",
+        "{{a}",
+        "{{a{b}}",
+        "{{a}b}}",
+        "}}{{",
+        "{ {{x}} }",
+        "{{missing}} and {{present}}",
+        $$"{{$randomUUID}}-{{$timestamp}}",
+        """{"nested": {"k": "{{v}}"}, "arr": [{{n}}]}""",
+      )
+      .forEach { raw ->
+        PlaceholderTemplate.compile(raw).render(resolve) shouldBe regexRender(raw, resolve)
+      }
+  }
+
+  @Test
+  fun `compiled templates are cached by content`() {
+    val raw = "{{cachedKey}}-" + System.nanoTime()
+    val equalButDistinct = String(raw.toCharArray())
+    PlaceholderTemplate.of(raw) shouldBeSameInstanceAs PlaceholderTemplate.of(equalButDistinct)
+  }
+}
@@ -27,4 +27,13 @@ class PostmanSDKEvalIsolationTest {
     val pm2 = PostmanSDK(initMoshi())
     pm2.evaluateJS("typeof globalThis.__leak").asString() shouldBe "undefined"
   }
+
+  @Test
+  fun `the JSEvaluator Context is created on first use, not with the SDK`() {
+    val pm = PostmanSDK(initMoshi())
+    pm.environment.set("k", "v")
+    pm.hasJsContext shouldBe false
+    pm.jsonStrToObj("""{"a": 1}""").getMember("a").asInt() shouldBe 1
+    pm.hasJsContext shouldBe true
+  }
 }
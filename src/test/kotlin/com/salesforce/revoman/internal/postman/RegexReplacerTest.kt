@@ -10,6 +10,7 @@ package com.salesforce.revoman.internal.postman
 import com.salesforce.revoman.input.config.CustomDynamicVariableGenerator
 import com.salesforce.revoman.internal.json.MoshiReVoman.Companion.initMoshi
 import com.salesforce.revoman.internal.postman.template.Environment.Companion.mergeEnvs
+import com.salesforce.revoman.output.postman.PersistentBackedMutableMap
 import com.squareup.moshi.Moshi
 import com.squareup.moshi.adapter
 import io.kotest.matchers.equals.shouldNotBeEqual
@@ -200,4 +201,63 @@ class RegexReplacerTest {
     val result = regexReplacer.replaceVariablesInEnv(pm)
     result shouldContain ("userName" to "value")
   }
+
+  @Test
+  fun `reResolveEnv only revisits entries whose dependencies changed`() {
+    val regexReplacer = RegexReplacer()
+    val env = PersistentBackedMutableMap<Any?>()
+    val pm = PostmanSDK(moshiReVoman, null, regexReplacer, env)
+    pm.environment["base"] = "example.com"
+    pm.environment["url"] = "https://{{base}}/api/{{version}}"
+    (0 until 1_000).forEach { pm.environment["static$it"] = "value-$it" }
+    regexReplacer.reResolveEnv(pm) // first pass: full scan, `version` is still unknown
+    pm.environment["url"] shouldBe "https://example.com/api/{{version}}"
+
+    env.drainChangedKeys()
+    regexReplacer.reResolveEnv(pm) // nothing changed: nothing is rewritten
+    env.drainChangedKeys() shouldBe emptySet()
+
+    pm.environment["version"] = "v62.0" // e.g. set by a script
+    regexReplacer.reResolveEnv(pm)
+    pm.environment["url"] shouldBe "https://example.com/api/v62.0"
+    // Only the entry itself plus the resolved variables' type-preserving write-back.
+    env.drainChangedKeys() shouldBe setOf("url", "base", "version")
+  }
+
+  @Test
+  fun `reResolveEnv picks up placeholders written after the first pass`() {
+    val regexReplacer = RegexReplacer()
+    val pm = PostmanSDK(moshiReVoman, null, regexReplacer, PersistentBackedMutableMap())
+    pm.environment["tenant"] = "acme"
+    regexReplacer.reResolveEnv(pm)
+    pm.environment["email"] = "admin@{{tenant}}.com"
+    pm.environment["{{tenant}}Id"] = "001"
+    regexReplacer.reResolveEnv(pm)
+    pm.environment shouldContainAll mapOf("email" to "admin@acme.com", "acmeId" to "001")
+  }
+
+  @Test
+  fun `reResolveEnv resolves a pending entry once its variable appears in collectionVariables`() {
+    val regexReplacer = RegexReplacer()
+    val pm = PostmanSDK(moshiReVoman, null, regexReplacer, PersistentBackedMutableMap())
+    pm.environment["endpoint"] = "{{host}}/services"
+    regexReplacer.reResolveEnv(pm)
+    pm.environment["endpoint"] shouldBe "{{host}}/services"
+    pm.collectionVariables.set("host", "https://example.com")
+    regexReplacer.reResolveEnv(pm)
+    pm.environment["endpoint"] shouldBe "https://example.com/services"
+  }
+
+  @Test
+  fun `reResolveEnv matches replaceVariablesInEnv on a plain map backing`() {
+    val regexReplacer = RegexReplacer()
+    val pm = PostmanSDK(moshiReVoman, null, regexReplacer)
+    pm.environment["name"] = "userName"
+    pm.environment["{{name}}"] = "value"
+    pm.environment["greeting"] = "hi {{name}}"
+    pm.environment["count"] = 42
+    val expected = pm.environment.toMap() + regexReplacer.replaceVariablesInEnv(pm)
+    regexReplacer.reResolveEnv(pm)
+    pm.environment.toMap() shouldBe expected
+  }
 }
@@ -0,0 +1,53 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.postman.sandbox
+
+import com.squareup.moshi.Moshi
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.matchers.shouldBe
+import org.graalvm.polyglot.Context
+import org.junit.jupiter.api.AfterAll
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInstance
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class GuestJsonTest {
+  private val ctx = Context.newBuilder("js").engine(sharedGraalEngine).build()
+  private val jsonAdapter = Moshi.Builder().build().adapter(Any::class.java)
+
+  @AfterAll fun tearDown() = ctx.close()
+
+  /** What the Flatted path would decode: the guest's own `JSON.stringify`, parsed on the host. */
+  private fun viaJson(js: String): Any? =
+    jsonAdapter.fromJson(ctx.eval("js", "JSON.stringify($js)").asString())
+
+  @Test
+  fun `copies a guest value exactly as JSON would`() {
+    listOf(
+        """["execution.result.1", {"cursor": {}}, null, {"environment": {"values": []}}]""",
+        """{"n": 42, "f": 0.5, "s": "x", "b": true, "nil": null, "nested": {"list": [1, "2"]}}""",
+        """{"fn": function () {}, "undef": undefined, "nan": NaN, "kept": 1}""",
+        """[undefined, function () {}, Infinity, "last"]""",
+        """{"scope": {"toJSON": function () { return {"values": [{"key": "k", "value": 1}]}; }}}""",
+        """{"at": new Date(0)}""",
+      )
+      .forEach { js -> GuestJson.copy(ctx.eval("js", "($js)")) shouldBe viaJson(js) }
+  }
+
+  @Test
+  fun `declines a cyclic payload so it goes through Flatted`() {
+    val cyclic = ctx.eval("js", "(() => { const a = {name: 'a'}; a.self = a; return [a]; })()")
+    shouldThrow<GuestJson.NotPlain> { GuestJson.copy(cyclic) }
+  }
+
+  @Test
+  fun `a repeated but acyclic reference is copied, not declined`() {
+    val shared = "(() => { const s = {k: 'v'}; return [s, {again: s}]; })()"
+    GuestJson.copy(ctx.eval("js", shared)) shouldBe viaJson(shared)
+  }
+}
@@ -0,0 +1,136 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.postman.sandbox
+
+import com.salesforce.revoman.ReVoman
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import io.kotest.matchers.types.shouldNotBeSameInstanceAs
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+
+class PmSandboxPoolTest {
+  @BeforeEach @AfterEach fun clearPool() = PmSandboxPool.clear()
+
+  private fun PmSandbox.run(script: String, env: Map<String, Any?> = emptyMap()) =
+    execute(script, ScriptTarget.TEST, PmExecutionContext(environment = PmScope("env", env)))
+
+  @Test
+  fun `a released sandbox is reused warm and starts from the scopes passed in`() {
+    val first = PmSandboxPool.acquire()
+    first.run("pm.environment.set('fromRun1', 'yes');").environment["fromRun1"] shouldBe "yes"
+    PmSandboxPool.release(first, maxIdle = 2)
+    PmSandboxPool.size shouldBe 1
+
+    val second = PmSandboxPool.acquire()
+    second shouldBeSameInstanceAs first
+    PmSandboxPool.size shouldBe 0
+    val result = second.run("pm.environment.set('fromRun2', 'yes');", mapOf("seed" to 1))
+    result.environment shouldBe mapOf("seed" to 1, "fromRun2" to "yes")
+    PmSandboxPool.release(second, maxIdle = 2)
+  }
+
+  @Test
+  fun `guest globals leaked by one run do not reach the next run of a pooled sandbox`() {
+    val first = PmSandboxPool.acquire()
+    first.run("__leak = 'from-run1';")
+    first.run("pm.environment.set('seen', typeof __leak);").environment["seen"] shouldBe "string"
+    PmSandboxPool.release(first, maxIdle = 2)
+
+    val second = PmSandboxPool.acquire()
+    second shouldBeSameInstanceAs first
+    second.run("pm.environment.set('seen', typeof __leak);").environment["seen"] shouldBe
+      "undefined"
+    PmSandboxPool.release(second, maxIdle = 2)
+  }
+
+  @Test
+  fun `a sandbox that hit a script error is retired, not pooled`() {
+    val faulty = PmSandboxPool.acquire()
+    faulty.run("throw new Error('boom');").error shouldNotBe null
+    faulty.isFaulted shouldBe true
+    PmSandboxPool.release(faulty, maxIdle = 2)
+    PmSandboxPool.size shouldBe 0
+    shouldThrow<IllegalStateException> { faulty.run("1;") }
+    PmSandboxPool.acquire() shouldNotBeSameInstanceAs faulty
+  }
+
+  @Test
+  fun `idle sandboxes beyond maxIdle are closed`() {
+    val sandboxes = List(3) { PmSandboxPool.acquire().also { it.run("1;") } }
+    sandboxes.forEach { PmSandboxPool.release(it, maxIdle = 2) }
+    PmSandboxPool.size shouldBe 2
+    shouldThrow<IllegalStateException> { sandboxes.last().run("1;") }
+  }
+
+  @Test
+  fun `shutdown closes every idle sandbox`() {
+    val pooled = PmSandboxPool.acquire().also { it.run("1;") }
+    PmSandboxPool.release(pooled, maxIdle = 2)
+
+    ReVoman.shutdown()
+
+    PmSandboxPool.size shouldBe 0
+    shouldThrow<IllegalStateException> { pooled.run("1;") }
+  }
+
+  @Test
+  fun `use closes the sandbox when the block throws`() {
+    lateinit var borrowed: PmSandbox
+    shouldThrow<IllegalArgumentException> {
+      PmSandboxPool.use(maxIdle = 2) {
+        borrowed = it
+        throw IllegalArgumentException("run failed")
+      }
+    }
+    PmSandboxPool.size shouldBe 0
+    shouldThrow<IllegalStateException> { borrowed.run("1;") }
+  }
+
+  @Test
+  fun `prewarm boots sandboxes into the pool up to the requested count`() {
+    PmSandboxPool.prewarm(2)
+    PmSandboxPool.size shouldBe 2
+    PmSandboxPool.prewarm(1)
+    PmSandboxPool.size shouldBe 2
+    val warm = PmSandboxPool.acquire()
+    warm.run("pm.environment.set('warm', 'yes');").environment["warm"] shouldBe "yes"
+    PmSandboxPool.release(warm, maxIdle = 2)
+  }
+
+  @Test
+  fun `a sandbox booting in the background is usable and poolable`() {
+    val sandbox = PmSandboxPool.acquire()
+    sandbox.bootInBackground()
+    sandbox.bootInBackground()
+    sandbox.run("pm.environment.set('booted', 'yes');").environment["booted"] shouldBe "yes"
+    PmSandboxPool.release(sandbox, maxIdle = 2)
+    PmSandboxPool.size shouldBe 1
+  }
+
+  @Test
+  fun `closing a sandbox mid background boot waits for the boot`() {
+    val sandbox = PmSandbox()
+    sandbox.bootInBackground()
+    sandbox.close()
+    sandbox.resetForReuse() shouldBe false
+    shouldThrow<IllegalStateException> { sandbox.run("1;") }
+  }
+
+  @Test
+  fun `a booted sandbox answers the ping health check after a reset`() {
+    val sandbox = PmSandbox()
+    sandbox.run("setTimeout(() => {}, 10);")
+    sandbox.resetForReuse() shouldBe true
+    sandbox.close()
+    sandbox.resetForReuse() shouldBe false
+  }
+}
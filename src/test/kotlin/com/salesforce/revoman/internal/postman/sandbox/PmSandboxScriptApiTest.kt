@@ -8,6 +8,7 @@
 package com.salesforce.revoman.internal.postman.sandbox
 
 import io.kotest.matchers.collections.shouldHaveSize
+import io.kotest.matchers.ints.shouldBeGreaterThan
 import io.kotest.matchers.shouldBe
 import org.junit.jupiter.api.AfterAll
 import org.junit.jupiter.api.Test
@@ -182,4 +183,22 @@ class PmSandboxScriptApiTest {
     val r = runTest("pm.test('noop', () => pm.expect(1).to.eql(1));")
     r.nextRequestSet shouldBe false
   }
+
+  @Test
+  fun `sweeping leaked globals hides a bare assignment from the next run`() {
+    runTest("__leak = 'row1';")
+    runTest("pm.environment.set('seen', typeof __leak);").environment["seen"] shouldBe "string"
+    sandbox.sweepLeakedGlobals()
+    runTest("pm.environment.set('seen', typeof __leak);").environment["seen"] shouldBe
+      "undefined"
+  }
+
+  @Test
+  fun `each execution reports where its time went`() {
+    val r = runTest("setTimeout(() => pm.environment.set('later', 1), 10);")
+    val profile = r.profile!!
+    profile.timersFired shouldBeGreaterThan 0
+    profile.events shouldBeGreaterThan 0
+    profile.total shouldBe profile.scopeSync + profile.execute + profile.drain + profile.decode
+  }
 }
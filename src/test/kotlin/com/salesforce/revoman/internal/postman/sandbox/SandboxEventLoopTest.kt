@@ -7,8 +7,12 @@
  */
 package com.salesforce.revoman.internal.postman.sandbox
 
+import io.kotest.assertions.throwables.shouldThrow
 import io.kotest.matchers.collections.shouldContainExactly
 import io.kotest.matchers.shouldBe
+import java.util.concurrent.CancellationException
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.TimeUnit
 import org.junit.jupiter.api.Test
 
 class SandboxEventLoopTest {
@@ -81,4 +85,71 @@ class SandboxEventLoopTest {
     }
     thrown shouldBe true
   }
+
+  @Test
+  fun `awaited host work resumes on the loop thread, timers wait for the wall clock`() {
+    val loop = SandboxEventLoop()
+    val order = mutableListOf<String>()
+    val reply =
+      CompletableFuture.supplyAsync(
+        { "reply" },
+        CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS),
+      )
+    val loopThread = Thread.currentThread()
+    loop.await(reply) { value, _ ->
+      Thread.currentThread() shouldBe loopThread
+      order.add(value!!)
+    }
+    loop.schedule({ order.add("timer") }, 5_000)
+    loop.run()
+    // Virtual time would have fired the 5 s timer first; real time lets the reply in ahead of it
+    order shouldContainExactly listOf("reply", "timer")
+  }
+
+  @Test
+  fun `a timer due before the reply still fires first`() {
+    val loop = SandboxEventLoop()
+    val order = mutableListOf<String>()
+    val reply =
+      CompletableFuture.supplyAsync(
+        { "reply" },
+        CompletableFuture.delayedExecutor(300, TimeUnit.MILLISECONDS),
+      )
+    loop.await(reply) { value, _ -> order.add(value!!) }
+    loop.schedule({ order.add("timer") }, 20)
+    loop.run()
+    order shouldContainExactly listOf("timer", "reply")
+  }
+
+  @Test
+  fun `cancel wakes a loop waiting on host work`() {
+    val loop = SandboxEventLoop()
+    loop.await(CompletableFuture<String>()) { _, _ -> }
+    CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS).execute { loop.cancel() }
+    shouldThrow<CancellationException> { loop.run() }
+  }
+
+  @Test
+  fun `dropped host work is neither waited on nor resumed`() {
+    val loop = SandboxEventLoop()
+    val late = CompletableFuture<String>()
+    var resumed = false
+    loop.await(late) { _, _ -> resumed = true }
+    loop.dropHostWork()
+    late.complete("late")
+    loop.run()
+    resumed shouldBe false
+  }
+
+  @Test
+  fun `stats count the work since they were last taken`() {
+    val loop = SandboxEventLoop()
+    loop.schedule({}, 0)
+    loop.schedule({}, 10)
+    loop.clear(loop.schedule({}, 20))
+    loop.await(CompletableFuture.completedFuture("done")) { _, _ -> }
+    loop.run()
+    loop.takeStats() shouldBe SandboxEventLoop.Stats(tasksRun = 2, timersFired = 1, hostAwaits = 1)
+    loop.takeStats() shouldBe SandboxEventLoop.Stats(0, 0, 0)
+  }
 }
@@ -0,0 +1,122 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.postman.sandbox
+
+import io.kotest.matchers.comparables.shouldBeLessThan
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.string.shouldContain
+import java.util.Collections
+import org.http4k.core.HttpHandler
+import org.http4k.core.Method
+import org.http4k.core.Request
+import org.http4k.core.Response
+import org.http4k.core.Status
+import org.junit.jupiter.api.AfterAll
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInstance
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SandboxHttpTest {
+  private val sandbox = PmSandbox()
+  private val received: MutableList<Request> = Collections.synchronizedList(mutableListOf())
+
+  private val echo: HttpHandler = { request ->
+    received.add(request)
+    Thread.sleep(request.query("sleep")?.toLong() ?: 0)
+    Response(Status.CREATED)
+      .header("X-Echo", request.header("X-Trace") ?: "none")
+      .body("""{"path":"${request.uri.path}","body":"${request.bodyString()}"}""")
+  }
+
+  @AfterAll fun tearDown() = sandbox.close()
+
+  private fun runTest(script: String, client: HttpHandler = echo) =
+    sandbox.execute(
+      script,
+      ScriptTarget.TEST,
+      PmExecutionContext(environment = PmScope("e", emptyMap()), httpClient = client),
+    )
+
+  @Test
+  fun `a request map becomes an http4k request`() {
+    val request =
+      SandboxHttp.toHttp4k(
+        mapOf(
+          "method" to "post",
+          "url" to "https://example.com/a?b=c",
+          "header" to listOf(mapOf("key" to "X-Trace", "value" to "t1")),
+          "body" to "{}",
+        )
+      )
+    request.method shouldBe Method.POST
+    request.uri.toString() shouldBe "https://example.com/a?b=c"
+    request.header("X-Trace") shouldBe "t1"
+    request.bodyString() shouldBe "{}"
+  }
+
+  @Test
+  fun `pm sendRequest gets the host's response in its callback`() {
+    val r =
+      runTest(
+        """
+        pm.sendRequest({
+          url: 'http://host.test/accounts',
+          method: 'POST',
+          header: [{ key: 'X-Trace', value: 't1' }],
+          body: { mode: 'raw', raw: 'hi' },
+        }, (err, res) => {
+          pm.environment.set('code', res.code);
+          pm.environment.set('echo', res.headers.get('X-Echo'));
+          pm.environment.set('path', res.json().path);
+          pm.environment.set('body', res.json().body);
+        });
+        """
+          .trimIndent()
+      )
+    r.error shouldBe null
+    r.environment["code"] shouldBe 201
+    r.environment["echo"] shouldBe "t1"
+    r.environment["path"] shouldBe "/accounts"
+    r.environment["body"] shouldBe "hi"
+    received.last().method shouldBe Method.POST
+  }
+
+  @Test
+  fun `requests in one script overlap`() {
+    val started = System.nanoTime()
+    val r =
+      runTest(
+        """
+        const urls = [1, 2, 3, 4].map((n) => 'http://host.test/' + n + '?sleep=300');
+        Promise.all(urls.map((url) => pm.sendRequest(url)))
+          .then((all) => pm.environment.set('codes', all.map((res) => res.code).join(',')));
+        """
+          .trimIndent()
+      )
+    val elapsedMs = (System.nanoTime() - started) / 1_000_000
+    r.error shouldBe null
+    r.environment["codes"] shouldBe "201,201,201,201"
+    elapsedMs shouldBeLessThan 1_200L // four 300 ms requests, not one after the other
+  }
+
+  @Test
+  fun `a failed send reaches the callback as err`() {
+    val r =
+      runTest(
+        """
+        pm.sendRequest('http://host.test/down', (err, res) => {
+          pm.environment.set('err', err ? err.message : 'none');
+        });
+        """
+          .trimIndent(),
+        client = { throw IllegalStateException("connection refused") },
+      )
+    r.error shouldBe null
+    (r.environment["err"] as String) shouldContain "connection refused"
+  }
+}
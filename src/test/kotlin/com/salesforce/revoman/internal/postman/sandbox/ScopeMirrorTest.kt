@@ -0,0 +1,117 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.postman.sandbox
+
+import com.salesforce.revoman.output.postman.PersistentBackedMutableMap
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import org.junit.jupiter.api.Test
+
+class ScopeMirrorTest {
+  private val pojo = object {}
+
+  @Test
+  fun `syncs in full until the guest holds the scope, then only journaled changes`() {
+    val env = PersistentBackedMutableMap<Any?>(mapOf("a" to "1", "typed" to pojo))
+    val scope = PmScope("environment", env, live = true)
+    val mirror = ScopeMirror()
+    mirror.sync(scope).shouldBeNull()
+    mirror.values shouldBe mapOf("a" to "1")
+    mirror.sync(scope).shouldBeNull() // no result captured the guest's scope yet
+
+    mirror.captured(emptyList<Any?>()) shouldBe ScopeDelta(emptyMap(), emptySet())
+    env["a"] = "1"
+    env["b"] = 2
+    env["typed2"] = pojo
+    mirror.sync(scope) shouldBe ScopeDelta(mapOf("b" to 2), emptySet())
+    env.remove("a")
+    env["b"] = pojo
+    mirror.sync(scope) shouldBe ScopeDelta(emptyMap(), setOf("a", "b"))
+    mirror.values shouldBe emptyMap()
+  }
+
+  @Test
+  fun `reports only the net change of captured mutations`() {
+    val mirror = ScopeMirror()
+    mirror.sync(PmScope("globals", mapOf("same" to 1, "gone" to "x", "kept" to "y"), live = true))
+    mirror.captured(
+      listOf(listOf("same", 1.0), listOf("new", 2.5), listOf("gone"), listOf("never-there"))
+    ) shouldBe ScopeDelta(mapOf("new" to 2.5), setOf("gone"))
+    mirror.values shouldBe mapOf("same" to 1, "kept" to "y", "new" to 2.5)
+  }
+
+  @Test
+  fun `compares a map without a journal in full and resyncs another map`() {
+    val globals = mutableMapOf<String, Any?>("a" to "1")
+    val mirror = ScopeMirror()
+    mirror.sync(PmScope("globals", globals, live = true))
+    mirror.captured(emptyList<Any?>())
+    globals["a"] = "2"
+    mirror.sync(PmScope("globals", globals, live = true)) shouldBe
+      ScopeDelta(mapOf("a" to "2"), emptySet())
+    mirror.sync(PmScope("globals", mutableMapOf("a" to "2"), live = true)).shouldBeNull()
+  }
+
+  @Test
+  fun `a live environment reaches the guest and comes back as deltas across executions`() {
+    val env = PersistentBackedMutableMap<Any?>((1..3_000).associate { "key$it" to "v$it" })
+    val context =
+      PmExecutionContext(
+        environment = PmScope("environment", env, name = "big", live = true),
+        globals = PmScope("globals", mutableMapOf(), live = true),
+        collectionVariables = PmScope("collectionVariables", mutableMapOf(), live = true),
+      )
+    fun PmSandbox.run(script: String): PmExecutionResult =
+      execute(script, ScriptTarget.TEST, context).also { result ->
+        result.error.shouldBeNull()
+        result.deltas.getValue("environment").set.forEach { (key, value) -> env[key] = value }
+        result.deltas.getValue("environment").unset.forEach { env.remove(it) }
+      }
+
+    PmSandbox().use { sandbox ->
+      val unchangedAndNew = "pm.environment.set('key1', 'v1'); pm.environment.set('seen', 'yes');"
+      sandbox.run(unchangedAndNew).deltas shouldBe
+        mapOf(
+          "environment" to ScopeDelta(mapOf("seen" to "yes"), emptySet()),
+          "globals" to ScopeDelta(emptyMap(), emptySet()),
+          "collectionVariables" to ScopeDelta(emptyMap(), emptySet()),
+        )
+      env["key2"] = "changed on the host"
+      env.remove("key3")
+      val second =
+        sandbox.run(
+          """
+          pm.environment.set('copy', pm.environment.get('key2'));
+          pm.environment.set('hasKey3', pm.environment.has('key3'));
+          pm.environment.set('count', Object.keys(pm.environment.toObject()).length);
+          pm.environment.set('name', pm.environment.name);
+          pm.environment.unset('seen');
+          """
+            .trimIndent()
+        )
+      second.deltas.getValue("environment") shouldBe
+        ScopeDelta(
+          mapOf(
+            "copy" to "changed on the host",
+            "hasKey3" to false,
+            "count" to 3_002,
+            "name" to "big",
+          ),
+          setOf("seen"),
+        )
+      second.environment shouldBe emptyMap()
+
+      val failing = "pm.environment.set('partial', 1); throw new Error('boom');"
+      sandbox.execute(failing, ScriptTarget.TEST, context).error shouldNotBe null
+      sandbox.run("pm.environment.set('sawPartial', pm.environment.has('partial'));")
+        .deltas
+        .getValue("environment") shouldBe ScopeDelta(mapOf("sawPartial" to false), emptySet())
+    }
+  }
+}
@@ -0,0 +1,60 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.internal.postman.sandbox
+
+import com.salesforce.revoman.output.report.failure.ScriptLimitExceeded
+import com.salesforce.revoman.output.report.failure.ScriptLimitExceeded.Limit
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.matchers.comparables.shouldBeGreaterThanOrEqualTo
+import io.kotest.matchers.shouldBe
+import java.time.Duration
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+
+class ScriptWatchdogTest {
+  @BeforeEach @AfterEach fun clearPool() = PmSandboxPool.clear()
+
+  private fun PmSandbox.run(script: String, timeoutMs: Long = 60_000) =
+    execute(
+      script,
+      ScriptTarget.TEST,
+      PmExecutionContext(environment = PmScope("env", emptyMap())),
+      timeoutMs,
+    )
+
+  @Test
+  fun `a tight loop runs out of its statement budget`() {
+    PmSandbox().use { sandbox ->
+      val exceeded = shouldThrow<ScriptLimitExceeded> { sandbox.run("while (true) {}") }
+      exceeded.limit shouldBe Limit.STATEMENTS
+      exceeded.statementBudget shouldBe ScriptWatchdog.STATEMENT_BUDGET
+    }
+  }
+
+  @Test
+  fun `a script past its wall-clock budget is stopped with its timings`() {
+    PmSandbox().use { sandbox ->
+      val busy = "const end = Date.now() + 30000; while (Date.now() < end) {}"
+      val exceeded = shouldThrow<ScriptLimitExceeded> { sandbox.run(busy, timeoutMs = 200) }
+      exceeded.limit shouldBe Limit.WALL_CLOCK
+      exceeded.timeout shouldBe Duration.ofMillis(200)
+      exceeded.elapsed shouldBeGreaterThanOrEqualTo Duration.ofMillis(200)
+    }
+  }
+
+  @Test
+  fun `the run's next script gets a fresh context, and the pool retires the sandbox`() {
+    val sandbox = PmSandboxPool.acquire()
+    shouldThrow<ScriptLimitExceeded> { sandbox.run("while (true) {}") }
+    sandbox.isFaulted shouldBe true
+    sandbox.run("pm.environment.set('after', 'yes');").environment["after"] shouldBe "yes"
+    PmSandboxPool.release(sandbox, maxIdle = 2)
+    PmSandboxPool.size shouldBe 0
+  }
+}
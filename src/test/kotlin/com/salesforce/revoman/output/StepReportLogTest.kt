@@ -0,0 +1,138 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.output
+
+import arrow.core.Either.Right
+import com.google.common.truth.Truth.assertThat
+import com.salesforce.revoman.internal.json.MoshiReVoman.Companion.initMoshi
+import com.salesforce.revoman.internal.postman.template.Item
+import com.salesforce.revoman.internal.postman.template.Request
+import com.salesforce.revoman.internal.postman.template.Url
+import com.salesforce.revoman.output.postman.PostmanEnvironment
+import com.salesforce.revoman.output.report.Step
+import com.salesforce.revoman.output.report.StepReport
+import com.salesforce.revoman.output.report.TxnInfo
+import com.salesforce.revoman.output.report.failure.HookFailure.PostStepHookFailure
+import org.http4k.core.Method.POST
+import org.http4k.core.Response
+import org.http4k.core.Status.Companion.OK
+import org.junit.jupiter.api.Test
+
+class StepReportLogTest {
+  private val moshiReVoman = initMoshi()
+  private val rawRequest =
+    Request(method = POST.toString(), url = Url("https://overfullstack.github.io/"))
+
+  private fun step(name: String) = Step(name, Item(name = name, request = rawRequest))
+
+  private fun passed(step: Step) = StepReport(step, pmEnvSnapshot = PostmanEnvironment())
+
+  private fun failed(step: Step): StepReport {
+    val requestInfo =
+      TxnInfo(
+        txnObjType = String::class.java,
+        txnObj = "fakeRequest",
+        httpMsg = rawRequest.toHttpRequest(moshiReVoman),
+        moshiReVoman = moshiReVoman,
+      )
+    val responseInfo =
+      TxnInfo(
+        txnObjType = String::class.java,
+        txnObj = "fakeResponse",
+        httpMsg = Response(OK),
+        moshiReVoman = moshiReVoman,
+      )
+    return StepReport(
+      step,
+      Right(requestInfo),
+      responseInfo = Right(responseInfo),
+      postStepHookFailure =
+        PostStepHookFailure(RuntimeException("fakeRTE"), requestInfo, responseInfo),
+      pmEnvSnapshot = PostmanEnvironment(),
+    )
+  }
+
+  private fun rundownOf(reports: List<StepReport>) =
+    Rundown(
+      stepReports = reports,
+      mutableEnv = PostmanEnvironment(),
+      haltOnFailureOfTypeExcept = emptyMap(),
+      providedStepsToExecuteCount = reports.size,
+    )
+
+  @Test
+  fun `append and replaceLast keep reports and tally in step`() {
+    val first = step("1")
+    val second = step("2")
+
+    val log =
+      StepReportLog.EMPTY.append(passed(first))
+        .append(passed(second))
+        .replaceLast(failed(second))
+        .append(failed(first))
+
+    assertThat(log.reports.map { it.step }).containsExactly(first, second, first).inOrder()
+    assertThat(log.tally.unsuccessfulStepCount).isEqualTo(2)
+    assertThat(log.tally.firstUnsuccessfulStepReport).isEqualTo(log.reports[1])
+  }
+
+  @Test
+  fun `replaceLastOrAppend replaces only the same step`() {
+    val first = step("1")
+    val second = step("2")
+
+    val log =
+      StepReportLog.EMPTY.append(failed(first))
+        .replaceLastOrAppend(passed(first))
+        .replaceLastOrAppend(passed(second))
+
+    assertThat(log.reports).hasSize(2)
+    assertThat(log.tally.unsuccessfulStepCount).isEqualTo(0)
+    assertThat(log.tally.firstUnsuccessfulStepReport).isNull()
+  }
+
+  @Test
+  fun `earlier logs are not affected by later appends`() {
+    val before = StepReportLog.EMPTY.append(passed(step("1")))
+
+    before.append(failed(step("2")))
+
+    assertThat(before.reports).hasSize(1)
+    assertThat(before.tally.unsuccessfulStepCount).isEqualTo(0)
+  }
+
+  @Test
+  fun `rundown counts from a log match the counts from a scan`() {
+    val reports = listOf(passed(step("1")), failed(step("2")), passed(step("3")), failed(step("4")))
+    val scanned = rundownOf(reports)
+
+    val tallied = rundownOf(emptyList()).withStepReportLog(StepReportLog.of(reports))
+
+    assertThat(tallied.stepReports).containsExactlyElementsIn(reports).inOrder()
+    assertThat(tallied.unsuccessfulStepCount).isEqualTo(scanned.unsuccessfulStepCount)
+    assertThat(tallied.httpFailureStepCount).isEqualTo(scanned.httpFailureStepCount)
+    assertThat(tallied.executionFailureStepCount).isEqualTo(scanned.executionFailureStepCount)
+    assertThat(tallied.firstUnsuccessfulStepReport).isEqualTo(scanned.firstUnsuccessfulStepReport)
+    assertThat(tallied.areAllStepsSuccessful).isFalse()
+  }
+
+  @Test
+  fun `a copied rundown keeps its log and equals one built from the same reports`() {
+    val reports = listOf(passed(step("1")), failed(step("2")))
+    val log = StepReportLog.of(reports)
+    val scanned = rundownOf(reports)
+    val tallied = scanned.withStepReportLog(log)
+
+    val copied = tallied.copy(stopReason = StopReason.HALTED_ON_FAILURE)
+
+    assertThat(copied.stepReportLog).isSameInstanceAs(log)
+    assertThat(copied.unsuccessfulStepCount).isEqualTo(1)
+    assertThat(tallied).isEqualTo(scanned)
+    assertThat(tallied.hashCode()).isEqualTo(scanned.hashCode())
+  }
+}
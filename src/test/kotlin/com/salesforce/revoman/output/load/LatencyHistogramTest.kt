@@ -0,0 +1,81 @@
+/**
+ * ************************************************************************************************
+ * Copyright (c) 2023, Salesforce, Inc. All rights reserved. SPDX-License-Identifier: Apache License
+ * Version 2.0 For full license text, see the LICENSE file in the repo root or
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * ************************************************************************************************
+ */
+package com.salesforce.revoman.output.load
+
+import com.google.common.truth.Truth.assertThat
+import java.time.Duration
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+
+class LatencyHistogramTest {
+
+  @Test
+  fun `empty histogram reports zeros`() {
+    val histogram = LatencyHistogram()
+
+    assertThat(histogram.count).isEqualTo(0)
+    assertThat(histogram.p99).isEqualTo(Duration.ZERO)
+    assertThat(histogram.min).isEqualTo(Duration.ZERO)
+    assertThat(histogram.mean).isEqualTo(Duration.ZERO)
+  }
+
+  @Test
+  fun `values below the sub-bucket count are exact`() {
+    val histogram = LatencyHistogram()
+    (1L..100L).forEach { histogram.record(Duration.ofNanos(it * 1_000)) }
+
+    assertThat(histogram.p50).isEqualTo(Duration.ofNanos(50_000))
+    assertThat(histogram.p90).isEqualTo(Duration.ofNanos(90_000))
+    assertThat(histogram.p99).isEqualTo(Duration.ofNanos(99_000))
+    assertThat(histogram.min).isEqualTo(Duration.ofNanos(1_000))
+    assertThat(histogram.max).isEqualTo(Duration.ofNanos(100_000))
+  }
+
+  @Test
+  fun `percentiles stay within the relative error bound and never under-report`() {
+    val histogram = LatencyHistogram()
+    (1L..10_000L).forEach { histogram.record(Duration.ofMillis(it)) }
+
+    listOf(50.0 to 5_000L, 90.0 to 9_000L, 99.0 to 9_900L).forEach { (percentile, expectedMs) ->
+      val reported = histogram.percentile(percentile).toNanos() / 1_000.0
+      val expected = expectedMs * 1_000.0
+      assertThat(reported).isAtLeast(expected)
+      assertThat(reported).isAtMost(expected * (1 + 1.0 / 64))
+    }
+    assertThat(histogram.max).isEqualTo(Duration.ofMillis(10_000))
+    assertThat(histogram.percentile(100.0)).isEqualTo(histogram.max)
+  }
+
+  @Test
+  fun `bucket index round-trips to a value at or above the recorded one`() {
+    listOf(0L, 127L, 128L, 129L, 255L, 256L, 1_000_003L, Long.MAX_VALUE / 3).forEach { micros ->
+      val highest = LatencyHistogram.highestEquivalent(LatencyHistogram.indexOf(micros))
+      assertThat(highest).isAtLeast(micros)
+      assertThat(highest - micros).isAtMost(maxOf(micros / 64, 0L))
+    }
+  }
+
+  @Test
+  fun `add merges counts and extremes`() {
+    val fast = LatencyHistogram().apply { repeat(90) { record(Duration.ofMillis(1)) } }
+    val slow = LatencyHistogram().apply { repeat(10) { record(Duration.ofMillis(500)) } }
+
+    fast.add(slow)
+
+    assertThat(fast.count).isEqualTo(100)
+    assertThat(fast.p50.toMillis()).isEqualTo(1)
+    assertThat(fast.p99.toMillis()).isEqualTo(500)
+    assertThat(fast.max).isEqualTo(Duration.ofMillis(500))
+  }
+
+  @Test
+  fun `percentile outside range is rejected`() {
+    assertThrows<IllegalArgumentException> { LatencyHistogram().percentile(0.0) }
+    assertThrows<IllegalArgumentException> { LatencyHistogram().percentile(100.1) }
+  }
+}
@@ -8,13 +8,16 @@
 package com.salesforce.revoman.output.log
 
 import com.salesforce.revoman.input.config.Phase
+import com.salesforce.revoman.output.report.ServerTiming
 import io.kotest.matchers.nulls.shouldBeNull
 import io.kotest.matchers.shouldBe
 import io.kotest.matchers.string.shouldContain
+import io.kotest.matchers.string.shouldEndWith
 import io.kotest.matchers.string.shouldNotContain
 import io.kotest.matchers.string.shouldStartWith
 import java.nio.file.Files
 import java.nio.file.Path
+import java.time.Duration
 import java.time.Instant
 import org.junit.jupiter.api.Test
 import org.junit.jupiter.api.io.TempDir
@@ -358,4 +361,35 @@ class FileRunLogSinkTest {
     // And the per-step block itself was suppressed (steps off).
     Files.readString(runFile(logsDir, "T.m")) shouldNotContain "│   200 OK"
   }
+
+  @Test
+  fun `heaviest steps split HTTP time by Server-Timing when servers send it`(
+    @TempDir logsDir: Path
+  ) {
+    val sink = FileRunLogSink.open(logsDir, "T.m", "External", ts, FileRunLogConfig.DEFAULT_ALL)
+    sink.event(
+      finished("timed", 500L)
+        .copy(
+          httpMs = 400L,
+          serverTimings = listOf(ServerTiming("app", Duration.ofMillis(300), null)),
+        )
+    )
+    sink.event(finished("untimed", 50L))
+    val table = sink.renderHeaviestSteps(10)
+    sink.close()
+    table shouldContain "net+client"
+    val timed = table.lines().first { "timed" in it && "untimed" !in it }
+    timed shouldContain "500ms     300ms       100ms"
+    table.lines().first { "untimed" in it } shouldContain "50ms         -           -"
+  }
+
+  @Test
+  fun `heaviest steps keep the single column without Server-Timing`(@TempDir logsDir: Path) {
+    val sink = FileRunLogSink.open(logsDir, "T.m", "External", ts, FileRunLogConfig.DEFAULT_ALL)
+    sink.event(finished("only", 42L).copy(httpMs = 40L))
+    val table = sink.renderHeaviestSteps(10)
+    sink.close()
+    table shouldNotContain "server"
+    table.lines()[1].trimEnd() shouldEndWith "42ms"
+  }
 }
@@ -73,4 +73,37 @@ class PersistentBackedMutableMapTest {
     assertThat(m.values.contains(1)).isTrue()
     assertThat(m.values.contains(999)).isFalse()
   }
+
+  @Test
+  fun `journals written keys between drains once tracking starts`() {
+    val m = PersistentBackedMutableMap<Any?>(mapOf("a" to 1))
+    assertThat(m.drainChangedKeys()).isNull() // untracked until the first drain
+    m["b"] = 2
+    m.putAll(mapOf("c" to 3, "d" to 4))
+    m.remove("a")
+    assertThat(m.drainChangedKeys()).containsExactly("a", "b", "c", "d")
+    assertThat(m.drainChangedKeys()).isEmpty()
+    m.snapshotView()["e"] = 5 // snapshots keep their own (untracked) journal
+    assertThat(m.drainChangedKeys()).isEmpty()
+    m.clear()
+    assertThat(m.drainChangedKeys()).isNull() // everything changed: caller must rescan
+  }
+
+  @Test
+  fun `each reader follows the journal from its own version`() {
+    val m = PersistentBackedMutableMap<Any?>(mapOf("a" to 1))
+    val early = m.version
+    m["b"] = 2
+    val late = m.version
+    m.remove("a")
+    assertThat(m.changedKeysSince(early)).containsExactly("a", "b")
+    assertThat(m.changedKeysSince(late)).containsExactly("a")
+    assertThat(m.changedKeysSince(m.version)).isEmpty()
+    assertThat(m.drainChangedKeys()).isNull() // draining keeps its own cursor
+    assertThat(m.changedKeysSince(late)).containsExactly("a")
+    val beforeClear = m.version
+    m.clear()
+    assertThat(m.changedKeysSince(beforeClear)).isNull()
+    assertThat(m.changedKeysSince(m.version)).isEmpty()
+  }
 }